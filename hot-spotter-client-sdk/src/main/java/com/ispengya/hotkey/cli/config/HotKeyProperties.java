@@ -3,6 +3,7 @@ package com.ispengya.hotkey.cli.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * HotKeyProperties 定义 hotkey 客户端在 Spring Boot 中的外部化配置，
@@ -96,10 +97,40 @@ public class HotKeyProperties {
 
         private Integer maxFrameBytes = 1024 * 1024;
 
+        /**
+         * 序列化格式：json / binary / jdk，binary 仅对访问上报与热 Key 视图生效，其余消息仍为 JSON。
+         */
+        private String serializer = "json";
+
         private Integer pushPoolSize = 1;
 
         private Integer reportPoolSize = 2;
 
+        /**
+         * 上报连接的 key 字符串表容量，0 表示不启用；启用后重复出现的 key 只发送一个 varint ID，需服务端支持。
+         */
+        private Integer keyTableSize = 0;
+
+        /**
+         * 发送负载的压缩算法：none / deflate，或通过 META-INF/services 注册的 PayloadCodec 名称，需服务端支持。
+         */
+        private String compressionCodec = "none";
+
+        /**
+         * 负载达到该字节数才压缩，0 表示不压缩。
+         */
+        private Integer compressionThreshold = 16 * 1024;
+
+        /**
+         * 按命令类型（如 ACCESS_REPORT）覆盖的压缩阈值。
+         */
+        private Map<String, Integer> compressionThresholds;
+
+        /**
+         * IO 传输方式：nio / epoll / auto，epoll 不可用时回退到 nio。
+         */
+        private String transport = "nio";
+
         private String cacheTemplateClass;
 
         private String localCacheClass;
@@ -142,6 +173,14 @@ public class HotKeyProperties {
             this.maxFrameBytes = maxFrameBytes;
         }
 
+        public String getSerializer() {
+            return serializer;
+        }
+
+        public void setSerializer(String serializer) {
+            this.serializer = serializer;
+        }
+
         public Integer getPushPoolSize() {
             return pushPoolSize;
         }
@@ -158,6 +197,46 @@ public class HotKeyProperties {
             this.reportPoolSize = reportPoolSize;
         }
 
+        public Integer getKeyTableSize() {
+            return keyTableSize;
+        }
+
+        public void setKeyTableSize(Integer keyTableSize) {
+            this.keyTableSize = keyTableSize;
+        }
+
+        public String getCompressionCodec() {
+            return compressionCodec;
+        }
+
+        public void setCompressionCodec(String compressionCodec) {
+            this.compressionCodec = compressionCodec;
+        }
+
+        public Integer getCompressionThreshold() {
+            return compressionThreshold;
+        }
+
+        public void setCompressionThreshold(Integer compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+        }
+
+        public Map<String, Integer> getCompressionThresholds() {
+            return compressionThresholds;
+        }
+
+        public void setCompressionThresholds(Map<String, Integer> compressionThresholds) {
+            this.compressionThresholds = compressionThresholds;
+        }
+
+        public String getTransport() {
+            return transport;
+        }
+
+        public void setTransport(String transport) {
+            this.transport = transport;
+        }
+
         public String getCacheTemplateClass() {
             return cacheTemplateClass;
         }
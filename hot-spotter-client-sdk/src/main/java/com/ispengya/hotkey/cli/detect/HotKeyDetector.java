@@ -6,6 +6,7 @@ import com.ispengya.hotkey.remoting.message.HotKeyViewMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -17,9 +18,12 @@ import java.util.concurrent.atomic.LongAdder;
 
 /**
  * HotKeyDetector 负责采集访问轨迹和上报访问统计，
- * 并委托 HotKeyViewRefresher 同步最新的热 Key 视图。
+ * 并根据服务端推送与周期查询同步最新的热 Key 视图。
  *
- * <p>该类不直接感知底层通信协议，聚焦在采样和上报行为。</p>
+ * <p>该类不直接感知底层通信协议，聚焦在采样和上报行为。启动时先同步拉取一次完整视图，
+ * 之后本地视图记录最近应用的版本号，查询时作为 lastVersions 发送，服务端只返回该版本之后的增删。
+ * 增量（推送或查询结果）只有其基础版本恰好等于本地版本时才应用；已包含在本地视图中的增量直接忽略，
+ * 与本地版本之间有缺口的增量触发重新同步。</p>
  *
  * @author ispengya
  */
@@ -32,6 +36,19 @@ public class HotKeyDetector {
     private final HotKeySet hotKeySet;
     private final AccessCounterCollector collector = new AccessCounterCollector();
     private final long reportPeriodMillis;
+    private final String appName;
+    private final long queryPeriodMillis;
+    private final long queryTimeoutMillis;
+
+    /**
+     * 保护本地视图与版本号，推送线程与查询线程都会更新。
+     */
+    private final Object viewLock = new Object();
+
+    /**
+     * 本地视图最近应用的版本号，0 表示尚未应用过完整视图，此时忽略所有增量。
+     */
+    private long viewVersion;
 
     /**
      * 构造 HotKeyDetector。
@@ -49,10 +66,14 @@ public class HotKeyDetector {
         this.transport = new HotKeyTransport(remotingClient, appName);
         this.reportPeriodMillis = reportPeriodMillis;
         this.hotKeySet = hotKeySet;
+        this.appName = appName;
+        this.queryPeriodMillis = queryPeriodMillis;
+        this.queryTimeoutMillis = queryTimeoutMillis;
         this.transport.setPushListener(this::handlePush);
+        this.transport.setResyncListener(this::resync);
         if (log.isInfoEnabled()) {
-            log.info("HotKeyDetector initialized. appName={}, reportPeriodMillis={}",
-                    appName, reportPeriodMillis);
+            log.info("HotKeyDetector initialized. appName={}, reportPeriodMillis={}, queryPeriodMillis={}",
+                    appName, reportPeriodMillis, queryPeriodMillis);
         }
     }
 
@@ -63,17 +84,31 @@ public class HotKeyDetector {
     }
 
     /**
-     * 启动探测器，包括定时上报任务和视图刷新任务。
+     * 启动探测器：先同步拉取一次完整热 Key 视图，再启动定时上报任务和视图刷新任务。
      */
     public void start() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("Failed to load initial hot keys, retry on next query", e);
+        }
         scheduler.scheduleAtFixedRate(
                 this::reportTask,
                 reportPeriodMillis,
                 reportPeriodMillis,
                 TimeUnit.MILLISECONDS
         );
+        if (queryPeriodMillis > 0L) {
+            scheduler.scheduleWithFixedDelay(
+                    this::queryTask,
+                    queryPeriodMillis,
+                    queryPeriodMillis,
+                    TimeUnit.MILLISECONDS
+            );
+        }
         if (log.isInfoEnabled()) {
-            log.info("HotKeyDetector started. reportPeriodMillis={}", reportPeriodMillis);
+            log.info("HotKeyDetector started. reportPeriodMillis={}, queryPeriodMillis={}",
+                    reportPeriodMillis, queryPeriodMillis);
         }
     }
 
@@ -126,32 +161,129 @@ public class HotKeyDetector {
         if (message == null) {
             return;
         }
-        handleMessage(message);
+        Map<String, HotKeyViewMessage.ViewEntry> views = message.getViews();
+        if (views == null || views.isEmpty()) {
+            return;
+        }
+        boolean connected = true;
+        for (Map.Entry<String, HotKeyViewMessage.ViewEntry> view : views.entrySet()) {
+            HotKeyViewMessage.ViewEntry entry = view.getValue();
+            if (entry != null && isOwnApp(view.getKey())) {
+                connected &= applyEntry(entry);
+            }
+        }
+        if (!connected) {
+            // 推送与本地视图之间有缺口，在推送线程中按序重新同步，之后的推送排在其后处理
+            resync();
+        }
     }
 
-    private void handleMessage(HotKeyViewMessage message) {
-        if (message == null) {
-            return;
+    /**
+     * 定时查询本地版本之后的热 Key 变化，补齐可能遗漏的推送。
+     */
+    private void queryTask() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("Failed to query hot keys", e);
         }
-        Map<String, HotKeyViewMessage.ViewEntry> views = message.getViews();
-        if (views == null || views.isEmpty()) {
+    }
+
+    /**
+     * 服务端因推送连接积压丢弃过推送，或收到的增量与本地视图不衔接时，按本地版本拉取遗漏的增删，
+     * 仍无法衔接时拉取完整视图并整体替换。
+     */
+    private void resync() {
+        try {
+            sync();
+            if (log.isInfoEnabled()) {
+                log.info("Resynced hot keys. appName={}, version={}", appName, currentVersion());
+            }
+        } catch (Exception e) {
+            log.error("Failed to resync hot keys", e);
+        }
+    }
+
+    private void sync() {
+        long version = currentVersion();
+        if (query(version) || version == 0L) {
             return;
         }
-        views.forEach((appName, entry) -> {
-            if (entry == null) {
-                return;
+        // 查询期间本地视图已被推送推进，增量不再衔接，改为拉取完整视图
+        query(0L);
+    }
+
+    /**
+     * 查询 sinceVersion 之后的变化并应用。
+     *
+     * @param sinceVersion 本地已知版本，0 表示请求完整视图
+     * @return 结果已应用或无需应用时返回 true；增量与本地视图不衔接时返回 false
+     */
+    private boolean query(long sinceVersion) {
+        Map<String, Long> lastVersions = Collections.singletonMap(appName, sinceVersion);
+        HotKeyViewMessage message = transport.queryAllHotKeys(lastVersions, queryTimeoutMillis);
+        Map<String, HotKeyViewMessage.ViewEntry> views = message == null ? null : message.getViews();
+        HotKeyViewMessage.ViewEntry entry = views == null ? null : views.get(appName);
+        // 没有本应用的条目表示服务端版本与本地一致，或服务端尚无该应用的热 Key 状态
+        return entry == null || applyEntry(entry);
+    }
+
+    private long currentVersion() {
+        synchronized (viewLock) {
+            return viewVersion;
+        }
+    }
+
+    private boolean isOwnApp(String owner) {
+        return owner == null || owner.isEmpty() || owner.equals(appName);
+    }
+
+    /**
+     * 把一个视图条目应用到本地视图。
+     *
+     * <p>完整视图总是整体替换并采用其版本（服务端重启后版本可能回退）。增量条目只在其基础版本
+     * 等于本地版本时应用；尚未应用过完整视图、基础版本未知或与本地版本之间有缺口时不应用，
+     * 由调用方重新同步；版本不高于本地版本的增量已包含在本地视图中，直接忽略。</p>
+     *
+     * @param entry 视图条目
+     * @return 已应用或可以忽略时返回 true；需要重新同步时返回 false
+     */
+    private boolean applyEntry(HotKeyViewMessage.ViewEntry entry) {
+        synchronized (viewLock) {
+            if (entry.isFull()) {
+                hotKeySet.replace(entry.getHotKeys());
+                viewVersion = entry.getVersion();
+                if (log.isDebugEnabled()) {
+                    log.debug("Replaced hot keys. appName={}, version={}", appName, viewVersion);
+                }
+                return true;
+            }
+            if (viewVersion == 0L) {
+                return false;
+            }
+            if (entry.getVersion() <= viewVersion) {
+                return true;
             }
-            boolean updated = false;
+            if (entry.getBaseVersion() != viewVersion) {
+                if (log.isInfoEnabled()) {
+                    log.info("Hot key delta does not connect, resync. appName={}, localVersion={}, baseVersion={}, version={}",
+                            appName, viewVersion, entry.getBaseVersion(), entry.getVersion());
+                }
+                return false;
+            }
+            hotKeySet.apply(entry.getAddedKeys(), entry.getRemovedKeys());
             if (entry.getAddedKey() != null) {
-                updated |= hotKeySet.add(entry.getAddedKey());
+                hotKeySet.add(entry.getAddedKey());
             }
             if (entry.getRemovedKey() != null) {
-                updated |= hotKeySet.remove(entry.getRemovedKey());
+                hotKeySet.remove(entry.getRemovedKey());
             }
-            if (updated && log.isDebugEnabled()) {
-                log.debug("Updated hot keys for app {}", appName);
+            viewVersion = entry.getVersion();
+            if (log.isDebugEnabled()) {
+                log.debug("Applied hot key delta. appName={}, version={}", appName, viewVersion);
             }
-        });
+            return true;
+        }
     }
 
     static final class AccessCounterCollector {
@@ -1,5 +1,6 @@
 package com.ispengya.hotkey.cli.detect;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -48,6 +49,55 @@ public class HotKeySet {
         return true;
     }
 
+    /**
+     * 以一次复制应用一组增量变化。
+     *
+     * @param addedKeys   新增的 key
+     * @param removedKeys 删除的 key
+     * @return 集合是否发生变化
+     */
+    public synchronized boolean apply(Collection<String> addedKeys, Collection<String> removedKeys) {
+        boolean hasAdded = addedKeys != null && !addedKeys.isEmpty();
+        boolean hasRemoved = removedKeys != null && !removedKeys.isEmpty() && !hotKeys.isEmpty();
+        if (!hasAdded && !hasRemoved) {
+            return false;
+        }
+        Set<String> merged = new HashSet<>(hotKeys);
+        boolean changed = false;
+        if (hasRemoved) {
+            changed = merged.removeAll(removedKeys);
+        }
+        if (hasAdded) {
+            for (String key : addedKeys) {
+                if (key != null) {
+                    changed |= merged.add(key);
+                }
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+        hotKeys = Collections.unmodifiableSet(merged);
+        if (log.isInfoEnabled()) {
+            log.info("Apply hot key delta. added={}, removed={}, size={}",
+                    hasAdded ? addedKeys.size() : 0, hasRemoved ? removedKeys.size() : 0, merged.size());
+        }
+        return true;
+    }
+
+    /**
+     * 用完整快照替换当前集合。
+     *
+     * @param keys 完整的热 key 集合
+     */
+    public synchronized void replace(Set<String> keys) {
+        Set<String> copy = keys == null ? Collections.emptySet() : new HashSet<>(keys);
+        hotKeys = Collections.unmodifiableSet(copy);
+        if (log.isInfoEnabled()) {
+            log.info("Replace hot keys. size={}", copy.size());
+        }
+    }
+
     public boolean contains(String key) {
         if (key == null) {
             return false;
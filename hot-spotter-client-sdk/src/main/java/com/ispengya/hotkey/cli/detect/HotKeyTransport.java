@@ -69,4 +69,13 @@ public class HotKeyTransport {
             log.info("Registered push listener for appName={}", appName);
         }
     }
+
+    /**
+     * 注册服务端要求重新同步时的回调。
+     *
+     * @param listener 重新同步回调
+     */
+    public void setResyncListener(Runnable listener) {
+        remotingClient.setResyncListener(listener);
+    }
 }
@@ -1,12 +1,17 @@
 package com.ispengya.hotkey.cli.spring;
 
 import cn.hutool.core.collection.CollUtil;
+import com.ispengya.hotkey.remoting.codec.PayloadCompression;
+import com.ispengya.hotkey.remoting.protocol.BinarySerializer;
+import com.ispengya.hotkey.remoting.protocol.CommandType;
 import com.ispengya.hotkey.remoting.protocol.Fastjson2Serializer;
+import com.ispengya.hotkey.remoting.protocol.JdkSerializer;
 import com.ispengya.hotkey.remoting.client.ClientRequestSender;
 import com.ispengya.hotkey.remoting.client.HotKeyRemotingClient;
 import com.ispengya.hotkey.remoting.client.NettyClient;
 import com.ispengya.hotkey.remoting.client.NettyClientConfig;
 import com.ispengya.hotkey.remoting.protocol.Serializer;
+import com.ispengya.hotkey.remoting.transport.TransportType;
 import com.ispengya.hotkey.cli.config.HotKeyProperties;
 import com.ispengya.hotkey.cli.cache.DefaultLocalCache;
 import com.ispengya.hotkey.cli.cache.ICache;
@@ -28,7 +33,9 @@ import org.springframework.context.annotation.Configuration;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * HotKeyAutoConfiguration 提供 hotkey 在 Spring Boot 环境下的自动装配，
@@ -69,7 +76,14 @@ public class HotKeyAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public Serializer hotkeySerializer() {
+    public Serializer hotkeySerializer(HotKeyProperties properties) {
+        String name = properties.getClient().getSerializer();
+        if (BinarySerializer.NAME.equalsIgnoreCase(StringUtils.trim(name))) {
+            return new BinarySerializer();
+        }
+        if (JdkSerializer.NAME.equalsIgnoreCase(StringUtils.trim(name))) {
+            return new JdkSerializer();
+        }
         return new Fastjson2Serializer();
     }
 
@@ -83,6 +97,7 @@ public class HotKeyAutoConfiguration {
         int maxFrameBytes = clientConfig.getMaxFrameBytes();
         int pushPoolSize = clientConfig.getPushPoolSize();
         int reportPoolSize = clientConfig.getReportPoolSize();
+        int keyTableSize = clientConfig.getKeyTableSize() == null ? 0 : clientConfig.getKeyTableSize();
         String appName = properties.getAppName();
         NettyClientConfig config = new NettyClientConfig(
                 serverAddresses,
@@ -91,7 +106,10 @@ public class HotKeyAutoConfiguration {
                 maxFrameBytes,
                 pushPoolSize,
                 reportPoolSize,
-                appName
+                appName,
+                keyTableSize,
+                buildCompression(clientConfig),
+                TransportType.of(clientConfig.getTransport())
         );
         NettyClient client = new NettyClient(config);
         client.start();
@@ -226,6 +244,24 @@ public class HotKeyAutoConfiguration {
         return result;
     }
 
+    private PayloadCompression buildCompression(HotKeyProperties.ClientConfig clientConfig) {
+        Map<CommandType, Integer> thresholds = new EnumMap<>(CommandType.class);
+        Map<String, Integer> configured = clientConfig.getCompressionThresholds();
+        if (configured != null) {
+            for (Map.Entry<String, Integer> entry : configured.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                try {
+                    thresholds.put(CommandType.valueOf(entry.getKey().trim()), entry.getValue());
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+        Integer threshold = clientConfig.getCompressionThreshold();
+        return PayloadCompression.of(clientConfig.getCompressionCodec(), threshold == null ? 0 : threshold, thresholds);
+    }
+
     /**
      * 注册默认的 HotKeyClient。
      *
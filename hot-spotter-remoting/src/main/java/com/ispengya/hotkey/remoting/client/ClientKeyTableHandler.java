@@ -0,0 +1,53 @@
+package com.ispengya.hotkey.remoting.client;
+
+import com.ispengya.hotkey.remoting.protocol.ClientKeyTable;
+import com.ispengya.hotkey.remoting.protocol.Command;
+import com.ispengya.hotkey.remoting.protocol.CommandType;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ClientKeyTableHandler 在连接建立后与服务端协商 key 字符串表。
+ *
+ * <p>连接激活时发送 {@link CommandType#KEY_TABLE_NEGOTIATE}，负载为请求的容量；服务端回复实际接受的容量
+ * （不超过服务端上限，0 表示不支持）。容量大于 0 时为连接绑定 {@link ClientKeyTable}，
+ * 之后的访问上报按表编码。协商完成前的上报照常发送。</p>
+ */
+public final class ClientKeyTableHandler extends ChannelDuplexHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientKeyTableHandler.class);
+
+    private final int requestedSize;
+
+    public ClientKeyTableHandler(int requestedSize) {
+        this.requestedSize = requestedSize;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        byte[] payload = new byte[4];
+        Unpooled.wrappedBuffer(payload).setInt(0, requestedSize);
+        ctx.writeAndFlush(new Command(CommandType.KEY_TABLE_NEGOTIATE, 0L, payload));
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof Command) || ((Command) msg).getType() != CommandType.KEY_TABLE_NEGOTIATE) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+        byte[] payload = ((Command) msg).getPayload();
+        int accepted = payload == null || payload.length < 4 ? 0 : Unpooled.wrappedBuffer(payload).getInt(0);
+        if (accepted > 0) {
+            ClientKeyTable.bind(ctx.channel(), new ClientKeyTable(accepted));
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Key table negotiated. remote={}, requested={}, accepted={}",
+                    ctx.channel().remoteAddress(), requestedSize, accepted);
+        }
+    }
+}
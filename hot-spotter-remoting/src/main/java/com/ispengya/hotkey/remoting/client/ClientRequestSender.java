@@ -1,7 +1,13 @@
 package com.ispengya.hotkey.remoting.client;
 
+import com.ispengya.hotkey.remoting.message.AccessReportMessage;
+import com.ispengya.hotkey.remoting.protocol.BinarySerializer;
+import com.ispengya.hotkey.remoting.protocol.ClientKeyTable;
 import com.ispengya.hotkey.remoting.protocol.Command;
+import com.ispengya.hotkey.remoting.protocol.CommandType;
+import com.ispengya.hotkey.remoting.protocol.Serializer;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
@@ -43,6 +49,30 @@ public final class ClientRequestSender {
         }
     }
 
+    /**
+     * 发送访问上报。连接协商了 key 字符串表时在连接的 EventLoop 中按表编码，
+     * 保证 key 的定义先于引用写出；否则使用 serializer 编码。
+     *
+     * @param message    访问上报
+     * @param serializer 未协商 key 表时使用的序列化器
+     */
+    public void sendReport(AccessReportMessage message, Serializer serializer) {
+        try {
+            Channel channel = nettyClient.pickReportChannel();
+            ClientKeyTable table = ClientKeyTable.of(channel);
+            if (table == null) {
+                channel.writeAndFlush(new Command(CommandType.ACCESS_REPORT, serializer.serialize(message)));
+                return;
+            }
+            // 写失败时上报可能带有未送达的 key 定义，关闭连接让两端重新协商
+            channel.eventLoop().execute(() -> channel.writeAndFlush(
+                    new Command(CommandType.ACCESS_REPORT, BinarySerializer.serialize(message, table)))
+                    .addListener(ChannelFutureListener.CLOSE_ON_FAILURE));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void sendOneWayOnPushChannel(Command command) {
         try {
             Channel channel = nettyClient.pickPushChannel();
@@ -27,6 +27,7 @@ public final class HotKeyRemotingClient {
     private final ClientRequestSender sender;
     private final String appName;
     private volatile Consumer<HotKeyViewMessage> pushListener;
+    private volatile Runnable resyncListener;
     private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor();
 
     public HotKeyRemotingClient(Serializer serializer,
@@ -42,7 +43,21 @@ public final class HotKeyRemotingClient {
         this.pushListener = listener;
     }
 
+    /**
+     * 设置收到服务端重新同步标记（HOT_KEY_RESYNC）时的回调，与推送回调在同一线程中按序执行。
+     */
+    public void setResyncListener(Runnable listener) {
+        this.resyncListener = listener;
+    }
+
     private void handlePushCommand(Command command) {
+        if (command.getType() == CommandType.HOT_KEY_RESYNC) {
+            Runnable listener = resyncListener;
+            if (listener != null) {
+                pushExecutor.execute(listener);
+            }
+            return;
+        }
         if (command.getType() != CommandType.HOT_KEY_PUSH) {
             return;
         }
@@ -58,13 +73,12 @@ public final class HotKeyRemotingClient {
     }
 
     public void reportAccess(AccessReportMessage message) {
-        byte[] bytes = serializer.serialize(message);
-        Command command = new Command(CommandType.ACCESS_REPORT, bytes);
-        sender.sendOneWay(command);
+        sender.sendReport(message, serializer);
     }
 
     public void registerPushChannel() {
         PushChannelRegisterMessage message = new PushChannelRegisterMessage(appName);
+        message.setSerializer(serializer.getName());
         byte[] bytes = serializer.serialize(message);
         Command command = new Command(CommandType.PUSH_CHANNEL_REGISTER, bytes);
         sender.sendOneWayOnPushChannel(command);
@@ -73,6 +87,7 @@ public final class HotKeyRemotingClient {
 
     public HotKeyViewMessage queryAllHotKeys(Map<String, Long> lastVersions, long timeoutMillis) {
         HotKeyQueryRequest request = new HotKeyQueryRequest(lastVersions);
+        request.setSerializer(serializer.getName());
         byte[] bytes = serializer.serialize(request);
         Command command = new Command(CommandType.HOT_KEY_QUERY, bytes);
         try {
@@ -5,10 +5,11 @@ import com.ispengya.hotkey.remoting.codec.CommandEncoder;
 import com.ispengya.hotkey.remoting.protocol.Command;
 import com.ispengya.hotkey.remoting.protocol.CommandType;
 import io.netty.bootstrap.Bootstrap;
+import com.ispengya.hotkey.remoting.transport.TransportType;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
@@ -20,6 +21,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * NettyClient 封装基于 Netty 的客户端启动与连接逻辑。
  *
  * <p>客户端采用短连接模式：每次请求创建一次连接，用完即关。</p>
+ *
+ * <p>传输方式由 {@link NettyClientConfig#getTransport()} 决定，使用 epoll 时为边缘触发并开启 TCP_QUICKACK。</p>
  */
 public final class NettyClient {
 
@@ -34,10 +37,15 @@ public final class NettyClient {
     private EventLoopGroup workerGroup;
 
     /**
-     * Netty Bootstrap 实例。
+     * 推送连接使用的 Bootstrap。
      */
     private Bootstrap bootstrap;
 
+    /**
+     * 上报连接使用的 Bootstrap，开启 key 字符串表时额外安装 {@link ClientKeyTableHandler}。
+     */
+    private Bootstrap reportBootstrap;
+
     private final int pushPoolSize;
 
     private final int reportPoolSize;
@@ -67,21 +75,22 @@ public final class NettyClient {
      * 初始化 Netty 客户端，包括 EventLoopGroup 和 ChannelPipeline。
      */
     public void start() {
-        workerGroup = new NioEventLoopGroup(config.getWorkerThreads());
+        TransportType transport = config.getTransport().resolve();
+        workerGroup = transport.newEventLoopGroup(config.getWorkerThreads());
         bootstrap = new Bootstrap();
         bootstrap.group(workerGroup)
-                .channel(NioSocketChannel.class)
+                .channel(transport.socketChannelClass())
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectTimeoutMillis())
-                .handler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    protected void initChannel(SocketChannel ch) {
-                        ChannelPipeline p = ch.pipeline();
-                        p.addLast(new CommandDecoder(config.getMaxFrameLength()));
-                        p.addLast(new CommandEncoder());
-                        p.addLast(new ClientInboundHandler());
-                    }
-                });
+                .handler(newInitializer(false));
+        if (transport == TransportType.EPOLL) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .option(EpollChannelOption.TCP_QUICKACK, true);
+        }
+        // key 字符串表只用于访问上报，推送连接不协商
+        reportBootstrap = config.getKeyTableSize() > 0
+                ? bootstrap.clone().handler(newInitializer(true))
+                : bootstrap;
         workerGroup.next().scheduleAtFixedRate(() -> {
             try {
                 Channel channel = pickPushChannel();
@@ -94,6 +103,21 @@ public final class NettyClient {
         }, 30, 30, TimeUnit.SECONDS);
     }
 
+    private ChannelInitializer<SocketChannel> newInitializer(boolean keyTable) {
+        return new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                ChannelPipeline p = ch.pipeline();
+                p.addLast(new CommandDecoder(config.getMaxFrameLength()));
+                p.addLast(new CommandEncoder(config.getCompression()));
+                if (keyTable) {
+                    p.addLast(new ClientKeyTableHandler(config.getKeyTableSize()));
+                }
+                p.addLast(new ClientInboundHandler());
+            }
+        };
+    }
+
     /**
      * 获取或建立连接池中的一个可用 Channel（用于 one-way 或异步请求）。
      *
@@ -181,7 +205,7 @@ public final class NettyClient {
             for (int i = 0; i < reportPoolSize; i++) {
                 Channel ch = reportChannelPool.get(i);
                 if (ch == null || !ch.isActive()) {
-                    ChannelFuture future = bootstrap.connect(boundAddress).sync();
+                    ChannelFuture future = reportBootstrap.connect(boundAddress).sync();
                     reportChannelPool.set(i, future.channel());
                 }
             }
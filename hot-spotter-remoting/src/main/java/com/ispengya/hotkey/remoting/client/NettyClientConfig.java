@@ -1,5 +1,8 @@
 package com.ispengya.hotkey.remoting.client;
 
+import com.ispengya.hotkey.remoting.codec.PayloadCompression;
+import com.ispengya.hotkey.remoting.transport.TransportType;
+
 import java.net.InetSocketAddress;
 import java.util.List;
 
@@ -39,6 +42,21 @@ public final class NettyClientConfig {
      */
     private final int reportPoolSize;
 
+    /**
+     * 每条连接请求的 key 字符串表容量，0 表示不启用。
+     */
+    private final int keyTableSize;
+
+    /**
+     * 发送负载的压缩策略。
+     */
+    private final PayloadCompression compression;
+
+    /**
+     * IO 传输方式。
+     */
+    private final TransportType transport;
+
     /**
      * 构造 Netty 客户端配置。
      */
@@ -56,6 +74,45 @@ public final class NettyClientConfig {
                              int pushPoolSize,
                              int reportPoolSize,
                              String appName) {
+        this(serverAddresses, connectTimeoutMillis, workerThreads, maxFrameLength,
+                pushPoolSize, reportPoolSize, appName, 0);
+    }
+
+    public NettyClientConfig(List<InetSocketAddress> serverAddresses,
+                             int connectTimeoutMillis,
+                             int workerThreads,
+                             int maxFrameLength,
+                             int pushPoolSize,
+                             int reportPoolSize,
+                             String appName,
+                             int keyTableSize) {
+        this(serverAddresses, connectTimeoutMillis, workerThreads, maxFrameLength,
+                pushPoolSize, reportPoolSize, appName, keyTableSize, PayloadCompression.disabled());
+    }
+
+    public NettyClientConfig(List<InetSocketAddress> serverAddresses,
+                             int connectTimeoutMillis,
+                             int workerThreads,
+                             int maxFrameLength,
+                             int pushPoolSize,
+                             int reportPoolSize,
+                             String appName,
+                             int keyTableSize,
+                             PayloadCompression compression) {
+        this(serverAddresses, connectTimeoutMillis, workerThreads, maxFrameLength,
+                pushPoolSize, reportPoolSize, appName, keyTableSize, compression, TransportType.NIO);
+    }
+
+    public NettyClientConfig(List<InetSocketAddress> serverAddresses,
+                             int connectTimeoutMillis,
+                             int workerThreads,
+                             int maxFrameLength,
+                             int pushPoolSize,
+                             int reportPoolSize,
+                             String appName,
+                             int keyTableSize,
+                             PayloadCompression compression,
+                             TransportType transport) {
         this.serverAddresses = serverAddresses;
         this.connectTimeoutMillis = connectTimeoutMillis;
         this.workerThreads = workerThreads;
@@ -63,6 +120,9 @@ public final class NettyClientConfig {
         this.pushPoolSize = pushPoolSize;
         this.reportPoolSize = reportPoolSize;
         this.appName = appName;
+        this.keyTableSize = Math.max(0, keyTableSize);
+        this.compression = compression == null ? PayloadCompression.disabled() : compression;
+        this.transport = transport == null ? TransportType.NIO : transport;
     }
 
     public List<InetSocketAddress> getServerAddresses() {
@@ -92,4 +152,16 @@ public final class NettyClientConfig {
     public String getAppName() {
         return appName;
     }
+
+    public int getKeyTableSize() {
+        return keyTableSize;
+    }
+
+    public PayloadCompression getCompression() {
+        return compression;
+    }
+
+    public TransportType getTransport() {
+        return transport;
+    }
 }
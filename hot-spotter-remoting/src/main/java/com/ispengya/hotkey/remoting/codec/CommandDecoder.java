@@ -3,13 +3,41 @@ package com.ispengya.hotkey.remoting.codec;
 import com.ispengya.hotkey.remoting.protocol.Command;
 import com.ispengya.hotkey.remoting.protocol.CommandType;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
 
+/**
+ * CommandDecoder 按长度字段切分帧并解析为 {@link Command}。
+ *
+ * <p>retainPayload 为 true 时不拷贝负载：帧本身（接收缓冲区的 retained 切片）越过帧头后直接作为命令的
+ * {@link Command#getPayloadBuffer()}，由命令持有引用，入站处理器返回后释放。适用于在 IO 线程内同步处理命令的一端；
+ * 需要把命令交给其他线程的一端（例如客户端的同步请求）应使用默认的拷贝模式。</p>
+ *
+ * <p>带 {@link CommandEncoder#FLAG_COMPRESSED} 的帧按其中的算法 ID 解压，原始长度同样受 maxFrameLength 限制；
+ * 保留模式下解压结果写入新分配的缓冲区并由命令持有，拷贝模式下直接解压到负载字节数组。</p>
+ */
 public class CommandDecoder extends LengthFieldBasedFrameDecoder {
 
+    private final int maxFrameLength;
+    private final boolean retainPayload;
+
     public CommandDecoder(int maxFrameLength) {
+        this(maxFrameLength, false);
+    }
+
+    /**
+     * 构造解码器。
+     *
+     * @param maxFrameLength 单帧最大长度
+     * @param retainPayload  是否以 ByteBuf 切片持有负载而不拷贝
+     */
+    public CommandDecoder(int maxFrameLength, boolean retainPayload) {
         super(maxFrameLength, 0, 4, 0, 4);
+        this.maxFrameLength = maxFrameLength;
+        this.retainPayload = retainPayload;
     }
 
     @Override
@@ -19,19 +47,60 @@ public class CommandDecoder extends LengthFieldBasedFrameDecoder {
             return null;
         }
 
+        boolean handedOver = false;
         try {
-            int typeOrdinal = frame.readInt();
-            CommandType type = CommandType.values()[typeOrdinal];
+            int typeField = frame.readInt();
+            CommandType type = CommandType.values()[typeField & CommandEncoder.TYPE_MASK];
 
             long requestId = frame.readLong();
 
+            if ((typeField & CommandEncoder.FLAG_COMPRESSED) != 0) {
+                return decompress(ctx, type, requestId, frame);
+            }
+
+            if (retainPayload) {
+                handedOver = true;
+                return Command.ofBuffer(type, requestId, frame);
+            }
+
             int payloadLength = frame.readableBytes();
             byte[] payload = new byte[payloadLength];
             frame.readBytes(payload);
 
             return new Command(type, requestId, payload);
         } finally {
-            frame.release();
+            if (!handedOver) {
+                frame.release();
+            }
+        }
+    }
+
+    private Command decompress(ChannelHandlerContext ctx, CommandType type, long requestId, ByteBuf frame) {
+        if (frame.readableBytes() < CommandEncoder.COMPRESSION_HEADER_LENGTH) {
+            throw new CorruptedFrameException("Compressed frame too short: " + frame.readableBytes());
+        }
+        int codecId = frame.readByte();
+        int originalLength = frame.readInt();
+        PayloadCodec codec = PayloadCompression.codecForId(codecId);
+        if (codec == null) {
+            throw new CorruptedFrameException("Unknown payload codec id: " + codecId);
+        }
+        if (originalLength < 0 || originalLength > maxFrameLength) {
+            throw new TooLongFrameException("Decompressed payload length " + originalLength
+                    + " exceeds max frame length " + maxFrameLength);
+        }
+        if (!retainPayload) {
+            byte[] payload = new byte[originalLength];
+            codec.decompress(frame, Unpooled.wrappedBuffer(payload).writerIndex(0), originalLength);
+            return new Command(type, requestId, payload);
+        }
+        ByteBuf payload = ctx.alloc().heapBuffer(originalLength);
+        try {
+            codec.decompress(frame, payload, originalLength);
+            return Command.ofBuffer(type, requestId, payload);
+        } catch (RuntimeException e) {
+            payload.release();
+            throw e;
         }
     }
 }
@@ -2,21 +2,122 @@ package com.ispengya.hotkey.remoting.codec;
 
 import com.ispengya.hotkey.remoting.protocol.Command;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+/**
+ * CommandEncoder 将 {@link Command} 编码为帧：4 字节长度、4 字节类型字段、8 字节请求 ID，之后是负载。
+ *
+ * <p>类型字段低 24 位为命令类型，高 8 位为标志位。负载达到 {@link PayloadCompression} 中所属命令类型的阈值时
+ * 置 {@link #FLAG_COMPRESSED}，负载改为 1 字节算法 ID、4 字节原始长度与压缩数据；其余帧与未启用压缩时完全相同。</p>
+ */
 public class CommandEncoder extends MessageToByteEncoder<Command> {
 
+    /**
+     * 帧头中长度字段之后的固定部分：命令类型（int）与请求 ID（long）。
+     */
+    private static final int HEADER_LENGTH = 4 + 8;
+
+    /**
+     * 压缩负载前的算法 ID（byte）与原始长度（int）。
+     */
+    static final int COMPRESSION_HEADER_LENGTH = 1 + 4;
+
+    /**
+     * 类型字段中的命令类型部分。
+     */
+    static final int TYPE_MASK = 0x00FFFFFF;
+
+    /**
+     * 类型字段中的压缩标志。
+     */
+    static final int FLAG_COMPRESSED = 1 << 24;
+
+    private final PayloadCompression compression;
+
+    public CommandEncoder() {
+        this(PayloadCompression.disabled());
+    }
+
+    public CommandEncoder(PayloadCompression compression) {
+        this.compression = compression == null ? PayloadCompression.disabled() : compression;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Command msg, ByteBuf out) {
-        byte[] payload = msg.getPayload();
-        int payloadLength = payload == null ? 0 : payload.length;
+        if (compression.shouldCompress(msg.getType(), msg.getPayloadLength()) && writeCompressedFrame(msg, out)) {
+            return;
+        }
+        writeFrame(msg, out);
+    }
 
-        out.writeInt(4 + 8 + payloadLength);
+    /**
+     * 写入压缩帧；压缩后不比原始负载小时回退写入位置并返回 false。
+     */
+    private boolean writeCompressedFrame(Command msg, ByteBuf out) {
+        ByteBuf payload = msg.getPayloadBuffer();
+        if (payload == null) {
+            payload = Unpooled.wrappedBuffer(msg.getPayload());
+        }
+        int originalLength = payload.readableBytes();
+        PayloadCodec codec = compression.getCodec();
+        int start = out.writerIndex();
+        out.writeInt(0);
+        out.writeInt(msg.getType().ordinal() | FLAG_COMPRESSED);
+        out.writeLong(msg.getRequestId());
+        out.writeByte(codec.getId());
+        out.writeInt(originalLength);
+        codec.compress(payload, out);
+        int bodyLength = out.writerIndex() - start - 4;
+        if (bodyLength - HEADER_LENGTH - COMPRESSION_HEADER_LENGTH >= originalLength) {
+            out.writerIndex(start);
+            return false;
+        }
+        out.setInt(start, bodyLength);
+        return true;
+    }
+
+    /**
+     * 将命令编码为一个完整帧，写入新分配的 direct 缓冲区。
+     *
+     * <p>用于一次编码、多次发送的广播场景：写入 Channel 的 {@link ByteBuf} 不经过本编码器，也不压缩。</p>
+     *
+     * @param allocator 缓冲区分配器，通常为池化分配器
+     * @param command   命令
+     * @return 引用计数为 1 的帧缓冲区，由调用方负责释放
+     */
+    public static ByteBuf encodeFrame(ByteBufAllocator allocator, Command command) {
+        ByteBuf frame = allocator.directBuffer(frameLength(command));
+        try {
+            writeFrame(command, frame);
+            return frame;
+        } catch (RuntimeException e) {
+            frame.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 命令编码后的完整帧长度（包括 4 字节长度字段）。
+     */
+    public static int frameLength(Command command) {
+        return 4 + HEADER_LENGTH + command.getPayloadLength();
+    }
+
+    private static void writeFrame(Command msg, ByteBuf out) {
+        out.writeInt(HEADER_LENGTH + msg.getPayloadLength());
 
         out.writeInt(msg.getType().ordinal());
         out.writeLong(msg.getRequestId());
 
+        ByteBuf payloadBuffer = msg.getPayloadBuffer();
+        if (payloadBuffer != null) {
+            out.writeBytes(payloadBuffer, payloadBuffer.readerIndex(), payloadBuffer.readableBytes());
+            return;
+        }
+        byte[] payload = msg.getPayload();
         if (payload != null) {
             out.writeBytes(payload);
         }
@@ -0,0 +1,114 @@
+package com.ispengya.hotkey.remoting.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DeflatePayloadCodec 基于 JDK {@link Deflater} / {@link Inflater} 的内置压缩实现，不依赖第三方库。
+ *
+ * <p>使用最快的压缩级别、不写 zlib 头尾；Deflater 与 Inflater 按线程复用，避免每帧创建本地 zstream。</p>
+ */
+public final class DeflatePayloadCodec implements PayloadCodec {
+
+    public static final String NAME = "deflate";
+
+    public static final byte ID = 1;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final FastThreadLocal<Deflater> DEFLATER = new FastThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED, true);
+        }
+    };
+
+    private static final FastThreadLocal<Inflater> INFLATER = new FastThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(array(in), offset(in), in.readableBytes());
+        deflater.finish();
+        byte[] chunk = out.hasArray() ? null : new byte[CHUNK_SIZE];
+        while (!deflater.finished()) {
+            if (chunk == null) {
+                out.ensureWritable(CHUNK_SIZE);
+                int writerIndex = out.writerIndex();
+                int n = deflater.deflate(out.array(), out.arrayOffset() + writerIndex, out.writableBytes());
+                out.writerIndex(writerIndex + n);
+            } else {
+                int n = deflater.deflate(chunk);
+                out.writeBytes(chunk, 0, n);
+            }
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int originalLength) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(array(in), offset(in), in.readableBytes());
+        out.ensureWritable(originalLength);
+        byte[] chunk = out.hasArray() ? null : new byte[Math.min(CHUNK_SIZE, Math.max(1, originalLength))];
+        int total = 0;
+        try {
+            while (!inflater.finished() && total < originalLength) {
+                int n;
+                if (chunk == null) {
+                    int writerIndex = out.writerIndex();
+                    n = inflater.inflate(out.array(), out.arrayOffset() + writerIndex,
+                            Math.min(out.writableBytes(), originalLength - total));
+                    out.writerIndex(writerIndex + n);
+                } else {
+                    n = inflater.inflate(chunk, 0, Math.min(chunk.length, originalLength - total));
+                    out.writeBytes(chunk, 0, n);
+                }
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += n;
+            }
+            if (total == originalLength && !inflater.finished()) {
+                // 已写满 originalLength，再解出任何数据都说明实际长度超出声明
+                total += inflater.inflate(new byte[1]);
+            }
+        } catch (DataFormatException e) {
+            throw new CorruptedFrameException("Malformed deflate payload", e);
+        }
+        if (total != originalLength || !inflater.finished()) {
+            throw new CorruptedFrameException("Deflate payload length mismatch, expected " + originalLength
+                    + " but got " + (inflater.finished() ? String.valueOf(total) : "more than " + total));
+        }
+    }
+
+    private static byte[] array(ByteBuf in) {
+        return in.hasArray() ? in.array() : ByteBufUtil.getBytes(in);
+    }
+
+    private static int offset(ByteBuf in) {
+        return in.hasArray() ? in.arrayOffset() + in.readerIndex() : 0;
+    }
+}
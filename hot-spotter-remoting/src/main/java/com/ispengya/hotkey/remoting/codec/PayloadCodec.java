@@ -0,0 +1,43 @@
+package com.ispengya.hotkey.remoting.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * PayloadCodec 是命令负载的压缩算法扩展点。
+ *
+ * <p>内置 {@link DeflatePayloadCodec}；其他实现（例如 LZ4）通过
+ * {@code META-INF/services/com.ispengya.hotkey.remoting.codec.PayloadCodec} 注册，
+ * 按 {@link #getName()} 在配置中选用，按 {@link #getId()} 写入帧中供对端识别。
+ * 两端都需要注册同一个实现，ID 不能与内置实现冲突。</p>
+ *
+ * <p>实现需要是线程安全的，编解码在各连接的 IO 线程中并发调用。</p>
+ */
+public interface PayloadCodec {
+
+    /**
+     * 配置中使用的名称。
+     */
+    String getName();
+
+    /**
+     * 写入帧中的算法 ID，取值 1 ~ 127。
+     */
+    byte getId();
+
+    /**
+     * 压缩 in 的可读区域并写入 out。
+     *
+     * @param in  原始负载，不修改其读写索引
+     * @param out 输出缓冲区
+     */
+    void compress(ByteBuf in, ByteBuf out);
+
+    /**
+     * 解压 in 的可读区域并写入 out。
+     *
+     * @param in             压缩数据，不修改其读写索引
+     * @param out            输出缓冲区
+     * @param originalLength 原始负载长度，解压结果与之不一致时抛出异常
+     */
+    void decompress(ByteBuf in, ByteBuf out, int originalLength);
+}
@@ -0,0 +1,134 @@
+package com.ispengya.hotkey.remoting.codec;
+
+import com.ispengya.hotkey.remoting.protocol.CommandType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * PayloadCompression 描述发送端的负载压缩策略：使用的 {@link PayloadCodec} 与按命令类型的压缩阈值。
+ *
+ * <p>负载字节数达到所属命令类型的阈值时才压缩，阈值小于等于 0 表示该类型不压缩；
+ * 小帧不经过压缩路径，编码与未启用压缩时完全相同。压缩后不比原始负载小的帧按原样发送。</p>
+ *
+ * <p>同时维护压缩算法注册表：内置 {@link DeflatePayloadCodec}，其余实现通过 {@link ServiceLoader} 加载，
+ * 解码端按帧中的算法 ID 查找，与本端是否启用压缩无关。</p>
+ */
+public final class PayloadCompression {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadCompression.class);
+
+    /**
+     * 不压缩时的算法名。
+     */
+    public static final String NONE = "none";
+
+    private static final PayloadCompression DISABLED = new PayloadCompression(null, 0, null);
+
+    private static final Map<String, PayloadCodec> CODECS_BY_NAME = new HashMap<>();
+    private static final PayloadCodec[] CODECS_BY_ID = new PayloadCodec[128];
+
+    static {
+        register(new DeflatePayloadCodec());
+        for (PayloadCodec codec : ServiceLoader.load(PayloadCodec.class)) {
+            if (codec == null || codec.getName() == null) {
+                continue;
+            }
+            register(codec);
+            if (log.isInfoEnabled()) {
+                log.info("Loaded payload codec. name={}, id={}, class={}",
+                        codec.getName(), codec.getId(), codec.getClass().getName());
+            }
+        }
+    }
+
+    private final PayloadCodec codec;
+    private final int[] thresholds = new int[CommandType.values().length];
+
+    private PayloadCompression(PayloadCodec codec, int defaultThreshold, Map<CommandType, Integer> typeThresholds) {
+        this.codec = codec;
+        for (CommandType type : CommandType.values()) {
+            Integer threshold = typeThresholds == null ? null : typeThresholds.get(type);
+            thresholds[type.ordinal()] = threshold == null ? defaultThreshold : threshold;
+        }
+    }
+
+    /**
+     * 不压缩的策略。
+     */
+    public static PayloadCompression disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * 按算法名创建压缩策略。
+     *
+     * @param codecName        算法名，null、空串或 {@value #NONE} 表示不压缩；未知算法记录告警后不压缩
+     * @param defaultThreshold 默认压缩阈值（字节）
+     * @param typeThresholds   按命令类型覆盖的阈值，可以为 null
+     * @return 压缩策略
+     */
+    public static PayloadCompression of(String codecName,
+                                        int defaultThreshold,
+                                        Map<CommandType, Integer> typeThresholds) {
+        if (codecName == null || codecName.trim().isEmpty() || NONE.equalsIgnoreCase(codecName.trim())) {
+            return DISABLED;
+        }
+        PayloadCodec codec = CODECS_BY_NAME.get(codecName.trim().toLowerCase(Locale.ROOT));
+        if (codec == null) {
+            log.warn("Unknown payload codec {}, compression disabled", codecName);
+            return DISABLED;
+        }
+        Map<CommandType, Integer> thresholds = new EnumMap<>(CommandType.class);
+        if (typeThresholds != null) {
+            thresholds.putAll(typeThresholds);
+        }
+        return new PayloadCompression(codec, defaultThreshold, thresholds);
+    }
+
+    /**
+     * 按算法 ID 查找已注册的压缩算法。
+     *
+     * @return 未注册时返回 null
+     */
+    public static PayloadCodec codecForId(int id) {
+        return id > 0 && id < CODECS_BY_ID.length ? CODECS_BY_ID[id] : null;
+    }
+
+    /**
+     * 负载是否需要压缩。
+     */
+    public boolean shouldCompress(CommandType type, int payloadLength) {
+        if (codec == null || payloadLength <= 0) {
+            return false;
+        }
+        int threshold = thresholds[type.ordinal()];
+        return threshold > 0 && payloadLength >= threshold;
+    }
+
+    /**
+     * 使用的压缩算法，不压缩时为 null。
+     */
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    public int getThreshold(CommandType type) {
+        return thresholds[type.ordinal()];
+    }
+
+    private static void register(PayloadCodec codec) {
+        int id = codec.getId();
+        if (id <= 0 || id >= CODECS_BY_ID.length) {
+            log.warn("Ignore payload codec {} with invalid id {}", codec.getName(), id);
+            return;
+        }
+        CODECS_BY_NAME.put(codec.getName().toLowerCase(Locale.ROOT), codec);
+        CODECS_BY_ID[id] = codec;
+    }
+}
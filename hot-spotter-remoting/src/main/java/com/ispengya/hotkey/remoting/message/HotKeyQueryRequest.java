@@ -13,6 +13,11 @@ public class HotKeyQueryRequest implements Serializable {
 
     private Map<String, Long> lastVersions;
 
+    /**
+     * 客户端使用的序列化格式名称，服务端按该格式应答；为 null 时使用服务端默认格式。
+     */
+    private String serializer;
+
     /**
      * 无参构造函数，便于序列化框架使用。
      */
@@ -30,4 +35,12 @@ public class HotKeyQueryRequest implements Serializable {
     public void setLastVersions(Map<String, Long> lastVersions) {
         this.lastVersions = lastVersions;
     }
+
+    public String getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(String serializer) {
+        this.serializer = serializer;
+    }
 }
@@ -7,8 +7,10 @@ import java.util.Set;
 /**
  * HotKeyViewMessage 表示 server 端计算出的热 key 视图。
  *
- * <p>CLI 周期性向 server 端发起 HOT_KEY_QUERY 请求后，server 将当前版本的
- * 热 key 集合封装在该消息中返回。</p>
+ * <p>CLI 周期性向 server 端发起 HOT_KEY_QUERY 请求后，server 按客户端上报的版本
+ * 返回各应用的增量变化（addedKeys / removedKeys），客户端版本过旧或无法增量时
+ * 返回完整集合（full 为 true，hotKeys 为全集）。增量条目带有其所基于的版本 baseVersion，
+ * 客户端视图恰好处于该版本时才能直接应用，否则说明中间有遗漏，需要重新拉取。</p>
  */
 public class HotKeyViewMessage implements Serializable {
 
@@ -18,12 +20,48 @@ public class HotKeyViewMessage implements Serializable {
         private String addedKey;
         private String removedKey;
 
+        /**
+         * 为 true 时 hotKeys 是该版本的完整集合，否则本条目是相对客户端版本的增量。
+         */
+        private boolean full;
+        private Set<String> addedKeys;
+        private Set<String> removedKeys;
+
+        /**
+         * 增量条目所基于的版本，即本条目覆盖的变更区间 (baseVersion, version]；0 表示未知。
+         */
+        private long baseVersion;
+
         public ViewEntry() {
         }
 
+        /**
+         * 构造完整快照条目。
+         */
         public ViewEntry(long version, Set<String> hotKeys) {
             this.version = version;
             this.hotKeys = hotKeys;
+            this.full = true;
+        }
+
+        /**
+         * 构造基础版本未知的增量条目。
+         */
+        public ViewEntry(long version, Set<String> addedKeys, Set<String> removedKeys) {
+            this(0L, version, addedKeys, removedKeys);
+        }
+
+        /**
+         * 构造增量条目。
+         *
+         * @param baseVersion 增量所基于的版本
+         * @param version     应用增量后的版本
+         */
+        public ViewEntry(long baseVersion, long version, Set<String> addedKeys, Set<String> removedKeys) {
+            this.baseVersion = baseVersion;
+            this.version = version;
+            this.addedKeys = addedKeys;
+            this.removedKeys = removedKeys;
         }
 
         public long getVersion() {
@@ -57,6 +95,38 @@ public class HotKeyViewMessage implements Serializable {
         public void setRemovedKey(String removedKey) {
             this.removedKey = removedKey;
         }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        public void setFull(boolean full) {
+            this.full = full;
+        }
+
+        public Set<String> getAddedKeys() {
+            return addedKeys;
+        }
+
+        public void setAddedKeys(Set<String> addedKeys) {
+            this.addedKeys = addedKeys;
+        }
+
+        public Set<String> getRemovedKeys() {
+            return removedKeys;
+        }
+
+        public void setRemovedKeys(Set<String> removedKeys) {
+            this.removedKeys = removedKeys;
+        }
+
+        public long getBaseVersion() {
+            return baseVersion;
+        }
+
+        public void setBaseVersion(long baseVersion) {
+            this.baseVersion = baseVersion;
+        }
     }
 
     /**
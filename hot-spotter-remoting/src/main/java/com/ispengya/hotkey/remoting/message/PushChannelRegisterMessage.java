@@ -6,6 +6,11 @@ public class PushChannelRegisterMessage implements Serializable {
 
     private String appName;
 
+    /**
+     * 客户端使用的序列化格式名称，服务端按该格式推送；为 null 时使用服务端默认格式。
+     */
+    private String serializer;
+
     public PushChannelRegisterMessage() {
     }
 
@@ -20,4 +25,12 @@ public class PushChannelRegisterMessage implements Serializable {
     public void setAppName(String appName) {
         this.appName = appName;
     }
+
+    public String getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(String serializer) {
+        this.serializer = serializer;
+    }
 }
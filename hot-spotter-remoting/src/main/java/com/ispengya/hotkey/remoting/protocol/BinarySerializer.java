@@ -0,0 +1,635 @@
+package com.ispengya.hotkey.remoting.protocol;
+
+import com.ispengya.hotkey.remoting.message.AccessReportMessage;
+import com.ispengya.hotkey.remoting.message.HotKeyViewMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BinarySerializer 为访问上报与热 key 视图这两类高频消息提供紧凑的二进制编码。
+ *
+ * <p>负载以 1 字节类型标记和 1 字节版本号开头，之后长度、个数均为 varint，
+ * 有符号整数先做 zigzag 变换，字符串为 varint 字节长度 + UTF-8 字节，集合 / Map 的个数加一写入，0 表示 null。
+ * 同一集合内的 key 做前缀压缩：每个 key 写入与前一个 key 相同的 UTF-8 前缀字节数，再写剩余字节，
+ * 业务 key 通常共享较长的前缀（如 item:sku:），这部分不再重复编码。
+ * 类型标记取值与 JSON（'{'）和 JDK 序列化（0xAC）的首字节都不冲突，接收方可以据此识别格式，
+ * 见 {@link NegotiatingSerializer}。</p>
+ *
+ * <p>连接协商了 key 字符串表时，访问上报使用带表的编码（{@link #serialize(AccessReportMessage, ClientKeyTable)}）：
+ * 版本号之后是 varint 上报序号，之后每个 key 只写 varint 引用，首次出现的 key 额外带上字符串。
+ * 该编码依赖连接状态，只能通过 {@link #deserialize(ByteBuf, ServerKeyTable)} 按序解码。</p>
+ *
+ * <p>其他消息类型以及不带类型标记的负载交给 fallback 序列化器处理。
+ * 解码直接按下标读取 {@link ByteBuf}，对 direct 内存同样不先拷贝整个负载。</p>
+ */
+public class BinarySerializer implements Serializer {
+
+    public static final String NAME = "binary";
+
+    static final byte TAG_ACCESS_REPORT = 0x01;
+    static final byte TAG_HOT_KEY_VIEW = 0x02;
+    static final byte TAG_ACCESS_REPORT_INDEXED = 0x03;
+    static final byte VERSION = 1;
+
+    private static final int FLAG_PRESENT = 1;
+    private static final int FLAG_FULL = 1 << 1;
+    private static final int FLAG_ADDED_KEY = 1 << 2;
+    private static final int FLAG_REMOVED_KEY = 1 << 3;
+    private static final int FLAG_BASE_VERSION = 1 << 4;
+
+    private final Serializer fallback;
+
+    public BinarySerializer() {
+        this(new Fastjson2Serializer());
+    }
+
+    public BinarySerializer(Serializer fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * 负载是否为本序列化器的二进制格式。
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length >= 2 && isTag(bytes[0]);
+    }
+
+    /**
+     * ByteBuf 的可读区域是否为本序列化器的二进制格式。
+     */
+    public static boolean isBinary(ByteBuf buffer) {
+        if (buffer == null || buffer.readableBytes() < 2) {
+            return false;
+        }
+        return isTag(buffer.getByte(buffer.readerIndex()));
+    }
+
+    /**
+     * ByteBuf 的可读区域是否为带 key 表的访问上报。
+     */
+    public static boolean isIndexedReport(ByteBuf buffer) {
+        return buffer != null && buffer.readableBytes() >= 2
+                && buffer.getByte(buffer.readerIndex()) == TAG_ACCESS_REPORT_INDEXED;
+    }
+
+    private static boolean isTag(byte tag) {
+        return tag == TAG_ACCESS_REPORT || tag == TAG_HOT_KEY_VIEW || tag == TAG_ACCESS_REPORT_INDEXED;
+    }
+
+    /**
+     * 使用连接的 key 表编码访问上报，必须在该连接的 EventLoop 中调用并按调用顺序写出。
+     *
+     * @param message 访问上报
+     * @param table   连接的 key 表
+     * @return 负载
+     */
+    public static byte[] serialize(AccessReportMessage message, ClientKeyTable table) {
+        Writer out = new Writer(256);
+        out.writeByte(TAG_ACCESS_REPORT_INDEXED);
+        out.writeByte(VERSION);
+        out.writeVarInt(table.nextSequence());
+        out.writeString(message.getAppName());
+        out.writeVarLong(zigzag(message.getTimestamp()));
+        Map<String, Integer> counts = message.getKeyAccessCounts();
+        if (counts == null) {
+            out.writeVarInt(0);
+            return out.toByteArray();
+        }
+        int size = 0;
+        for (String key : counts.keySet()) {
+            if (key != null) {
+                size++;
+            }
+        }
+        out.writeVarInt(size + 1);
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            String key = entry.getKey();
+            if (key == null) {
+                continue;
+            }
+            int reference = table.reference(key);
+            out.writeVarInt(reference);
+            if ((reference & 1) != 0) {
+                out.writeString(key);
+            }
+            Integer count = entry.getValue();
+            out.writeVarInt(zigzag(count == null ? 0 : count));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 使用连接的 key 表解码带表的访问上报，必须按到达顺序在该连接的 IO 线程中调用。
+     *
+     * @param buffer 负载
+     * @param table  连接的 key 表
+     * @return 访问上报
+     * @throws IllegalArgumentException 序号不连续、引用未定义的 ID 或负载损坏，此时 key 表已不可信
+     */
+    public static AccessReportMessage deserialize(ByteBuf buffer, ServerKeyTable table) {
+        int index = buffer.readerIndex();
+        byte version = buffer.getByte(index + 1);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary payload version " + version);
+        }
+        Reader in = new Reader(buffer, index + 2, buffer.writerIndex());
+        table.checkSequence(in.readVarInt());
+        AccessReportMessage message = new AccessReportMessage();
+        message.setAppName(in.readString());
+        message.setTimestamp(unzigzag(in.readVarLong()));
+        // 每项至少包含 1 字节引用与 1 字节计数
+        int size = in.readCount(2);
+        if (size >= 0) {
+            Map<String, Integer> counts = new HashMap<>(capacityFor(size));
+            for (int i = 0; i < size; i++) {
+                int reference = in.readVarInt();
+                int id = reference >>> 1;
+                String key;
+                if ((reference & 1) != 0) {
+                    key = in.readString();
+                    table.define(id, key);
+                } else {
+                    key = table.get(id);
+                }
+                counts.put(key, unzigzag(in.readVarInt()));
+            }
+            message.setKeyAccessCounts(counts);
+        }
+        return message;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (value instanceof AccessReportMessage) {
+            Writer out = new Writer(256);
+            out.writeByte(TAG_ACCESS_REPORT);
+            out.writeByte(VERSION);
+            writeAccessReport(out, (AccessReportMessage) value);
+            return out.toByteArray();
+        }
+        if (value instanceof HotKeyViewMessage) {
+            Writer out = new Writer(128);
+            out.writeByte(TAG_HOT_KEY_VIEW);
+            out.writeByte(VERSION);
+            writeHotKeyView(out, (HotKeyViewMessage) value);
+            return out.toByteArray();
+        }
+        return fallback.serialize(value);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) {
+        if (!isBinary(bytes)) {
+            return fallback.deserialize(bytes, type);
+        }
+        return decode(Unpooled.wrappedBuffer(bytes), type);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf buffer, Class<T> type) {
+        if (!isBinary(buffer)) {
+            return fallback.deserialize(buffer, type);
+        }
+        return decode(buffer, type);
+    }
+
+    private static <T> T decode(ByteBuf buffer, Class<T> type) {
+        int index = buffer.readerIndex();
+        byte tag = buffer.getByte(index);
+        byte version = buffer.getByte(index + 1);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary payload version " + version);
+        }
+        if (tag == TAG_ACCESS_REPORT_INDEXED) {
+            throw new IllegalArgumentException("Indexed access report requires the connection key table");
+        }
+        Reader in = new Reader(buffer, index + 2, buffer.writerIndex());
+        Object value;
+        if (tag == TAG_ACCESS_REPORT) {
+            value = readAccessReport(in);
+        } else {
+            value = readHotKeyView(in);
+        }
+        return type.cast(value);
+    }
+
+    private static void writeAccessReport(Writer out, AccessReportMessage message) {
+        out.writeString(message.getAppName());
+        out.writeVarLong(zigzag(message.getTimestamp()));
+        Map<String, Integer> counts = message.getKeyAccessCounts();
+        if (counts == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(counts.size() + 1);
+        out.resetKeys();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Integer count = entry.getValue();
+            out.writeKey(entry.getKey());
+            out.writeVarInt(zigzag(count == null ? 0 : count));
+        }
+    }
+
+    private static AccessReportMessage readAccessReport(Reader in) {
+        AccessReportMessage message = new AccessReportMessage();
+        message.setAppName(in.readString());
+        message.setTimestamp(unzigzag(in.readVarLong()));
+        // 每项至少包含 key 的共享前缀长度、后缀长度与计数各 1 字节
+        int size = in.readCount(3);
+        if (size >= 0) {
+            Map<String, Integer> counts = new HashMap<>(capacityFor(size));
+            in.resetKeys();
+            for (int i = 0; i < size; i++) {
+                String key = in.readKey();
+                counts.put(key, unzigzag(in.readVarInt()));
+            }
+            message.setKeyAccessCounts(counts);
+        }
+        return message;
+    }
+
+    private static void writeHotKeyView(Writer out, HotKeyViewMessage message) {
+        out.writeVarLong(zigzag(message.getVersion()));
+        Map<String, HotKeyViewMessage.ViewEntry> views = message.getViews();
+        if (views == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(views.size() + 1);
+        for (Map.Entry<String, HotKeyViewMessage.ViewEntry> view : views.entrySet()) {
+            out.writeString(view.getKey());
+            HotKeyViewMessage.ViewEntry entry = view.getValue();
+            if (entry == null) {
+                out.writeByte(0);
+                continue;
+            }
+            int flags = FLAG_PRESENT;
+            if (entry.isFull()) {
+                flags |= FLAG_FULL;
+            }
+            if (entry.getAddedKey() != null) {
+                flags |= FLAG_ADDED_KEY;
+            }
+            if (entry.getRemovedKey() != null) {
+                flags |= FLAG_REMOVED_KEY;
+            }
+            if (entry.getBaseVersion() != 0L) {
+                flags |= FLAG_BASE_VERSION;
+            }
+            out.writeByte(flags);
+            out.writeVarLong(zigzag(entry.getVersion()));
+            if ((flags & FLAG_BASE_VERSION) != 0) {
+                out.writeVarLong(zigzag(entry.getBaseVersion()));
+            }
+            writeKeys(out, entry.getHotKeys());
+            writeKeys(out, entry.getAddedKeys());
+            writeKeys(out, entry.getRemovedKeys());
+            if ((flags & FLAG_ADDED_KEY) != 0) {
+                out.writeString(entry.getAddedKey());
+            }
+            if ((flags & FLAG_REMOVED_KEY) != 0) {
+                out.writeString(entry.getRemovedKey());
+            }
+        }
+    }
+
+    private static HotKeyViewMessage readHotKeyView(Reader in) {
+        HotKeyViewMessage message = new HotKeyViewMessage();
+        message.setVersion(unzigzag(in.readVarLong()));
+        // 每项至少包含应用名长度与标志各 1 字节
+        int size = in.readCount(2);
+        if (size < 0) {
+            return message;
+        }
+        Map<String, HotKeyViewMessage.ViewEntry> views = new HashMap<>(capacityFor(size));
+        for (int i = 0; i < size; i++) {
+            String appName = in.readString();
+            int flags = in.readByte();
+            if ((flags & FLAG_PRESENT) == 0) {
+                views.put(appName, null);
+                continue;
+            }
+            HotKeyViewMessage.ViewEntry entry = new HotKeyViewMessage.ViewEntry();
+            entry.setFull((flags & FLAG_FULL) != 0);
+            entry.setVersion(unzigzag(in.readVarLong()));
+            if ((flags & FLAG_BASE_VERSION) != 0) {
+                entry.setBaseVersion(unzigzag(in.readVarLong()));
+            }
+            entry.setHotKeys(readKeys(in));
+            entry.setAddedKeys(readKeys(in));
+            entry.setRemovedKeys(readKeys(in));
+            if ((flags & FLAG_ADDED_KEY) != 0) {
+                entry.setAddedKey(in.readString());
+            }
+            if ((flags & FLAG_REMOVED_KEY) != 0) {
+                entry.setRemovedKey(in.readString());
+            }
+            views.put(appName, entry);
+        }
+        message.setViews(views);
+        return message;
+    }
+
+    private static void writeKeys(Writer out, Collection<String> keys) {
+        if (keys == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(keys.size() + 1);
+        out.resetKeys();
+        for (String key : keys) {
+            out.writeKey(key);
+        }
+    }
+
+    private static Set<String> readKeys(Reader in) {
+        int size = in.readCount(2);
+        if (size < 0) {
+            return null;
+        }
+        Set<String> keys = new LinkedHashSet<>(capacityFor(size));
+        in.resetKeys();
+        for (int i = 0; i < size; i++) {
+            keys.add(in.readKey());
+        }
+        return keys;
+    }
+
+    private static int capacityFor(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    /**
+     * 可增长的字节数组写入器。
+     */
+    private static final class Writer {
+
+        private byte[] buf;
+        private int pos;
+
+        /**
+         * 前一个 key 与当前 key 的 UTF-8 字节，用于前缀压缩。
+         */
+        private byte[] prevKey = new byte[64];
+        private int prevKeyLength;
+        private byte[] keyBytes = new byte[64];
+
+        private Writer(int initialCapacity) {
+            this.buf = new byte[initialCapacity];
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buf[pos++] = (byte) value;
+        }
+
+        private void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0L) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        /**
+         * 写入 varint(UTF-8 字节长度 + 1) 与 UTF-8 字节，null 写为 0。
+         * 纯 ASCII 字符串直接逐字符写入，不创建中间字节数组。
+         */
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            int length = value.length();
+            int start = pos;
+            writeVarInt(length + 1);
+            ensure(length);
+            int bodyStart = pos;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    pos = start;
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(bytes.length + 1);
+                    ensure(bytes.length);
+                    System.arraycopy(bytes, 0, buf, pos, bytes.length);
+                    pos += bytes.length;
+                    return;
+                }
+                buf[bodyStart + i] = (byte) c;
+            }
+            pos = bodyStart + length;
+        }
+
+        private void resetKeys() {
+            prevKeyLength = 0;
+        }
+
+        /**
+         * 写入 varint(与前一个 key 相同的前缀字节数)、varint(剩余字节数 + 1) 与剩余字节，null 的剩余字节数写为 0。
+         */
+        private void writeKey(String key) {
+            if (key == null) {
+                writeVarInt(0);
+                writeVarInt(0);
+                return;
+            }
+            int length = encodeKey(key);
+            int limit = Math.min(length, prevKeyLength);
+            int shared = 0;
+            while (shared < limit && keyBytes[shared] == prevKey[shared]) {
+                shared++;
+            }
+            int suffix = length - shared;
+            writeVarInt(shared);
+            writeVarInt(suffix + 1);
+            ensure(suffix);
+            System.arraycopy(keyBytes, shared, buf, pos, suffix);
+            pos += suffix;
+            byte[] swap = prevKey;
+            prevKey = keyBytes;
+            keyBytes = swap;
+            prevKeyLength = length;
+        }
+
+        /**
+         * 将 key 的 UTF-8 字节写入 keyBytes，返回字节数。
+         */
+        private int encodeKey(String key) {
+            int length = key.length();
+            if (keyBytes.length < length) {
+                keyBytes = new byte[Math.max(length, keyBytes.length << 1)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = key.charAt(i);
+                if (c >= 0x80) {
+                    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                    if (keyBytes.length < bytes.length) {
+                        keyBytes = new byte[bytes.length];
+                    }
+                    System.arraycopy(bytes, 0, keyBytes, 0, bytes.length);
+                    return bytes.length;
+                }
+                keyBytes[i] = (byte) c;
+            }
+            return length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /**
+     * 按下标读取 ByteBuf，不改变其读写索引。
+     */
+    private static final class Reader {
+
+        private final ByteBuf buf;
+        private final int limit;
+        private int pos;
+
+        /**
+         * 前一个 key 的 UTF-8 字节，用于还原前缀压缩的 key。
+         */
+        private byte[] key = new byte[64];
+        private int keyLength;
+
+        private Reader(ByteBuf buf, int pos, int limit) {
+            this.buf = buf;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        private int readByte() {
+            check(1);
+            return buf.getByte(pos++) & 0xFF;
+        }
+
+        private int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /**
+         * 读取加一写入的集合个数，0 表示 null 并返回 -1。
+         *
+         * <p>个数由对端控制，按每项的最小字节数与剩余负载比较后才用于预分配，
+         * 防止几个字节的负载声明出巨大的集合。</p>
+         *
+         * @param minEntryBytes 每项编码后的最小字节数
+         */
+        private int readCount(int minEntryBytes) {
+            int size = readVarInt() - 1;
+            if (size < -1 || size > (limit - pos) / minEntryBytes) {
+                throw new IllegalArgumentException("Collection size " + size + " exceeds binary payload");
+            }
+            return size;
+        }
+
+        private long readVarLong() {
+            long result = 0L;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varlong");
+        }
+
+        private String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            check(length);
+            String value = buf.toString(pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        private void resetKeys() {
+            keyLength = 0;
+        }
+
+        private String readKey() {
+            int shared = readVarInt();
+            int suffix = readVarInt() - 1;
+            if (suffix < 0) {
+                return null;
+            }
+            check(suffix);
+            if (shared < 0 || shared > keyLength) {
+                throw new IllegalArgumentException("Malformed key prefix");
+            }
+            int length = shared + suffix;
+            if (key.length < length) {
+                key = Arrays.copyOf(key, Math.max(length, key.length << 1));
+            }
+            buf.getBytes(pos, key, shared, suffix);
+            pos += suffix;
+            keyLength = length;
+            return new String(key, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void check(int length) {
+            if (length > limit - pos) {
+                throw new IllegalArgumentException("Truncated binary payload");
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ispengya.hotkey.remoting.protocol;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ClientKeyTable 是客户端一条连接上的 key 字符串表。
+ *
+ * <p>key 首次在连接上出现时分配一个 [0, capacity) 内的 ID，连同 key 字符串一起发送；之后只发送 ID。
+ * 表满时淘汰最久未使用的 key 并复用其 ID，新 key 以“定义”的形式发送，服务端直接覆盖该 ID，
+ * 因此服务端表只需按 ID 存放，大小同样不超过 capacity，两端无需额外同步淘汰。</p>
+ *
+ * <p>每个按表编码的上报带一个递增序号，服务端据此发现丢失的帧（例如超过 maxFrameBytes 被丢弃的帧），
+ * 一旦两端表可能不一致，服务端关闭连接，重连后两端重新协商空表。</p>
+ *
+ * <p>非线程安全：只在所属连接的 EventLoop 中使用，保证定义先于引用到达服务端。</p>
+ */
+public final class ClientKeyTable {
+
+    private static final AttributeKey<ClientKeyTable> ATTR = AttributeKey.valueOf("hotkey.clientKeyTable");
+
+    private final int capacity;
+    private final LinkedHashMap<String, Integer> ids;
+    private long evictions;
+    private int sequence;
+
+    public ClientKeyTable(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.ids = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 获取连接上已协商的 key 表。
+     *
+     * @return 未协商或协商失败时返回 null
+     */
+    public static ClientKeyTable of(Channel channel) {
+        return channel.attr(ATTR).get();
+    }
+
+    public static void bind(Channel channel, ClientKeyTable table) {
+        channel.attr(ATTR).set(table);
+    }
+
+    /**
+     * 为 key 取得引用：已在表中时为 id &lt;&lt; 1，新分配时为 (id &lt;&lt; 1) | 1，调用方需随引用发送 key。
+     */
+    int reference(String key) {
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id << 1;
+        }
+        int assigned;
+        if (ids.size() < capacity) {
+            assigned = ids.size();
+        } else {
+            Iterator<Map.Entry<String, Integer>> eldest = ids.entrySet().iterator();
+            assigned = eldest.next().getValue();
+            eldest.remove();
+            evictions++;
+        }
+        ids.put(key, assigned);
+        return (assigned << 1) | 1;
+    }
+
+    /**
+     * 下一个上报的序号，从 0 开始，溢出后回到 0。
+     */
+    int nextSequence() {
+        int current = sequence;
+        sequence = (sequence + 1) & Integer.MAX_VALUE;
+        return current;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
@@ -1,27 +1,52 @@
 package com.ispengya.hotkey.remoting.protocol;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ReferenceCounted;
+
 /**
  * Command 表示一次 remoting 请求或响应的通用命令模型。
  *
  * <p>命令由 {@link CommandType} 和二进制负载 payload 组成，负载由上层
  * 通过 {@code Serializer} 进行序列化和反序列化。</p>
+ *
+ * <p>负载可以是字节数组，也可以是入站帧的 retained {@link ByteBuf} 切片（见 {@link #getPayloadBuffer()}），
+ * 后者不拷贝负载，直接从池化内存反序列化。切片的引用计数由命令持有，{@link #release()} 时释放；
+ * 作为入站消息交给 {@code SimpleChannelInboundHandler} 时，处理器返回后会自动释放，
+ * 因此切片只能在处理器内同步使用。基于字节数组的命令的引用计数操作都是空操作。</p>
  */
-public final class Command {
+public final class Command implements ReferenceCounted {
 
     private final CommandType type;
-
     private final long requestId;
-
-    private final byte[] payload;
+    private byte[] payload;
+    private final ByteBuf payloadBuffer;
 
     public Command(CommandType type, byte[] payload) {
         this(type, 0L, payload);
     }
 
     public Command(CommandType type, long requestId, byte[] payload) {
+        this(type, requestId, payload, null);
+    }
+
+    private Command(CommandType type, long requestId, byte[] payload, ByteBuf payloadBuffer) {
         this.type = type;
         this.requestId = requestId;
         this.payload = payload;
+        this.payloadBuffer = payloadBuffer;
+    }
+
+    /**
+     * 构造以 ByteBuf 为负载的命令，命令接管 payloadBuffer 的一个引用。
+     *
+     * @param type          命令类型
+     * @param requestId     请求 ID
+     * @param payloadBuffer 负载，可读区域即负载内容
+     * @return 命令
+     */
+    public static Command ofBuffer(CommandType type, long requestId, ByteBuf payloadBuffer) {
+        return new Command(type, requestId, null, payloadBuffer);
     }
 
     public CommandType getType() {
@@ -32,7 +57,87 @@ public final class Command {
         return requestId;
     }
 
+    /**
+     * 获取字节数组形式的负载；负载为 ByteBuf 时首次调用会拷贝一份。
+     */
     public byte[] getPayload() {
+        if (payload == null && payloadBuffer != null) {
+            payload = ByteBufUtil.getBytes(payloadBuffer);
+        }
         return payload;
     }
+
+    /**
+     * 获取 ByteBuf 形式的负载，负载为字节数组时返回 null。
+     */
+    public ByteBuf getPayloadBuffer() {
+        return payloadBuffer;
+    }
+
+    /**
+     * 负载字节数。
+     */
+    public int getPayloadLength() {
+        if (payloadBuffer != null) {
+            return payloadBuffer.readableBytes();
+        }
+        return payload == null ? 0 : payload.length;
+    }
+
+    /**
+     * 反序列化负载，负载为 ByteBuf 时直接从缓冲区读取，不经过字节数组。
+     */
+    public <T> T decodePayload(Serializer serializer, Class<T> type) {
+        if (payloadBuffer != null) {
+            return serializer.deserialize(payloadBuffer, type);
+        }
+        return serializer.deserialize(payload, type);
+    }
+
+    @Override
+    public int refCnt() {
+        return payloadBuffer == null ? 1 : payloadBuffer.refCnt();
+    }
+
+    @Override
+    public Command retain() {
+        if (payloadBuffer != null) {
+            payloadBuffer.retain();
+        }
+        return this;
+    }
+
+    @Override
+    public Command retain(int increment) {
+        if (payloadBuffer != null) {
+            payloadBuffer.retain(increment);
+        }
+        return this;
+    }
+
+    @Override
+    public Command touch() {
+        if (payloadBuffer != null) {
+            payloadBuffer.touch();
+        }
+        return this;
+    }
+
+    @Override
+    public Command touch(Object hint) {
+        if (payloadBuffer != null) {
+            payloadBuffer.touch(hint);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return payloadBuffer != null && payloadBuffer.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return payloadBuffer != null && payloadBuffer.release(decrement);
+    }
 }
@@ -8,6 +8,8 @@ package com.ispengya.hotkey.remoting.protocol;
  *     <li>ACCESS_REPORT：CLI 上报访问统计数据</li>
  *     <li>HOT_KEY_QUERY：CLI 拉取当前热 key 视图</li>
  *     <li>ADMIN_PING：管理类心跳或探活请求</li>
+ *     <li>HOT_KEY_RESYNC：服务端因连接积压丢弃了推送，通知 CLI 重新拉取完整视图（无负载）</li>
+ *     <li>KEY_TABLE_NEGOTIATE：连接建立后协商 key 字符串表容量（负载为 4 字节容量）</li>
  * </ul>
  */
 public enum CommandType {
@@ -16,5 +18,7 @@ public enum CommandType {
     HOT_KEY_QUERY,
     ADMIN_PING,
     HOT_KEY_PUSH,
-    PUSH_CHANNEL_REGISTER
+    PUSH_CHANNEL_REGISTER,
+    HOT_KEY_RESYNC,
+    KEY_TABLE_NEGOTIATE
 }
@@ -1,9 +1,17 @@
 package com.ispengya.hotkey.remoting.protocol;
 
 import com.alibaba.fastjson2.JSON;
+import io.netty.buffer.ByteBuf;
 
 public class Fastjson2Serializer implements Serializer {
 
+    public static final String NAME = "json";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
     @Override
     public byte[] serialize(Object value) {
         if (value == null) {
@@ -19,5 +27,17 @@ public class Fastjson2Serializer implements Serializer {
         }
         return JSON.parseObject(bytes, type);
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf buffer, Class<T> type) {
+        if (buffer == null || !buffer.isReadable()) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            return JSON.parseObject(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(),
+                    buffer.readableBytes(), type);
+        }
+        return JSON.parseObject(buffer.nioBuffer(), type);
+    }
 }
 
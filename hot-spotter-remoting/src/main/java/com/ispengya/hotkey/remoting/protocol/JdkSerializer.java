@@ -1,13 +1,63 @@
 package com.ispengya.hotkey.remoting.protocol;
 
+import io.netty.buffer.ByteBuf;
+import com.ispengya.hotkey.remoting.message.AccessReportMessage;
+import com.ispengya.hotkey.remoting.message.HotKeyQueryRequest;
+import com.ispengya.hotkey.remoting.message.HotKeyViewMessage;
+import com.ispengya.hotkey.remoting.message.PushChannelRegisterMessage;
+import io.netty.buffer.ByteBufInputStream;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
+/**
+ * JdkSerializer 使用 Java 原生序列化。
+ *
+ * <p>反序列化只允许 remoting 消息类及其字段使用的 JDK 基础类型与集合，其余类（包括动态代理）
+ * 在加载前拒绝，避免不可信数据借助 classpath 上的 gadget 类执行代码。白名单在
+ * {@code resolveClass} 中实现，与 Java 9 的 ObjectInputFilter 等效，并兼容 Java 8。</p>
+ */
 public class JdkSerializer implements Serializer {
 
+    public static final String NAME = "jdk";
+
+    private static final Set<String> ALLOWED_CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            AccessReportMessage.class.getName(),
+            HotKeyQueryRequest.class.getName(),
+            HotKeyViewMessage.class.getName(),
+            HotKeyViewMessage.ViewEntry.class.getName(),
+            PushChannelRegisterMessage.class.getName(),
+            String.class.getName(),
+            Number.class.getName(),
+            Integer.class.getName(),
+            Long.class.getName(),
+            Boolean.class.getName(),
+            java.util.HashMap.class.getName(),
+            java.util.LinkedHashMap.class.getName(),
+            java.util.HashSet.class.getName(),
+            java.util.LinkedHashSet.class.getName(),
+            "java.util.Collections$EmptyMap",
+            "java.util.Collections$EmptySet",
+            "java.util.Collections$UnmodifiableMap",
+            "java.util.Collections$UnmodifiableSet",
+            "java.util.Collections$UnmodifiableCollection"
+    )));
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
     @Override
     public byte[] serialize(Object value) {
         if (value == null) {
@@ -28,10 +78,45 @@ public class JdkSerializer implements Serializer {
             return null;
         }
         try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
-             ObjectInputStream ois = new ObjectInputStream(bis)) {
+             ObjectInputStream ois = new AllowlistObjectInputStream(bis)) {
             return type.cast(ois.readObject());
         } catch (IOException | ClassNotFoundException e) {
             throw new RuntimeException("Deserializer error", e);
         }
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf buffer, Class<T> type) {
+        if (buffer == null || !buffer.isReadable()) {
+            return null;
+        }
+        try (ObjectInputStream ois = new AllowlistObjectInputStream(new ByteBufInputStream(buffer.duplicate()))) {
+            return type.cast(ois.readObject());
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Deserializer error", e);
+        }
+    }
+
+    /**
+     * 只解析白名单内的类。
+     */
+    private static final class AllowlistObjectInputStream extends ObjectInputStream {
+
+        private AllowlistObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!ALLOWED_CLASSES.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Class not allowed for deserialization");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("Proxy classes not allowed for deserialization");
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package com.ispengya.hotkey.remoting.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * NegotiatingSerializer 让服务端同时接受 JSON 与二进制负载，显式开启时也接受 JDK 序列化负载。
+ *
+ * <p>反序列化时按负载首字节识别格式：二进制格式以类型标记开头（见 {@link BinarySerializer}），
+ * 开启 JDK 格式时以 0xAC 0xED 开头的负载交给 {@link JdkSerializer}（只允许消息类），其余按 JSON 处理。
+ * 未开启时 JDK 负载按 JSON 解析并失败，网络数据不会进入 Java 原生反序列化。
+ * 序列化使用默认格式；需要按客户端协商的格式应答时，通过 {@link #forName(String)} 取得对应的序列化器。</p>
+ */
+public final class NegotiatingSerializer implements Serializer {
+
+    private final Serializer json;
+    private final Serializer jdk;
+    private final Serializer binary;
+    private final Serializer defaultSerializer;
+    private final Map<String, Serializer> byName = new LinkedHashMap<>();
+
+    /**
+     * 构造不接受 JDK 格式的协商序列化器。
+     *
+     * @param defaultName 默认格式名称（json / binary），未知名称按 json 处理
+     */
+    public NegotiatingSerializer(String defaultName) {
+        this(defaultName, false);
+    }
+
+    /**
+     * 构造协商序列化器。
+     *
+     * @param defaultName 默认格式名称（json / jdk / binary），未知或未开启的格式按 json 处理
+     * @param jdkEnabled  是否接受并应答 JDK 序列化格式
+     */
+    public NegotiatingSerializer(String defaultName, boolean jdkEnabled) {
+        this.json = new Fastjson2Serializer();
+        this.jdk = jdkEnabled ? new JdkSerializer() : null;
+        this.binary = new BinarySerializer(json);
+        byName.put(Fastjson2Serializer.NAME, json);
+        if (jdk != null) {
+            byName.put(JdkSerializer.NAME, jdk);
+        }
+        byName.put(BinarySerializer.NAME, binary);
+        Serializer selected = defaultName == null ? null : byName.get(defaultName.trim().toLowerCase());
+        this.defaultSerializer = selected == null ? json : selected;
+    }
+
+    /**
+     * 按名称取得序列化器，名称为 null 或未知时返回默认格式。
+     */
+    public Serializer forName(String name) {
+        if (name == null) {
+            return defaultSerializer;
+        }
+        Serializer serializer = byName.get(name);
+        return serializer == null ? defaultSerializer : serializer;
+    }
+
+    @Override
+    public String getName() {
+        return defaultSerializer.getName();
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        return defaultSerializer.serialize(value);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (BinarySerializer.isBinary(bytes)) {
+            return binary.deserialize(bytes, type);
+        }
+        if (jdk != null && bytes.length >= 2 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED) {
+            return jdk.deserialize(bytes, type);
+        }
+        return json.deserialize(bytes, type);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf buffer, Class<T> type) {
+        if (buffer == null || !buffer.isReadable()) {
+            return null;
+        }
+        if (BinarySerializer.isBinary(buffer)) {
+            return binary.deserialize(buffer, type);
+        }
+        int index = buffer.readerIndex();
+        if (jdk != null && buffer.readableBytes() >= 2 && buffer.getByte(index) == (byte) 0xAC && buffer.getByte(index + 1) == (byte) 0xED) {
+            return jdk.deserialize(buffer, type);
+        }
+        return json.deserialize(buffer, type);
+    }
+}
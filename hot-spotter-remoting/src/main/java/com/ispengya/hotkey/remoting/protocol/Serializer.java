@@ -1,5 +1,11 @@
 package com.ispengya.hotkey.remoting.protocol;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.nio.ByteBuffer;
+
 /**
  * Serializer 定义 remoting 层使用的序列化抽象。
  *
@@ -25,4 +31,45 @@ public interface Serializer {
      * @return 反序列化得到的对象
      */
     <T> T deserialize(byte[] bytes, Class<T> type);
+
+    /**
+     * 从 ByteBuf 的可读区域反序列化，不改变其读写索引。
+     *
+     * <p>默认实现先拷贝为字节数组；实现类可以覆盖以直接读取（包括 direct 内存）。</p>
+     *
+     * @param buffer 负载
+     * @param type   目标类型
+     * @param <T>    目标类型泛型
+     * @return 反序列化得到的对象
+     */
+    default <T> T deserialize(ByteBuf buffer, Class<T> type) {
+        if (buffer == null || !buffer.isReadable()) {
+            return null;
+        }
+        return deserialize(ByteBufUtil.getBytes(buffer), type);
+    }
+
+    /**
+     * 从 ByteBuffer 的剩余区域反序列化，不改变其 position。
+     *
+     * @param buffer 负载
+     * @param type   目标类型
+     * @param <T>    目标类型泛型
+     * @return 反序列化得到的对象
+     */
+    default <T> T deserialize(ByteBuffer buffer, Class<T> type) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return null;
+        }
+        return deserialize(Unpooled.wrappedBuffer(buffer), type);
+    }
+
+    /**
+     * 序列化格式名称，客户端在注册推送连接和查询时携带，服务端按该格式应答。
+     *
+     * @return 格式名称，返回 null 表示不参与协商，服务端使用默认格式
+     */
+    default String getName() {
+        return null;
+    }
 }
@@ -0,0 +1,76 @@
+package com.ispengya.hotkey.remoting.protocol;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.Arrays;
+
+/**
+ * ServerKeyTable 是服务端一条连接上的 key 字符串表，与客户端的 {@link ClientKeyTable} 对应。
+ *
+ * <p>按 ID 存放 key，客户端发送定义时覆盖对应 ID，发送引用时直接返回同一个 String 实例，
+ * 不再为重复出现的 key 创建字符串。数组按需增长，不超过协商的容量。</p>
+ *
+ * <p>上报序号与期望值不一致、引用未定义的 ID 或解码中途失败时，表已不可信，
+ * 调用方应关闭连接，由客户端重连后重新协商。</p>
+ *
+ * <p>只在所属连接的 IO 线程中使用。</p>
+ */
+public final class ServerKeyTable {
+
+    private static final AttributeKey<ServerKeyTable> ATTR = AttributeKey.valueOf("hotkey.serverKeyTable");
+
+    private final int capacity;
+    private String[] keys = new String[16];
+    private int expectedSequence;
+
+    public ServerKeyTable(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * 获取连接上已协商的 key 表。
+     *
+     * @return 未协商时返回 null
+     */
+    public static ServerKeyTable of(Channel channel) {
+        return channel.attr(ATTR).get();
+    }
+
+    public static void bind(Channel channel, ServerKeyTable table) {
+        channel.attr(ATTR).set(table);
+    }
+
+    /**
+     * 校验上报序号，不连续说明中间有上报丢失。
+     */
+    void checkSequence(int sequence) {
+        if (sequence != expectedSequence) {
+            throw new IllegalArgumentException("Key table out of sync, expected report sequence "
+                    + expectedSequence + " but got " + sequence);
+        }
+        expectedSequence = (expectedSequence + 1) & Integer.MAX_VALUE;
+    }
+
+    void define(int id, String key) {
+        if (id < 0 || id >= capacity) {
+            throw new IllegalArgumentException("Key id " + id + " out of table capacity " + capacity);
+        }
+        if (id >= keys.length) {
+            keys = Arrays.copyOf(keys, Math.min(capacity, Math.max(id + 1, keys.length << 1)));
+        }
+        keys[id] = key;
+    }
+
+    String get(int id) {
+        String key = id >= 0 && id < keys.length ? keys[id] : null;
+        if (key == null) {
+            throw new IllegalArgumentException("Undefined key id " + id);
+        }
+        return key;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
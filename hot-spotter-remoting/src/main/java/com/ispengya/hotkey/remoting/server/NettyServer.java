@@ -2,21 +2,33 @@ package com.ispengya.hotkey.remoting.server;
 
 import com.ispengya.hotkey.remoting.codec.CommandDecoder;
 import com.ispengya.hotkey.remoting.codec.CommandEncoder;
+import com.ispengya.hotkey.remoting.transport.TransportType;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.timeout.IdleStateHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * NettyServer 封装基于 Netty 的服务端启动与关闭流程。
  *
  * <p>负责创建 EventLoopGroup、ServerBootstrap，并在 ChannelPipeline 中
  * 挂载协议编解码器和业务处理器。</p>
+ *
+ * <p>传输方式由 {@link NettyServerConfig#getTransport()} 决定。使用 epoll 时连接为边缘触发并开启 TCP_QUICKACK；
+ * reusePortAcceptors 大于 1 时以 SO_REUSEPORT 在同一端口绑定多个监听 Channel，各自注册到不同的 boss 线程，
+ * 由内核在它们之间分摊新连接。NIO 传输只绑定一个监听 Channel。</p>
  */
 public final class NettyServer {
 
+    private static final Logger log = LoggerFactory.getLogger(NettyServer.class);
+
     /**
      * Netty 服务端配置。
      */
@@ -43,9 +55,9 @@ public final class NettyServer {
     private EventLoopGroup workerGroup;
 
     /**
-     * 服务端监听 Channel。
+     * 服务端监听 Channel，SO_REUSEPORT 模式下有多个。
      */
-    private Channel serverChannel;
+    private final List<Channel> serverChannels = new ArrayList<>();
 
     /**
      * 构造 NettyServer。
@@ -62,14 +74,22 @@ public final class NettyServer {
      * 启动 Netty 服务端，绑定端口并初始化 pipeline。
      */
     public void start() {
-        bossGroup = new NioEventLoopGroup(config.getBossThreads());
-        workerGroup = new NioEventLoopGroup(config.getWorkerThreads());
+        TransportType transport = config.getTransport().resolve();
+        boolean epoll = transport == TransportType.EPOLL;
+        int acceptors = epoll ? config.getReusePortAcceptors() : 1;
+        if (!epoll && config.getReusePortAcceptors() > 1) {
+            log.warn("SO_REUSEPORT requires epoll transport, binding a single acceptor");
+        }
+        bossGroup = transport.newEventLoopGroup(Math.max(config.getBossThreads(), acceptors));
+        workerGroup = transport.newEventLoopGroup(config.getWorkerThreads());
 
         ServerBootstrap bootstrap = new ServerBootstrap();
         bootstrap.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(transport.serverChannelClass())
                 .option(ChannelOption.SO_BACKLOG, config.getSoBacklog())
                 .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                        config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()))
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
@@ -79,28 +99,43 @@ public final class NettyServer {
                                 config.getWriteIdleSeconds(),
                                 config.getAllIdleSeconds()
                         ));
-                        p.addLast(new CommandDecoder(config.getMaxFrameLength()));
-                        p.addLast(new CommandEncoder());
+                        p.addLast(new CommandDecoder(config.getMaxFrameLength(), true));
+                        p.addLast(new CommandEncoder(config.getCompression()));
                         p.addLast(new ServerHandler(channelManager, dispatcher));
                     }
                 });
+        if (epoll) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .childOption(EpollChannelOption.TCP_QUICKACK, true);
+            if (acceptors > 1) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+        }
 
         try {
-            ChannelFuture bindFuture = bootstrap.bind(config.getPort()).sync();
-            serverChannel = bindFuture.channel();
+            for (int i = 0; i < acceptors; i++) {
+                ChannelFuture bindFuture = bootstrap.bind(config.getPort()).sync();
+                serverChannels.add(bindFuture.channel());
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Netty server start failed", e);
         }
+        if (log.isInfoEnabled()) {
+            log.info("Netty server started. port={}, transport={}, acceptors={}",
+                    config.getPort(), transport, acceptors);
+        }
     }
 
     /**
      * 停止 Netty 服务端并释放相关资源。
      */
     public void stop() {
-        if (serverChannel != null) {
+        for (Channel serverChannel : serverChannels) {
             serverChannel.close();
         }
+        serverChannels.clear();
         if (bossGroup != null) {
             bossGroup.shutdownGracefully();
         }
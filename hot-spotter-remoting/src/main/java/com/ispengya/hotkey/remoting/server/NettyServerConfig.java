@@ -1,9 +1,12 @@
 package com.ispengya.hotkey.remoting.server;
 
+import com.ispengya.hotkey.remoting.codec.PayloadCompression;
+import com.ispengya.hotkey.remoting.transport.TransportType;
+
 /**
  * NettyServerConfig 封装 Netty 服务端相关配置参数。
  *
- * <p>包括监听端口、事件循环线程数、连接超时、空闲检测时间以及最大帧长度等，
+ * <p>包括监听端口、事件循环线程数、连接超时、空闲检测时间、最大帧长度、写缓冲水位、负载压缩策略以及 IO 传输方式等，
  * 便于在不同环境下灵活调整。</p>
  */
 public final class NettyServerConfig {
@@ -54,7 +57,32 @@ public final class NettyServerConfig {
     private final int maxFrameLength;
 
     /**
-     * 构造 Netty 服务端配置。
+     * 写缓冲低水位（字节），待发送字节降到该值以下时连接恢复可写。
+     */
+    private final int writeBufferLowWaterMark;
+
+    /**
+     * 写缓冲高水位（字节），待发送字节超过该值时连接变为不可写。
+     */
+    private final int writeBufferHighWaterMark;
+
+    /**
+     * 发送负载的压缩策略。
+     */
+    private final PayloadCompression compression;
+
+    /**
+     * IO 传输方式。
+     */
+    private final TransportType transport;
+
+    /**
+     * 以 SO_REUSEPORT 绑定同一端口的监听 Channel 数，仅 epoll 传输生效。
+     */
+    private final int reusePortAcceptors;
+
+    /**
+     * 构造 Netty 服务端配置，写缓冲水位使用 Netty 默认值（32KB / 64KB）。
      */
     public NettyServerConfig(int port,
                              int bossThreads,
@@ -65,6 +93,67 @@ public final class NettyServerConfig {
                              int writeIdleSeconds,
                              int allIdleSeconds,
                              int maxFrameLength) {
+        this(port, bossThreads, workerThreads, soBacklog, connectTimeoutMillis,
+                readIdleSeconds, writeIdleSeconds, allIdleSeconds, maxFrameLength,
+                32 * 1024, 64 * 1024);
+    }
+
+    /**
+     * 构造 Netty 服务端配置。
+     */
+    public NettyServerConfig(int port,
+                             int bossThreads,
+                             int workerThreads,
+                             int soBacklog,
+                             int connectTimeoutMillis,
+                             int readIdleSeconds,
+                             int writeIdleSeconds,
+                             int allIdleSeconds,
+                             int maxFrameLength,
+                             int writeBufferLowWaterMark,
+                             int writeBufferHighWaterMark) {
+        this(port, bossThreads, workerThreads, soBacklog, connectTimeoutMillis,
+                readIdleSeconds, writeIdleSeconds, allIdleSeconds, maxFrameLength,
+                writeBufferLowWaterMark, writeBufferHighWaterMark, PayloadCompression.disabled());
+    }
+
+    /**
+     * 构造 Netty 服务端配置。
+     */
+    public NettyServerConfig(int port,
+                             int bossThreads,
+                             int workerThreads,
+                             int soBacklog,
+                             int connectTimeoutMillis,
+                             int readIdleSeconds,
+                             int writeIdleSeconds,
+                             int allIdleSeconds,
+                             int maxFrameLength,
+                             int writeBufferLowWaterMark,
+                             int writeBufferHighWaterMark,
+                             PayloadCompression compression) {
+        this(port, bossThreads, workerThreads, soBacklog, connectTimeoutMillis,
+                readIdleSeconds, writeIdleSeconds, allIdleSeconds, maxFrameLength,
+                writeBufferLowWaterMark, writeBufferHighWaterMark, compression, TransportType.NIO, 1);
+    }
+
+    /**
+     * 构造 Netty 服务端配置。
+     */
+    public NettyServerConfig(int port,
+                             int bossThreads,
+                             int workerThreads,
+                             int soBacklog,
+                             int connectTimeoutMillis,
+                             int readIdleSeconds,
+                             int writeIdleSeconds,
+                             int allIdleSeconds,
+                             int maxFrameLength,
+                             int writeBufferLowWaterMark,
+                             int writeBufferHighWaterMark,
+                             PayloadCompression compression,
+                             TransportType transport,
+                             int reusePortAcceptors) {
         this.port = port;
         this.bossThreads = bossThreads;
         this.workerThreads = workerThreads;
@@ -74,6 +163,11 @@ public final class NettyServerConfig {
         this.writeIdleSeconds = writeIdleSeconds;
         this.allIdleSeconds = allIdleSeconds;
         this.maxFrameLength = maxFrameLength;
+        this.writeBufferHighWaterMark = Math.max(1, writeBufferHighWaterMark);
+        this.writeBufferLowWaterMark = Math.max(0, Math.min(writeBufferLowWaterMark, this.writeBufferHighWaterMark));
+        this.compression = compression == null ? PayloadCompression.disabled() : compression;
+        this.transport = transport == null ? TransportType.NIO : transport;
+        this.reusePortAcceptors = Math.max(1, reusePortAcceptors);
     }
 
     /**
@@ -126,4 +220,24 @@ public final class NettyServerConfig {
     public int getMaxFrameLength() {
         return maxFrameLength;
     }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public PayloadCompression getCompression() {
+        return compression;
+    }
+
+    public TransportType getTransport() {
+        return transport;
+    }
+
+    public int getReusePortAcceptors() {
+        return reusePortAcceptors;
+    }
 }
@@ -1,20 +1,68 @@
 package com.ispengya.hotkey.remoting.server;
 
+import com.ispengya.hotkey.remoting.codec.CommandEncoder;
 import com.ispengya.hotkey.remoting.protocol.Command;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import com.ispengya.hotkey.remoting.protocol.CommandType;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.EventLoop;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.AttributeKey;
 import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * ServerChannelManager 管理服务端的全部连接以及按应用划分的推送连接。
+ *
+ * <p>广播时命令只编码一次，写入池化的 direct 缓冲区；每个连接写入该缓冲区的
+ * {@link ByteBuf#retainedDuplicate()}，共享同一块内存，只增加引用计数，不再按连接重复编码和拷贝负载。
+ * 连接按所属 EventLoop 分组，每个 EventLoop 只提交一个任务，在任务内依次写入并统一 flush，
+ * 避免每个连接各自跨线程提交 writeAndFlush。</p>
+ *
+ * <p>推送遵循连接的写缓冲水位：连接不可写（待发送字节超过高水位）时本次推送直接丢弃，不在服务端堆积，
+ * 只为该连接记下“需要重新同步”；连接回到可写（低于低水位）后只补发一条不带负载的
+ * {@link CommandType#HOT_KEY_RESYNC}，无论期间丢弃了多少条推送，客户端收到后拉取一次完整视图。
+ * 连续不可写超过 slowConsumerTimeoutMillis 的慢连接在下一次推送时被关闭。</p>
+ */
 public class ServerChannelManager {
 
+    private static final Logger log = LoggerFactory.getLogger(ServerChannelManager.class);
+
+    private static final AttributeKey<PushState> PUSH_STATE = AttributeKey.valueOf("hotkey.pushState");
+
+    private static final AttributeKey<String> SERIALIZER = AttributeKey.valueOf("hotkey.serializer");
+
+    private static final Command RESYNC_COMMAND = new Command(CommandType.HOT_KEY_RESYNC, 0L, new byte[0]);
+
+    private final ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+
+    /**
+     * 连接连续不可写超过该时长时关闭，0 表示不关闭。
+     */
+    private final long slowConsumerTimeoutMillis;
+
+    private final AtomicLong skippedPushes = new AtomicLong();
+    private final AtomicLong resyncMarkers = new AtomicLong();
+    private final AtomicLong slowConsumerCloses = new AtomicLong();
+
     private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
     private final Map<String, Set<Channel>> appChannels = new ConcurrentHashMap<>();
@@ -23,6 +71,19 @@ public class ServerChannelManager {
 
     private final Set<Channel> pushChannels = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    public ServerChannelManager() {
+        this(0L);
+    }
+
+    /**
+     * 构造连接管理器。
+     *
+     * @param slowConsumerTimeoutMillis 连接连续不可写超过该时长时关闭，0 表示不关闭
+     */
+    public ServerChannelManager(long slowConsumerTimeoutMillis) {
+        this.slowConsumerTimeoutMillis = Math.max(0L, slowConsumerTimeoutMillis);
+    }
+
     public void register(Channel channel) {
         channels.add(channel);
     }
@@ -37,9 +98,21 @@ public class ServerChannelManager {
     }
 
     public void registerPushChannel(String appName, Channel channel) {
+        registerPushChannel(appName, channel, null);
+    }
+
+    /**
+     * 注册推送连接，并记录该连接协商的序列化格式。
+     *
+     * @param appName        应用名
+     * @param channel        推送连接
+     * @param serializerName 序列化格式名称，null 表示默认格式
+     */
+    public void registerPushChannel(String appName, Channel channel, String serializerName) {
         if (channel == null) {
             return;
         }
+        channel.attr(SERIALIZER).set(serializerName);
         pushChannels.add(channel);
         if (appName != null && !appName.isEmpty()) {
             appChannels
@@ -56,11 +129,7 @@ public class ServerChannelManager {
         if (command == null) {
             return;
         }
-        for (Channel channel : pushChannels) {
-            if (channel.isActive()) {
-                channel.writeAndFlush(command);
-            }
-        }
+        broadcast(pushChannels, false, null, command);
     }
 
     public void broadcastToApp(String appName, Command command) {
@@ -71,13 +140,219 @@ public class ServerChannelManager {
         if (set == null) {
             return;
         }
+        broadcast(set, false, null, command);
+    }
+
+    /**
+     * 向应用下协商了指定序列化格式的推送连接广播。
+     *
+     * @param appName        应用名
+     * @param serializerName 序列化格式名称，null 表示注册时未指定格式的连接
+     * @param command        已按该格式编码的命令
+     */
+    public void broadcastToApp(String appName, String serializerName, Command command) {
+        if (appName == null || command == null) {
+            return;
+        }
+        Set<Channel> set = appChannels.get(appName);
+        if (set == null) {
+            return;
+        }
+        broadcast(set, true, serializerName, command);
+    }
+
+    /**
+     * 应用下活跃推送连接协商的序列化格式，可能包含 null（注册时未指定格式）。
+     */
+    public Set<String> getSerializerNames(String appName) {
+        Set<Channel> set = appName == null ? null : appChannels.get(appName);
+        if (set == null) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new HashSet<>(2);
         for (Channel channel : set) {
             if (channel.isActive()) {
-                channel.writeAndFlush(command);
+                names.add(channel.attr(SERIALIZER).get());
+            }
+        }
+        return names;
+    }
+
+    private void broadcast(Collection<Channel> targets, boolean bySerializer, String serializerName, Command command) {
+        Map<EventLoop, List<Channel>> byLoop = null;
+        for (Channel channel : targets) {
+            if (!channel.isActive()) {
+                continue;
+            }
+            if (bySerializer && !Objects.equals(serializerName, channel.attr(SERIALIZER).get())) {
+                continue;
+            }
+            if (byLoop == null) {
+                byLoop = new HashMap<>();
+            }
+            byLoop.computeIfAbsent(channel.eventLoop(), loop -> new ArrayList<>()).add(channel);
+        }
+        if (byLoop == null) {
+            return;
+        }
+        ByteBuf frame = CommandEncoder.encodeFrame(allocator, command);
+        try {
+            for (Map.Entry<EventLoop, List<Channel>> entry : byLoop.entrySet()) {
+                List<Channel> channels = entry.getValue();
+                // 在提交前为每个连接持有一份引用，任务执行前原缓冲区即使被释放也不受影响
+                ByteBuf[] duplicates = new ByteBuf[channels.size()];
+                for (int i = 0; i < duplicates.length; i++) {
+                    duplicates[i] = frame.retainedDuplicate();
+                }
+                EventLoop loop = entry.getKey();
+                Runnable task = () -> writeAndFlush(channels, duplicates);
+                if (loop.inEventLoop()) {
+                    task.run();
+                } else {
+                    try {
+                        loop.execute(task);
+                    } catch (RuntimeException e) {
+                        // EventLoop 已关闭
+                        for (ByteBuf duplicate : duplicates) {
+                            duplicate.release();
+                        }
+                    }
+                }
             }
+        } finally {
+            frame.release();
         }
     }
 
+    private void writeAndFlush(List<Channel> channels, ByteBuf[] duplicates) {
+        long now = 0L;
+        for (int i = 0; i < duplicates.length; i++) {
+            Channel channel = channels.get(i);
+            if (!channel.isWritable()) {
+                duplicates[i].release();
+                duplicates[i] = null;
+                if (now == 0L) {
+                    now = System.currentTimeMillis();
+                }
+                skip(channel, now);
+                continue;
+            }
+            // 写失败（例如连接已关闭）时 Netty 会释放该缓冲区
+            channel.write(duplicates[i], channel.voidPromise());
+        }
+        for (int i = 0; i < duplicates.length; i++) {
+            if (duplicates[i] != null) {
+                channels.get(i).flush();
+            }
+        }
+    }
+
+    private void skip(Channel channel, long now) {
+        if (!channel.isActive()) {
+            return;
+        }
+        skippedPushes.incrementAndGet();
+        PushState state = stateOf(channel);
+        state.resyncPending = true;
+        if (state.unwritableSinceMillis == 0L) {
+            state.unwritableSinceMillis = now;
+        }
+        if (slowConsumerTimeoutMillis > 0L && now - state.unwritableSinceMillis >= slowConsumerTimeoutMillis) {
+            slowConsumerCloses.incrementAndGet();
+            log.warn("Closing slow push channel. remote={}, unwritableMillis={}, pendingBytes={}",
+                    channel.remoteAddress(), now - state.unwritableSinceMillis, pendingWriteBytes(channel));
+            channel.close();
+        }
+    }
+
+    /**
+     * 连接可写状态变化时由 IO 线程回调：记录开始不可写的时间；恢复可写且期间丢弃过推送时补发一条重新同步标记。
+     */
+    public void onWritabilityChanged(Channel channel) {
+        PushState state = stateOf(channel);
+        if (!channel.isWritable()) {
+            if (state.unwritableSinceMillis == 0L) {
+                state.unwritableSinceMillis = System.currentTimeMillis();
+            }
+            return;
+        }
+        state.unwritableSinceMillis = 0L;
+        if (state.resyncPending && channel.isActive()) {
+            state.resyncPending = false;
+            resyncMarkers.incrementAndGet();
+            channel.writeAndFlush(RESYNC_COMMAND, channel.voidPromise());
+        }
+    }
+
+    /**
+     * 各连接写缓冲中尚未发送的字节数，键为连接的远端地址。
+     */
+    public Map<String, Long> getPendingWriteBytes() {
+        Map<String, Long> result = new HashMap<>();
+        for (Channel channel : channels) {
+            result.put(String.valueOf(channel.remoteAddress()), pendingWriteBytes(channel));
+        }
+        return result;
+    }
+
+    /**
+     * 全部连接写缓冲中尚未发送的字节数之和。
+     */
+    public long getTotalPendingWriteBytes() {
+        long total = 0L;
+        for (Channel channel : channels) {
+            total += pendingWriteBytes(channel);
+        }
+        return total;
+    }
+
+    /**
+     * 因连接不可写而丢弃的推送次数（按连接计）。
+     */
+    public long getSkippedPushCount() {
+        return skippedPushes.get();
+    }
+
+    /**
+     * 已发送的重新同步标记数。
+     */
+    public long getResyncMarkerCount() {
+        return resyncMarkers.get();
+    }
+
+    /**
+     * 因持续不可写被关闭的连接数。
+     */
+    public long getSlowConsumerCloseCount() {
+        return slowConsumerCloses.get();
+    }
+
+    private static long pendingWriteBytes(Channel channel) {
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        return buffer == null ? 0L : buffer.totalPendingWriteBytes();
+    }
+
+    private static PushState stateOf(Channel channel) {
+        PushState state = channel.attr(PUSH_STATE).get();
+        if (state == null) {
+            PushState created = new PushState();
+            state = channel.attr(PUSH_STATE).setIfAbsent(created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 单个连接的推送状态，只由连接所属的 IO 线程修改。
+     */
+    private static final class PushState {
+
+        private volatile boolean resyncPending;
+        private volatile long unwritableSinceMillis;
+    }
+
     private String extractIp(Channel channel) {
         SocketAddress remote = channel.remoteAddress();
         if (remote instanceof InetSocketAddress) {
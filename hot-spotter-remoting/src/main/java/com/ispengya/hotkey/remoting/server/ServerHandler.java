@@ -1,10 +1,13 @@
 package com.ispengya.hotkey.remoting.server;
 
 import com.ispengya.hotkey.remoting.protocol.Command;
+import com.ispengya.hotkey.remoting.protocol.ServerKeyTable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * ServerHandler 是 remoting 服务端的入站处理器。
@@ -14,6 +17,8 @@ import io.netty.handler.timeout.IdleStateEvent;
  */
 public final class ServerHandler extends SimpleChannelInboundHandler<Command> {
 
+    private static final Logger log = LoggerFactory.getLogger(ServerHandler.class);
+
     private final ServerChannelManager channelManager;
     private final ServerRequestDispatcher dispatcher;
 
@@ -45,6 +50,15 @@ public final class ServerHandler extends SimpleChannelInboundHandler<Command> {
         channelManager.unregister(ctx.channel());
     }
 
+    /**
+     * 写缓冲越过高/低水位时回调。
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        channelManager.onWritabilityChanged(ctx.channel());
+        super.channelWritabilityChanged(ctx);
+    }
+
     /**
      * 收到一条 Command 消息时回调。
      */
@@ -53,6 +67,20 @@ public final class ServerHandler extends SimpleChannelInboundHandler<Command> {
         dispatcher.dispatch(ctx, msg);
     }
 
+    /**
+     * 解码异常（例如超过 maxFrameBytes 被丢弃的帧）时回调。连接绑定了 key 表时，丢失的帧可能带有 key 定义，
+     * 两端的表已不可信，直接关闭连接，由客户端重连后重新协商。
+     */
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (ServerKeyTable.of(ctx.channel()) != null) {
+            log.warn("Close channel with key table after inbound error. remote={}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+            return;
+        }
+        super.exceptionCaught(ctx, cause);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof IdleStateEvent) {
@@ -0,0 +1,80 @@
+package com.ispengya.hotkey.remoting.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * TransportType 表示 Netty 使用的 IO 传输实现。
+ *
+ * <p>{@link #EPOLL} 使用 Linux 本地 epoll（边缘触发），支持 TCP_QUICKACK 与 SO_REUSEPORT；
+ * {@link #AUTO} 在 epoll 可用时选择 epoll，否则使用 NIO。选择 epoll 但本地库不可用
+ * （非 Linux、缺少对应架构的本地库等）时回退到 {@link #NIO} 并记录告警。</p>
+ */
+public enum TransportType {
+
+    NIO,
+
+    EPOLL,
+
+    AUTO;
+
+    private static final Logger log = LoggerFactory.getLogger(TransportType.class);
+
+    /**
+     * 按名称解析传输类型，忽略大小写；null 或未知名称返回 {@link #NIO}。
+     */
+    public static TransportType of(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return NIO;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown transport {}, using {}", name, NIO);
+            return NIO;
+        }
+    }
+
+    /**
+     * 解析为实际使用的传输类型，结果只会是 {@link #NIO} 或 {@link #EPOLL}。
+     */
+    public TransportType resolve() {
+        if (this == NIO) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        if (this == EPOLL) {
+            log.warn("Epoll transport unavailable, falling back to NIO", Epoll.unavailabilityCause());
+        }
+        return NIO;
+    }
+
+    /**
+     * 创建事件循环组，需在 {@link #resolve()} 之后调用。
+     */
+    public EventLoopGroup newEventLoopGroup(int threads) {
+        return this == EPOLL ? new EpollEventLoopGroup(threads) : new NioEventLoopGroup(threads);
+    }
+
+    public Class<? extends ServerChannel> serverChannelClass() {
+        return this == EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public Class<? extends SocketChannel> socketChannelClass() {
+        return this == EPOLL ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+}
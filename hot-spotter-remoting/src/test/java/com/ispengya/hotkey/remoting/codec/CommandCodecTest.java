@@ -0,0 +1,182 @@
+package com.ispengya.hotkey.remoting.codec;
+
+import com.ispengya.hotkey.remoting.protocol.Command;
+import com.ispengya.hotkey.remoting.protocol.CommandType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandCodecTest {
+
+    private static final int MAX_FRAME = 1 << 16;
+
+    private final PayloadCompression deflate = PayloadCompression.of(DeflatePayloadCodec.NAME, 256, null);
+
+    @Test
+    void smallFramesAreUnchanged() {
+        byte[] payload = "small".getBytes(StandardCharsets.UTF_8);
+
+        byte[] plain = encode(PayloadCompression.disabled(), new Command(CommandType.ACCESS_REPORT, 7L, payload));
+        byte[] compressed = encode(deflate, new Command(CommandType.ACCESS_REPORT, 7L, payload));
+
+        assertArrayEquals(plain, compressed);
+        assertEquals(4 + 12 + payload.length, plain.length);
+    }
+
+    @Test
+    void compressedFrameRoundTripsInBothModes() {
+        byte[] payload = compressiblePayload(20000);
+        Command command = new Command(CommandType.HOT_KEY_QUERY, 42L, payload);
+
+        byte[] frame = encode(deflate, command);
+
+        assertTrue(frame.length < payload.length / 2, "frame length " + frame.length);
+        assertEquals(CommandEncoder.FLAG_COMPRESSED | CommandType.HOT_KEY_QUERY.ordinal(), Unpooled.wrappedBuffer(frame).getInt(4));
+        for (boolean retain : new boolean[]{false, true}) {
+            Command decoded = decode(retain, frame);
+            assertEquals(CommandType.HOT_KEY_QUERY, decoded.getType());
+            assertEquals(42L, decoded.getRequestId());
+            assertArrayEquals(payload, payloadOf(decoded));
+            decoded.release();
+        }
+    }
+
+    @Test
+    void compressedFrameFromBufferPayloadRoundTrips() {
+        byte[] payload = compressiblePayload(4096);
+        ByteBuf direct = Unpooled.directBuffer(payload.length + 8);
+        direct.writeZero(8).writeBytes(payload).readerIndex(8);
+
+        byte[] frame = encode(deflate, Command.ofBuffer(CommandType.HOT_KEY_PUSH, 1L, direct));
+
+        Command decoded = decode(true, frame);
+        assertArrayEquals(payload, payloadOf(decoded));
+        decoded.release();
+    }
+
+    @Test
+    void incompressiblePayloadFallsBackToPlainFrame() {
+        byte[] payload = new byte[4096];
+        new Random(1).nextBytes(payload);
+
+        byte[] plain = encode(PayloadCompression.disabled(), new Command(CommandType.ACCESS_REPORT, 3L, payload));
+        byte[] frame = encode(deflate, new Command(CommandType.ACCESS_REPORT, 3L, payload));
+
+        assertArrayEquals(plain, frame);
+    }
+
+    @Test
+    void declaredLengthAboveMaxFrameIsRejected() {
+        byte[] frame = compressedFrame(DeflatePayloadCodec.ID, MAX_FRAME + 1, deflated(new byte[16]));
+
+        assertThrows(TooLongFrameException.class, () -> decode(false, frame));
+        assertThrows(TooLongFrameException.class, () -> decode(true, frame));
+        assertThrows(TooLongFrameException.class,
+                () -> decode(false, compressedFrame(DeflatePayloadCodec.ID, -1, deflated(new byte[16]))));
+    }
+
+    @Test
+    void lengthMismatchIsRejected() {
+        byte[] data = deflated(new byte[1000]);
+
+        for (boolean retain : new boolean[]{false, true}) {
+            // 实际数据多于声明长度（解压炸弹）与少于声明长度
+            assertThrows(CorruptedFrameException.class,
+                    () -> decode(retain, compressedFrame(DeflatePayloadCodec.ID, 999, data)));
+            assertThrows(CorruptedFrameException.class,
+                    () -> decode(retain, compressedFrame(DeflatePayloadCodec.ID, 1001, data)));
+        }
+    }
+
+    @Test
+    void corruptOrUnknownCompressedFrameIsRejected() {
+        byte[] data = deflated(compressiblePayload(1000));
+        byte[] corrupt = data.clone();
+        corrupt[0] ^= 0x7F;
+        byte[] truncated = Arrays.copyOf(data, data.length / 2);
+
+        for (boolean retain : new boolean[]{false, true}) {
+            assertThrows(CorruptedFrameException.class,
+                    () -> decode(retain, compressedFrame(DeflatePayloadCodec.ID, 1000, corrupt)));
+            assertThrows(CorruptedFrameException.class,
+                    () -> decode(retain, compressedFrame(DeflatePayloadCodec.ID, 1000, truncated)));
+            assertThrows(CorruptedFrameException.class,
+                    () -> decode(retain, compressedFrame((byte) 99, 1000, data)));
+        }
+
+        // 压缩帧头不完整
+        ByteBuf shortFrame = Unpooled.buffer();
+        shortFrame.writeInt(12 + 2);
+        shortFrame.writeInt(CommandType.ACCESS_REPORT.ordinal() | CommandEncoder.FLAG_COMPRESSED);
+        shortFrame.writeLong(0L);
+        shortFrame.writeShort(0);
+        assertThrows(CorruptedFrameException.class, () -> decode(false, ByteBufUtil.getBytes(shortFrame)));
+    }
+
+    private static byte[] encode(PayloadCompression compression, Command command) {
+        EmbeddedChannel channel = new EmbeddedChannel(new CommandEncoder(compression));
+        channel.writeOutbound(command);
+        ByteBuf out = channel.readOutbound();
+        assertNotNull(out);
+        byte[] bytes = ByteBufUtil.getBytes(out);
+        out.release();
+        channel.finishAndReleaseAll();
+        return bytes;
+    }
+
+    private static Command decode(boolean retain, byte[] frame) {
+        EmbeddedChannel channel = new EmbeddedChannel(new CommandDecoder(MAX_FRAME, retain));
+        try {
+            channel.writeInbound(Unpooled.wrappedBuffer(frame));
+            Command command = channel.readInbound();
+            assertNotNull(command);
+            return command;
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static byte[] payloadOf(Command command) {
+        ByteBuf buffer = command.getPayloadBuffer();
+        return buffer == null ? command.getPayload() : ByteBufUtil.getBytes(buffer);
+    }
+
+    private static byte[] compressedFrame(byte codecId, int originalLength, byte[] data) {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(12 + CommandEncoder.COMPRESSION_HEADER_LENGTH + data.length);
+        frame.writeInt(CommandType.HOT_KEY_QUERY.ordinal() | CommandEncoder.FLAG_COMPRESSED);
+        frame.writeLong(0L);
+        frame.writeByte(codecId);
+        frame.writeInt(originalLength);
+        frame.writeBytes(data);
+        return ByteBufUtil.getBytes(frame);
+    }
+
+    private static byte[] deflated(byte[] payload) {
+        ByteBuf out = Unpooled.buffer();
+        new DeflatePayloadCodec().compress(Unpooled.wrappedBuffer(payload), out);
+        return ByteBufUtil.getBytes(out);
+    }
+
+    private static byte[] compressiblePayload(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append("item:sku:").append(i % 50).append(',');
+        }
+        return sb.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,67 @@
+package com.ispengya.hotkey.remoting.codec;
+
+import com.ispengya.hotkey.remoting.protocol.CommandType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCompressionTest {
+
+    @Test
+    void emptyUnmodifiableOverridesUseDefaultThreshold() {
+        PayloadCompression compression = PayloadCompression.of("deflate", 1024,
+                Collections.unmodifiableMap(new EnumMap<CommandType, Integer>(CommandType.class)));
+
+        assertNotNull(compression.getCodec());
+        for (CommandType type : CommandType.values()) {
+            assertEquals(1024, compression.getThreshold(type));
+        }
+    }
+
+    @Test
+    void nullAndEmptyHashMapOverridesUseDefaultThreshold() {
+        assertEquals(1024, PayloadCompression.of("deflate", 1024, null).getThreshold(CommandType.ACCESS_REPORT));
+        assertEquals(1024, PayloadCompression.of("deflate", 1024, new HashMap<CommandType, Integer>())
+                .getThreshold(CommandType.ACCESS_REPORT));
+    }
+
+    @Test
+    void typeOverrideAppliesOnlyToThatType() {
+        Map<CommandType, Integer> overrides = new HashMap<>();
+        overrides.put(CommandType.HOT_KEY_QUERY, 100);
+        overrides.put(CommandType.ADMIN_PING, 0);
+        PayloadCompression compression = PayloadCompression.of("DEFLATE", 4096, overrides);
+
+        assertTrue(compression.shouldCompress(CommandType.HOT_KEY_QUERY, 100));
+        assertFalse(compression.shouldCompress(CommandType.HOT_KEY_QUERY, 99));
+        assertFalse(compression.shouldCompress(CommandType.ACCESS_REPORT, 4095));
+        assertTrue(compression.shouldCompress(CommandType.ACCESS_REPORT, 4096));
+        assertFalse(compression.shouldCompress(CommandType.ADMIN_PING, 1 << 20));
+    }
+
+    @Test
+    void noneOrUnknownCodecDisablesCompression() {
+        assertSame(PayloadCompression.disabled(), PayloadCompression.of("none", 1, null));
+        assertSame(PayloadCompression.disabled(), PayloadCompression.of(null, 1, null));
+        assertSame(PayloadCompression.disabled(), PayloadCompression.of("lz4-missing", 1, null));
+        assertFalse(PayloadCompression.disabled().shouldCompress(CommandType.ACCESS_REPORT, 1 << 20));
+    }
+
+    @Test
+    void codecLookupById() {
+        assertSame(DeflatePayloadCodec.class, PayloadCompression.codecForId(DeflatePayloadCodec.ID).getClass());
+        assertNull(PayloadCompression.codecForId(0));
+        assertNull(PayloadCompression.codecForId(127));
+        assertNull(PayloadCompression.codecForId(-1));
+    }
+}
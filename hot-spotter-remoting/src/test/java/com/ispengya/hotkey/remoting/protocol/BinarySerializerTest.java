@@ -0,0 +1,220 @@
+package com.ispengya.hotkey.remoting.protocol;
+
+import com.ispengya.hotkey.remoting.message.AccessReportMessage;
+import com.ispengya.hotkey.remoting.message.HotKeyQueryRequest;
+import com.ispengya.hotkey.remoting.message.HotKeyViewMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinarySerializerTest {
+
+    private final BinarySerializer serializer = new BinarySerializer();
+
+    @Test
+    void reportRoundTripWithSharedPrefixesAndNonAsciiKeys() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("item:sku:1001", 3);
+        counts.put("item:sku:1002", -7);
+        counts.put("item:sku:10", Integer.MAX_VALUE);
+        counts.put("item:商品:1", Integer.MIN_VALUE);
+        counts.put("item:商店:2", 0);
+        counts.put("", 1);
+        counts.put("order:1", null);
+        counts.put(null, 5);
+        AccessReportMessage report = report("订单中心", -1L, counts);
+
+        AccessReportMessage decoded = serializer.deserialize(serializer.serialize(report), AccessReportMessage.class);
+
+        Map<String, Integer> expected = new HashMap<>(counts);
+        expected.put("order:1", 0);
+        assertEquals(expected, decoded.getKeyAccessCounts());
+        assertEquals("订单中心", decoded.getAppName());
+        assertEquals(-1L, decoded.getTimestamp());
+    }
+
+    @Test
+    void reportWithNullFieldsRoundTrips() {
+        AccessReportMessage decoded = serializer.deserialize(
+                serializer.serialize(report(null, 0L, null)), AccessReportMessage.class);
+
+        assertNull(decoded.getAppName());
+        assertNull(decoded.getKeyAccessCounts());
+
+        decoded = serializer.deserialize(
+                serializer.serialize(report("app", 1L, Collections.<String, Integer>emptyMap())), AccessReportMessage.class);
+        assertTrue(decoded.getKeyAccessCounts().isEmpty());
+    }
+
+    @Test
+    void sharedPrefixIsWrittenOnce() {
+        String prefix = "item:sku:category:electronics:";
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            counts.put(prefix + i, 1);
+        }
+
+        byte[] bytes = serializer.serialize(report("app", 0L, counts));
+
+        assertTrue(bytes.length < prefix.length() * 3 + 100 * 4, "encoded length " + bytes.length);
+        assertEquals(counts, serializer.deserialize(bytes, AccessReportMessage.class).getKeyAccessCounts());
+    }
+
+    @Test
+    void viewRoundTripKeepsFullDeltaAndLegacyFields() {
+        Map<String, HotKeyViewMessage.ViewEntry> views = new LinkedHashMap<>();
+        views.put("full", new HotKeyViewMessage.ViewEntry(42L, keys("item:sku:1", "item:sku:12", "配置:a")));
+        HotKeyViewMessage.ViewEntry delta = new HotKeyViewMessage.ViewEntry(40L, 43L, keys("a:1", "a:2"), keys("b"));
+        delta.setAddedKey("legacy:add");
+        delta.setRemovedKey("legacy:remove");
+        views.put("delta", delta);
+        views.put("empty", new HotKeyViewMessage.ViewEntry(44L, null, Collections.<String>emptySet()));
+        views.put("missing", null);
+        HotKeyViewMessage view = new HotKeyViewMessage();
+        view.setVersion(Long.MIN_VALUE);
+        view.setViews(views);
+
+        HotKeyViewMessage decoded = serializer.deserialize(serializer.serialize(view), HotKeyViewMessage.class);
+
+        assertEquals(Long.MIN_VALUE, decoded.getVersion());
+        assertEquals(views.keySet(), decoded.getViews().keySet());
+        HotKeyViewMessage.ViewEntry full = decoded.getViews().get("full");
+        assertTrue(full.isFull());
+        assertEquals(42L, full.getVersion());
+        assertEquals(Arrays.asList("item:sku:1", "item:sku:12", "配置:a"), Arrays.asList(full.getHotKeys().toArray()));
+        assertNull(full.getAddedKeys());
+        HotKeyViewMessage.ViewEntry decodedDelta = decoded.getViews().get("delta");
+        assertFalse(decodedDelta.isFull());
+        assertEquals(40L, decodedDelta.getBaseVersion());
+        assertEquals(43L, decodedDelta.getVersion());
+        assertEquals(keys("a:1", "a:2"), decodedDelta.getAddedKeys());
+        assertEquals(keys("b"), decodedDelta.getRemovedKeys());
+        assertEquals("legacy:add", decodedDelta.getAddedKey());
+        assertEquals("legacy:remove", decodedDelta.getRemovedKey());
+        HotKeyViewMessage.ViewEntry empty = decoded.getViews().get("empty");
+        assertNull(empty.getAddedKeys());
+        assertTrue(empty.getRemovedKeys().isEmpty());
+        assertEquals(0L, empty.getBaseVersion());
+        assertNull(decoded.getViews().get("missing"));
+
+        HotKeyViewMessage noViews = serializer.deserialize(serializer.serialize(new HotKeyViewMessage()), HotKeyViewMessage.class);
+        assertNull(noViews.getViews());
+    }
+
+    @Test
+    void byteBufDecodeHonoursReaderIndex() {
+        byte[] bytes = serializer.serialize(report("app", 9L, Collections.singletonMap("k", 2)));
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeBytes(new byte[]{'x', 'y', 'z'});
+        buffer.writeBytes(bytes);
+        buffer.readerIndex(3);
+
+        AccessReportMessage decoded = serializer.deserialize(buffer, AccessReportMessage.class);
+
+        assertEquals(Collections.singletonMap("k", 2), decoded.getKeyAccessCounts());
+    }
+
+    @Test
+    void otherMessagesUseFallback() {
+        HotKeyQueryRequest request = new HotKeyQueryRequest(Collections.singletonMap("app", 7L));
+
+        byte[] bytes = serializer.serialize(request);
+
+        assertFalse(BinarySerializer.isBinary(bytes));
+        assertEquals(Long.valueOf(7L), serializer.deserialize(bytes, HotKeyQueryRequest.class).getLastVersions().get("app"));
+    }
+
+    @Test
+    void truncatedPayloadIsRejected() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("item:sku:1", 300);
+        counts.put("item:sku:2", 1);
+        byte[] report = serializer.serialize(report("app", 123456789L, counts));
+        HotKeyViewMessage view = new HotKeyViewMessage();
+        view.setViews(Collections.singletonMap("app", new HotKeyViewMessage.ViewEntry(5L, keys("a", "b"))));
+        byte[] viewBytes = serializer.serialize(view);
+
+        for (int length = 2; length < report.length; length++) {
+            byte[] truncated = Arrays.copyOf(report, length);
+            assertThrows(IllegalArgumentException.class,
+                    () -> serializer.deserialize(truncated, AccessReportMessage.class), "length " + length);
+        }
+        for (int length = 2; length < viewBytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(viewBytes, length);
+            assertThrows(IllegalArgumentException.class,
+                    () -> serializer.deserialize(truncated, HotKeyViewMessage.class), "length " + length);
+        }
+    }
+
+    @Test
+    void malformedInputIsRejected() {
+        // 共享前缀长度超过前一个 key
+        byte[] badPrefix = {BinarySerializer.TAG_ACCESS_REPORT, BinarySerializer.VERSION, 0, 0, 2, 5, 2, 'a', 2};
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> serializer.deserialize(badPrefix, AccessReportMessage.class));
+        assertEquals("Malformed key prefix", e.getMessage());
+
+        // 字符串长度超出负载
+        byte[] badLength = {BinarySerializer.TAG_ACCESS_REPORT, BinarySerializer.VERSION, 100, 'a'};
+        assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(badLength, AccessReportMessage.class));
+
+        // varint 超过 5 个字节
+        byte[] badVarInt = {BinarySerializer.TAG_ACCESS_REPORT, BinarySerializer.VERSION,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0};
+        e = assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(badVarInt, AccessReportMessage.class));
+        assertEquals("Malformed varint", e.getMessage());
+
+        // 几个字节的负载声明了巨大的集合，不能按声明的个数预分配
+        byte[] hugeReport = {1, 1, 2, 97, 2, -1, -1, -1, -1, 7, 0, 2, 107, 2};
+        e = assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(hugeReport, AccessReportMessage.class));
+        assertTrue(e.getMessage().startsWith("Collection size"), e.getMessage());
+        byte[] hugeView = {BinarySerializer.TAG_HOT_KEY_VIEW, BinarySerializer.VERSION, 0, -1, -1, -1, -1, 7, 0};
+        assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(hugeView, HotKeyViewMessage.class));
+        byte[] hugeKeys = {BinarySerializer.TAG_HOT_KEY_VIEW, BinarySerializer.VERSION, 0, 2, 2, 'a', 3, 0,
+                -1, -1, -1, -1, 7, 0};
+        assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(hugeKeys, HotKeyViewMessage.class));
+        byte[] hugeIndexed = {BinarySerializer.TAG_ACCESS_REPORT_INDEXED, BinarySerializer.VERSION, 0, 2, 'a', 0,
+                -1, -1, -1, -1, 7, 1, 2};
+        assertThrows(IllegalArgumentException.class,
+                () -> BinarySerializer.deserialize(Unpooled.wrappedBuffer(hugeIndexed), new ServerKeyTable(16)));
+
+        byte[] badVersion = {BinarySerializer.TAG_HOT_KEY_VIEW, 9, 0, 0};
+        assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(badVersion, HotKeyViewMessage.class));
+    }
+
+    @Test
+    void formatIsDetectedByFirstByte() {
+        assertTrue(BinarySerializer.isBinary(serializer.serialize(new HotKeyViewMessage())));
+        assertFalse(BinarySerializer.isBinary("{}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(BinarySerializer.isBinary(new byte[]{BinarySerializer.TAG_ACCESS_REPORT}));
+        assertFalse(BinarySerializer.isBinary((byte[]) null));
+        assertFalse(BinarySerializer.isIndexedReport(Unpooled.wrappedBuffer(serializer.serialize(report("a", 0L, null)))));
+    }
+
+    private static AccessReportMessage report(String appName, long timestamp, Map<String, Integer> counts) {
+        AccessReportMessage report = new AccessReportMessage();
+        report.setAppName(appName);
+        report.setTimestamp(timestamp);
+        report.setKeyAccessCounts(counts);
+        return report;
+    }
+
+    private static Set<String> keys(String... keys) {
+        return new LinkedHashSet<>(Arrays.asList(keys));
+    }
+}
@@ -0,0 +1,140 @@
+package com.ispengya.hotkey.remoting.protocol;
+
+import com.ispengya.hotkey.remoting.message.AccessReportMessage;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyTableTest {
+
+    @Test
+    void referenceDefinesNewKeysAndReusesLeastRecentlyUsedId() {
+        ClientKeyTable table = new ClientKeyTable(2);
+
+        assertEquals((0 << 1) | 1, table.reference("a"));
+        assertEquals((1 << 1) | 1, table.reference("b"));
+        assertEquals(0 << 1, table.reference("a"));
+        // b 最久未使用，c 复用 b 的 ID
+        assertEquals((1 << 1) | 1, table.reference("c"));
+        assertEquals(1, table.getEvictions());
+        assertEquals(2, table.size());
+        assertEquals(0 << 1, table.reference("a"));
+        // a 刚被访问，c 最久未使用，b 复用 c 的 ID
+        assertEquals((1 << 1) | 1, table.reference("b"));
+        assertEquals(2, table.getEvictions());
+    }
+
+    @Test
+    void roundTripWithEvictions() {
+        ClientKeyTable client = new ClientKeyTable(8);
+        ServerKeyTable server = new ServerKeyTable(8);
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            AccessReportMessage report = report("app", i);
+            int n = 1 + random.nextInt(6);
+            for (int j = 0; j < n; j++) {
+                report.getKeyAccessCounts().put("item:sku:" + random.nextInt(20) + (j % 5 == 0 ? "键" : ""),
+                        random.nextInt(200) - 20);
+            }
+            report.getKeyAccessCounts().put(null, 3);
+
+            AccessReportMessage decoded = roundTrip(report, client, server);
+
+            Map<String, Integer> expected = new LinkedHashMap<>(report.getKeyAccessCounts());
+            expected.remove(null);
+            assertEquals(expected, decoded.getKeyAccessCounts());
+            assertEquals("app", decoded.getAppName());
+            assertEquals(i, decoded.getTimestamp());
+        }
+        assertTrue(client.getEvictions() > 0);
+        assertEquals(8, client.size());
+    }
+
+    @Test
+    void droppedFrameRedefiningEvictedIdIsDetected() {
+        ClientKeyTable client = new ClientKeyTable(2);
+        ServerKeyTable server = new ServerKeyTable(2);
+        roundTrip(report("app", 1, "a", "b"), client, server);
+
+        // c 淘汰 a 并复用其 ID，这一帧没有到达服务端
+        BinarySerializer.serialize(report("app", 2, "c"), client);
+        byte[] next = BinarySerializer.serialize(report("app", 3, "c"), client);
+
+        // 否则服务端会把 c 的引用解析成旧的 a
+        assertThrows(IllegalArgumentException.class,
+                () -> BinarySerializer.deserialize(Unpooled.wrappedBuffer(next), server));
+    }
+
+    @Test
+    void freshTablesAfterResetRoundTripAgain() {
+        ClientKeyTable client = new ClientKeyTable(2);
+        ServerKeyTable server = new ServerKeyTable(2);
+        BinarySerializer.serialize(report("app", 1, "a"), client);
+        byte[] lost = BinarySerializer.serialize(report("app", 2, "a"), client);
+        assertThrows(IllegalArgumentException.class,
+                () -> BinarySerializer.deserialize(Unpooled.wrappedBuffer(lost), server));
+
+        ClientKeyTable newClient = new ClientKeyTable(2);
+        ServerKeyTable newServer = new ServerKeyTable(2);
+        AccessReportMessage decoded = roundTrip(report("app", 3, "a", "b"), newClient, newServer);
+        assertEquals(2, decoded.getKeyAccessCounts().size());
+    }
+
+    @Test
+    void undefinedOrOutOfRangeIdIsRejected() {
+        ServerKeyTable server = new ServerKeyTable(4);
+        assertThrows(IllegalArgumentException.class, () -> server.get(0));
+        assertThrows(IllegalArgumentException.class, () -> server.get(100));
+        assertThrows(IllegalArgumentException.class, () -> server.define(4, "x"));
+        assertThrows(IllegalArgumentException.class, () -> server.define(-1, "x"));
+        server.define(3, "x");
+        assertEquals("x", server.get(3));
+    }
+
+    @Test
+    void truncatedIndexedReportIsRejected() {
+        byte[] payload = BinarySerializer.serialize(report("app", 1, "order:1", "order:2"), new ClientKeyTable(4));
+        assertTrue(BinarySerializer.isIndexedReport(Unpooled.wrappedBuffer(payload)));
+        for (int length = 2; length < payload.length; length++) {
+            byte[] truncated = Arrays.copyOf(payload, length);
+            assertThrows(RuntimeException.class,
+                    () -> BinarySerializer.deserialize(Unpooled.wrappedBuffer(truncated), new ServerKeyTable(4)),
+                    "length " + length);
+        }
+    }
+
+    @Test
+    void indexedReportIsNotDecodedByGenericSerializer() {
+        byte[] payload = BinarySerializer.serialize(report("app", 1, "k"), new ClientKeyTable(4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BinarySerializer().deserialize(payload, AccessReportMessage.class));
+        assertFalse(BinarySerializer.isIndexedReport(Unpooled.wrappedBuffer(
+                new BinarySerializer().serialize(report("app", 1, "k")))));
+    }
+
+    private static AccessReportMessage roundTrip(AccessReportMessage report, ClientKeyTable client, ServerKeyTable server) {
+        byte[] payload = BinarySerializer.serialize(report, client);
+        return BinarySerializer.deserialize(Unpooled.wrappedBuffer(payload), server);
+    }
+
+    private static AccessReportMessage report(String appName, long timestamp, String... keys) {
+        AccessReportMessage report = new AccessReportMessage();
+        report.setAppName(appName);
+        report.setTimestamp(timestamp);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String key : keys) {
+            counts.put(key, 1);
+        }
+        report.setKeyAccessCounts(counts);
+        return report;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ispengya.hotkey.remoting.protocol;
+
+import com.ispengya.hotkey.remoting.message.AccessReportMessage;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.io.InvalidClassException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NegotiatingSerializerTest {
+
+    @Test
+    void jdkPayloadIsNotSniffedByDefault() {
+        NegotiatingSerializer serializer = new NegotiatingSerializer("binary");
+        byte[] jdkBytes = new JdkSerializer().serialize(report());
+
+        assertThrows(RuntimeException.class, () -> serializer.deserialize(jdkBytes, AccessReportMessage.class));
+        assertThrows(RuntimeException.class,
+                () -> serializer.deserialize(Unpooled.wrappedBuffer(jdkBytes), AccessReportMessage.class));
+        assertSame(serializer.forName(null), serializer.forName(JdkSerializer.NAME));
+        assertEquals(BinarySerializer.NAME, serializer.getName());
+        assertEquals(Fastjson2Serializer.NAME, new NegotiatingSerializer("jdk").getName());
+    }
+
+    @Test
+    void jdkPayloadIsAcceptedWhenEnabled() {
+        NegotiatingSerializer serializer = new NegotiatingSerializer("json", true);
+        byte[] jdkBytes = new JdkSerializer().serialize(report());
+
+        AccessReportMessage decoded = serializer.deserialize(jdkBytes, AccessReportMessage.class);
+
+        assertEquals("app", decoded.getAppName());
+        assertEquals(Collections.singletonMap("k", 1), decoded.getKeyAccessCounts());
+        assertEquals(JdkSerializer.NAME, serializer.forName(JdkSerializer.NAME).getName());
+    }
+
+    @Test
+    void jdkSerializerRejectsClassesOutsideAllowlist() {
+        JdkSerializer serializer = new JdkSerializer();
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> serializer.deserialize(serializer.serialize(new Date()), Object.class));
+        assertInstanceOf(InvalidClassException.class, e.getCause());
+
+        // 白名单内的容器中夹带其他类同样被拒绝
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("k", new ArrayList<String>());
+        e = assertThrows(RuntimeException.class,
+                () -> serializer.deserialize(Unpooled.wrappedBuffer(serializer.serialize(map)), Object.class));
+        assertInstanceOf(InvalidClassException.class, e.getCause());
+    }
+
+    @Test
+    void formatsAreDetectedPerPayload() {
+        NegotiatingSerializer serializer = new NegotiatingSerializer("json");
+        AccessReportMessage report = report();
+
+        byte[] json = serializer.serialize(report);
+        byte[] binary = serializer.forName(BinarySerializer.NAME).serialize(report);
+
+        assertEquals(report.getKeyAccessCounts(), serializer.deserialize(json, AccessReportMessage.class).getKeyAccessCounts());
+        assertEquals(report.getKeyAccessCounts(), serializer.deserialize(binary, AccessReportMessage.class).getKeyAccessCounts());
+        assertEquals(null, serializer.deserialize(new byte[0], AccessReportMessage.class));
+    }
+
+    private static AccessReportMessage report() {
+        AccessReportMessage report = new AccessReportMessage();
+        report.setAppName("app");
+        report.setTimestamp(1L);
+        report.setKeyAccessCounts(new HashMap<>(Collections.singletonMap("k", 1)));
+        return report;
+    }
+}
@@ -0,0 +1,55 @@
+package com.ispengya.hotkey.remoting.server;
+
+import com.ispengya.hotkey.remoting.codec.CommandDecoder;
+import com.ispengya.hotkey.remoting.protocol.ServerKeyTable;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerHandlerTest {
+
+    private static final int MAX_FRAME = 64;
+
+    @Test
+    void droppedFrameClosesChannelWithKeyTable() {
+        EmbeddedChannel channel = newChannel();
+        ServerKeyTable.bind(channel, new ServerKeyTable(16));
+
+        channel.writeInbound(oversizedFrame());
+
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    void droppedFrameKeepsChannelWithoutKeyTable() {
+        EmbeddedChannel channel = newChannel();
+
+        assertThrows(Exception.class, () -> {
+            channel.writeInbound(oversizedFrame());
+            channel.checkException();
+        });
+
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(
+                new CommandDecoder(MAX_FRAME, true),
+                new ServerHandler(new ServerChannelManager(0L), (ctx, command) -> { }));
+    }
+
+    private static ByteBuf oversizedFrame() {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(12 + MAX_FRAME * 2);
+        frame.writeInt(0);
+        frame.writeLong(0L);
+        frame.writeZero(MAX_FRAME * 2);
+        return frame;
+    }
+}
@@ -1,18 +1,20 @@
 package com.ispengya.hotkey.server;
 
+import com.ispengya.hotkey.remoting.codec.PayloadCompression;
 import com.ispengya.hotkey.remoting.protocol.CommandType;
-import com.ispengya.hotkey.remoting.protocol.Fastjson2Serializer;
-import com.ispengya.hotkey.remoting.protocol.Serializer;
+import com.ispengya.hotkey.remoting.protocol.NegotiatingSerializer;
 import com.ispengya.hotkey.remoting.server.NettyServer;
 import com.ispengya.hotkey.remoting.server.NettyServerConfig;
 import com.ispengya.hotkey.remoting.server.ServerChannelManager;
 import com.ispengya.hotkey.server.config.HotKeyServerProperties;
-import com.ispengya.hotkey.server.core.InstanceWindowRegistry;
 import com.ispengya.hotkey.server.core.InMemoryHotKeyResultStore;
-import com.ispengya.hotkey.server.core.HotKeyComputeAlgorithm;
+import com.ispengya.hotkey.server.core.InstanceAggStoreFactory;
+import com.ispengya.hotkey.server.core.HotKeyComputeAlgorithmFactory;
+import com.ispengya.hotkey.server.core.HotKeyRuleRegistry;
 import com.ispengya.hotkey.server.core.AccessReportPipeline;
 import com.ispengya.hotkey.server.remoting.DefaultServerRequestDispatcher;
 import com.ispengya.hotkey.server.remoting.HotKeyQueryHandler;
+import com.ispengya.hotkey.server.remoting.KeyTableNegotiateHandler;
 import com.ispengya.hotkey.server.remoting.PingRequestHandler;
 import com.ispengya.hotkey.server.remoting.PushChannelRegisterHandler;
 import com.ispengya.hotkey.server.remoting.ReportRequestHandler;
@@ -22,7 +24,6 @@ import com.ispengya.hotkey.server.scheduler.HotKeyChangePublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -45,6 +46,7 @@ public class HotKeyServerApplication {
         HotKeyServerProperties.Aggregator windowRegistryProps = properties.getAggregator();
         HotKeyServerProperties.Algorithm algorithmProps = properties.getAlgorithm();
         HotKeyServerProperties.Scheduler schedulerProps = properties.getScheduler();
+        HotKeyServerProperties.Pipeline pipelineProps = properties.getPipeline();
         NettyServerConfig serverConfig = new NettyServerConfig(
                 serverProps.getPort(),
                 serverProps.getBossThreads(),
@@ -54,31 +56,87 @@ public class HotKeyServerApplication {
                 serverProps.getReaderIdleSeconds(),
                 serverProps.getWriterIdleSeconds(),
                 serverProps.getAllIdleSeconds(),
-                serverProps.getMaxFrameBytes()
+                serverProps.getMaxFrameBytes(),
+                serverProps.getWriteBufferLowWaterMark(),
+                serverProps.getWriteBufferHighWaterMark(),
+                PayloadCompression.of(
+                        serverProps.getCompressionCodec(),
+                        serverProps.getCompressionThreshold(),
+                        serverProps.getCompressionThresholds()
+                ),
+                serverProps.getTransport(),
+                serverProps.getReusePortAcceptors()
         );
 
         // 2. Remoting components
-        ServerChannelManager channelManager = new ServerChannelManager();
+        ServerChannelManager channelManager = new ServerChannelManager(serverProps.getSlowConsumerTimeoutMillis());
         DefaultServerRequestDispatcher dispatcher = new DefaultServerRequestDispatcher();
         NettyServer nettyServer = new NettyServer(serverConfig, channelManager, dispatcher);
 
-        InstanceWindowRegistry windowRegistry = new InstanceWindowRegistry(
-                windowRegistryProps.getWindowSizeMillis(),
-                windowRegistryProps.getWindowSlotCount()
+        InMemoryHotKeyResultStore resultStore = new InMemoryHotKeyResultStore(
+                properties.getResult().getChangeLogCapacity()
         );
-        InMemoryHotKeyResultStore resultStore = new InMemoryHotKeyResultStore();
 
-        HotKeyComputeAlgorithm algorithm = new HotKeyComputeAlgorithm(
-                algorithmProps.getMinCountThreshold()
+        HotKeyComputeAlgorithmFactory algorithmFactory = new HotKeyComputeAlgorithmFactory(
+                algorithmProps.getStrategy(),
+                algorithmProps.getMinCountThreshold(),
+                algorithmProps.getMinQps(),
+                algorithmProps.getHalfLifeMillis(),
+                algorithmProps.getGrowthFactor(),
+                algorithmProps.getZScoreThreshold(),
+                algorithmProps.getSharePercent(),
+                algorithmProps.getExitRatio()
+        );
+        HotKeyRuleRegistry ruleRegistry = new HotKeyRuleRegistry(
+                algorithmProps.getRules(),
+                algorithmFactory,
+                windowRegistryProps.getWindowSizeMillis(),
+                windowRegistryProps.getWindowSlotCount(),
+                schedulerProps.getHotKeyIdleMillis(),
+                algorithmProps.getMinHoldMillis(),
+                algorithmProps.getMaxHotKeys()
         );
 
         HotKeyComputeTask.setDebugEnabled(properties.isDebugEnabled());
 
-        Serializer serializer = new Fastjson2Serializer();
-        HotKeyChangePublisher changePublisher = new HotKeyChangePublisher(channelManager, serializer, properties.isDebugEnabled());
+        NegotiatingSerializer serializer = new NegotiatingSerializer(
+                serverProps.getSerializer(),
+                serverProps.isJdkSerializerEnabled()
+        );
+        HotKeyChangePublisher changePublisher = new HotKeyChangePublisher(
+                channelManager,
+                serializer,
+                properties.getPush().getLingerMillis(),
+                properties.getPush().getMaxBatchKeys(),
+                properties.isDebugEnabled()
+        );
+        int shardCount = AccessReportPipeline.resolveShardCount(pipelineProps.getShardCount());
+        long expiryTickMillis = AccessReportPipeline.resolveExpiryTickMillis(
+                schedulerProps.getExpiryTickMillis(),
+                windowRegistryProps.getWindowSizeMillis()
+        );
+        InstanceAggStoreFactory storeFactory = new InstanceAggStoreFactory(
+                windowRegistryProps.getWindowSizeMillis(),
+                windowRegistryProps.getWindowSlotCount(),
+                windowRegistryProps.getMode(),
+                windowRegistryProps.getAppModes(),
+                windowRegistryProps.getSketchWidth(),
+                windowRegistryProps.getSketchDepth(),
+                windowRegistryProps.getSketchTopK(),
+                windowRegistryProps.getOffHeapMaxBytes(),
+                shardCount
+        );
         AccessReportPipeline pipeline = new AccessReportPipeline(
-                windowRegistry,
-                algorithm,
+                storeFactory,
+                shardCount,
+                pipelineProps.getShardQueueCapacity(),
+                pipelineProps.getOverloadPolicy(),
+                pipelineProps.getSampleRate(),
+                pipelineProps.getShedWatermarkPercent(),
+                pipelineProps.getBatchSize(),
+                pipelineProps.getMaxLingerMillis(),
+                expiryTickMillis,
+                ruleRegistry,
                 resultStore,
                 changePublisher
         );
@@ -87,24 +145,16 @@ public class HotKeyServerApplication {
         dispatcher.registerHandler(CommandType.HOT_KEY_QUERY, new HotKeyQueryHandler(resultStore, serializer, properties.isDebugEnabled()));
         dispatcher.registerHandler(CommandType.ADMIN_PING, new PingRequestHandler(properties.isDebugEnabled()));
         dispatcher.registerHandler(CommandType.PUSH_CHANNEL_REGISTER, new PushChannelRegisterHandler(channelManager, serializer));
+        dispatcher.registerHandler(CommandType.KEY_TABLE_NEGOTIATE,
+                new KeyTableNegotiateHandler(properties.getServer().getKeyTableMaxEntries(), properties.isDebugEnabled()));
 
         ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
                 schedulerProps.getCorePoolSize()
         );
-        ExecutorService workerPool = Executors.newFixedThreadPool(
-                schedulerProps.getWorkerPoolSize()
-        );
         HotKeyScheduler hotKeyScheduler = new HotKeyScheduler(
                 scheduler,
-                workerPool,
-                windowRegistry,
-                algorithm,
-                resultStore,
-                schedulerProps.getPeriodMillis(),
-                changePublisher,
-                schedulerProps.getDecayPeriodMillis(),
-                schedulerProps.getHotKeyIdleMillis(),
-                properties.isDebugEnabled()
+                pipeline,
+                expiryTickMillis
         );
 
         // 6. Bootstrap
@@ -1,32 +1,58 @@
 package com.ispengya.hotkey.server.config;
 
+import com.ispengya.hotkey.remoting.protocol.CommandType;
+import com.ispengya.hotkey.remoting.transport.TransportType;
+import com.ispengya.hotkey.server.core.AggregationMode;
+import com.ispengya.hotkey.server.core.HotKeyRuleDefinition;
+import com.ispengya.hotkey.server.core.OverloadPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Function;
 
 public final class HotKeyServerProperties {
 
     private static final Logger log = LoggerFactory.getLogger(HotKeyServerProperties.class);
     private static final String DEFAULT_CONFIG_NAME = "hotkey-server.properties";
+    private static final String APP_MODE_PREFIX = "aggregator.mode.";
+    private static final String APP_STRATEGY_PREFIX = "algorithm.strategy.";
+    private static final String RULE_PREFIX = "rule.";
+    private static final String COMPRESSION_THRESHOLD_PREFIX = "server.compression.threshold.";
 
     private final Server server;
     private final Aggregator aggregator;
     private final Algorithm algorithm;
     private final Scheduler scheduler;
+    private final Pipeline pipeline;
+    private final Result result;
+    private final Push push;
     private final boolean debugEnabled;
 
     private HotKeyServerProperties(Server server,
                                    Aggregator aggregator,
                                    Algorithm algorithm,
                                    Scheduler scheduler,
+                                   Pipeline pipeline,
+                                   Result result,
+                                   Push push,
                                    boolean debugEnabled) {
         this.server = server;
         this.aggregator = aggregator;
         this.algorithm = algorithm;
         this.scheduler = scheduler;
+        this.pipeline = pipeline;
+        this.result = result;
+        this.push = push;
         this.debugEnabled = debugEnabled;
     }
 
@@ -51,29 +77,73 @@ public final class HotKeyServerProperties {
                 getInt(props, "server.readerIdleSeconds", 60),
                 getInt(props, "server.writerIdleSeconds", 0),
                 getInt(props, "server.allIdleSeconds", 0),
-                getInt(props, "server.maxFrameBytes", 1024 * 1024)
+                getInt(props, "server.maxFrameBytes", 1024 * 1024),
+                getInt(props, "server.writeBufferLowWaterMark", 32 * 1024),
+                getInt(props, "server.writeBufferHighWaterMark", 64 * 1024),
+                getLong(props, "server.slowConsumerTimeoutMillis", 30000L),
+                getString(props, "server.serializer", "json"),
+                getBoolean(props, "server.jdkSerializerEnabled", false),
+                getInt(props, "server.keyTableMaxEntries", 65536),
+                getString(props, "server.compression.codec", "none"),
+                getInt(props, "server.compression.threshold", 16 * 1024),
+                getCompressionThresholds(props),
+                TransportType.of(getString(props, "server.transport", "nio")),
+                getInt(props, "server.reusePortAcceptors", 1)
         );
 
         Aggregator aggregator = new Aggregator(
                 getLong(props, "aggregator.windowSizeMillis", 1000L),
-                getInt(props, "aggregator.windowSlotCount", 30)
+                getInt(props, "aggregator.windowSlotCount", 30),
+                getEnum(props, "aggregator.mode", AggregationMode.class, AggregationMode.EXACT),
+                getAppModes(props),
+                getInt(props, "aggregator.sketch.width", 2048),
+                getInt(props, "aggregator.sketch.depth", 4),
+                getInt(props, "aggregator.sketch.topK", 1024),
+                getLong(props, "aggregator.offHeap.maxBytes", 256L * 1024 * 1024)
         );
 
         Algorithm algorithm = new Algorithm(
-                getLong(props, "algorithm.minCountThreshold", 3L)
+                getString(props, "algorithm.strategy", "count"),
+                getRules(props),
+                getLong(props, "algorithm.minCountThreshold", 3L),
+                getDouble(props, "algorithm.minQps", 1.0d),
+                getLong(props, "algorithm.halfLifeMillis", 10000L),
+                getDouble(props, "algorithm.growthFactor", 3.0d),
+                getDouble(props, "algorithm.zScoreThreshold", 3.0d),
+                getDouble(props, "algorithm.sharePercent", 1.0d),
+                getDouble(props, "algorithm.exitRatio", 0.8d),
+                getLong(props, "algorithm.minHoldMillis", 0L),
+                getInt(props, "algorithm.maxHotKeys", 0)
         );
 
         Scheduler scheduler = new Scheduler(
                 getInt(props, "scheduler.corePoolSize", 1),
-                getInt(props, "scheduler.workerPoolSize", 4),
-                getLong(props, "scheduler.periodMillis", 1000L),
-                getLong(props, "scheduler.decayPeriodMillis", 1000L),
+                getLong(props, "scheduler.expiryTickMillis", 0L),
                 getLong(props, "scheduler.hotKeyIdleMillis", 60000L)
         );
 
+        Pipeline pipeline = new Pipeline(
+                getInt(props, "pipeline.shardCount", 0),
+                getInt(props, "pipeline.shardQueueCapacity", 16384),
+                getEnum(props, "pipeline.overloadPolicy", OverloadPolicy.class, OverloadPolicy.DOWN_SAMPLE),
+                getInt(props, "pipeline.sampleRate", 10),
+                getInt(props, "pipeline.shedWatermarkPercent", 80),
+                getInt(props, "pipeline.batchSize", 256),
+                getLong(props, "pipeline.maxLingerMillis", 2L)
+        );
+
+        Result result = new Result(
+                getInt(props, "result.changeLogCapacity", 1024)
+        );
+
+        Push push = new Push(
+                getLong(props, "push.lingerMillis", 5L),
+                getInt(props, "push.maxBatchKeys", 1024)
+        );
+
         boolean debugEnabled = getBoolean(props, "logging.debugEnabled", false);
 
-        return new HotKeyServerProperties(server, aggregator, algorithm, scheduler, debugEnabled);
+        return new HotKeyServerProperties(server, aggregator, algorithm, scheduler, pipeline, result, push, debugEnabled);
     }
 
     public Server getServer() {
@@ -92,6 +162,18 @@ public final class HotKeyServerProperties {
         return scheduler;
     }
 
+    public Pipeline getPipeline() {
+        return pipeline;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public Push getPush() {
+        return push;
+    }
+
     public boolean isDebugEnabled() {
         return debugEnabled;
     }
@@ -122,6 +204,27 @@ public final class HotKeyServerProperties {
         }
     }
 
+    private static double getDouble(Properties props, String key, double defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid double for key {}, value {}. Using default {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static String getString(Properties props, String key, String defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
     private static boolean getBoolean(Properties props, String key, boolean defaultValue) {
         String value = props.getProperty(key);
         if (value == null || value.isEmpty()) {
@@ -138,6 +241,176 @@ public final class HotKeyServerProperties {
         return defaultValue;
     }
 
+    private static <E extends Enum<E>> E getEnum(Properties props, String key, Class<E> type, E defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid {} for key {}, value {}. Using default {}",
+                    type.getSimpleName(), key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 读取按应用覆盖的聚合方式，配置形如 {@code aggregator.mode.<appName>=SKETCH}。
+     */
+    private static Map<String, AggregationMode> getAppModes(Properties props) {
+        Map<String, AggregationMode> modes = new HashMap<>();
+        for (String name : props.stringPropertyNames()) {
+            if (!name.startsWith(APP_MODE_PREFIX) || name.length() == APP_MODE_PREFIX.length()) {
+                continue;
+            }
+            AggregationMode mode = getEnum(props, name, AggregationMode.class, null);
+            if (mode != null) {
+                modes.put(name.substring(APP_MODE_PREFIX.length()), mode);
+            }
+        }
+        return modes;
+    }
+
+    /**
+     * 读取按命令类型覆盖的压缩阈值，配置形如 {@code server.compression.threshold.HOT_KEY_QUERY=4096}。
+     */
+    private static Map<CommandType, Integer> getCompressionThresholds(Properties props) {
+        Map<CommandType, Integer> thresholds = new EnumMap<>(CommandType.class);
+        for (String name : props.stringPropertyNames()) {
+            if (!name.startsWith(COMPRESSION_THRESHOLD_PREFIX)
+                    || name.length() == COMPRESSION_THRESHOLD_PREFIX.length()) {
+                continue;
+            }
+            String typeName = name.substring(COMPRESSION_THRESHOLD_PREFIX.length()).trim();
+            CommandType type;
+            try {
+                type = CommandType.valueOf(typeName);
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown command type {} for key {}, ignored", typeName, name);
+                continue;
+            }
+            thresholds.put(type, getInt(props, name, 0));
+        }
+        return thresholds;
+    }
+
+    /**
+     * 读取按应用、按 key 前缀配置的判定规则。
+     *
+     * <p>应用级规则形如 {@code rule.<appName>.<field>=value}，前缀规则形如
+     * {@code rule.<appName>[<ruleName>].<field>=value}，其中 {@code prefix} 字段给出 key 前缀
+     * （可以以 {@code *} 结尾）。其他字段为 strategy、threshold、exitThreshold、windowMillis、idleMillis、
+     * minHoldMillis、maxHotKeys。
+     * 为兼容旧配置，{@code algorithm.strategy.<appName>=share} 等同于 {@code rule.<appName>.strategy=share}。</p>
+     */
+    private static List<HotKeyRuleDefinition> getRules(Properties props) {
+        // appName -> ruleName（应用级规则为空串）-> 字段
+        Map<String, Map<String, Map<String, String>>> grouped = new TreeMap<>();
+        for (String name : props.stringPropertyNames()) {
+            if (!name.startsWith(RULE_PREFIX)) {
+                continue;
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot <= RULE_PREFIX.length()) {
+                log.warn("Invalid rule key {}, ignored", name);
+                continue;
+            }
+            String target = name.substring(RULE_PREFIX.length(), dot);
+            String appName = target;
+            String ruleName = "";
+            int open = target.lastIndexOf('[');
+            if (target.endsWith("]") && open > 0) {
+                appName = target.substring(0, open);
+                ruleName = target.substring(open + 1, target.length() - 1);
+            }
+            String value = getString(props, name, null);
+            if (value != null) {
+                grouped.computeIfAbsent(appName, k -> new TreeMap<>())
+                        .computeIfAbsent(ruleName, k -> new HashMap<>())
+                        .put(name.substring(dot + 1), value);
+            }
+        }
+        for (String name : props.stringPropertyNames()) {
+            if (!name.startsWith(APP_STRATEGY_PREFIX) || name.length() == APP_STRATEGY_PREFIX.length()) {
+                continue;
+            }
+            String strategy = getString(props, name, null);
+            if (strategy != null) {
+                grouped.computeIfAbsent(name.substring(APP_STRATEGY_PREFIX.length()), k -> new TreeMap<>())
+                        .computeIfAbsent("", k -> new HashMap<>())
+                        .putIfAbsent("strategy", strategy);
+            }
+        }
+
+        List<HotKeyRuleDefinition> rules = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Map<String, String>>> app : grouped.entrySet()) {
+            for (Map.Entry<String, Map<String, String>> rule : app.getValue().entrySet()) {
+                HotKeyRuleDefinition definition = toRule(app.getKey(), rule.getKey(), rule.getValue());
+                if (definition != null) {
+                    rules.add(definition);
+                }
+            }
+        }
+        return rules;
+    }
+
+    private static HotKeyRuleDefinition toRule(String appName, String ruleName, Map<String, String> fields) {
+        String prefix = null;
+        if (!ruleName.isEmpty()) {
+            prefix = fields.get("prefix");
+            if (prefix != null && prefix.endsWith("*")) {
+                prefix = prefix.substring(0, prefix.length() - 1);
+            }
+            if (prefix == null || prefix.indexOf('*') >= 0) {
+                log.warn("Rule {}[{}] needs a key prefix (optionally ending with *), ignored", appName, ruleName);
+                return null;
+            }
+        }
+        String where = ruleName.isEmpty() ? appName : appName + "[" + ruleName + "]";
+        for (String field : fields.keySet()) {
+            switch (field) {
+                case "prefix":
+                case "strategy":
+                case "threshold":
+                case "exitThreshold":
+                case "windowMillis":
+                case "idleMillis":
+                case "minHoldMillis":
+                case "maxHotKeys":
+                    break;
+                default:
+                    log.warn("Unknown field {} for rule {}, ignored", field, where);
+            }
+        }
+        return new HotKeyRuleDefinition(
+                appName,
+                prefix,
+                fields.get("strategy"),
+                parseRuleNumber(where, "threshold", fields.get("threshold"), Double::valueOf),
+                parseRuleNumber(where, "exitThreshold", fields.get("exitThreshold"), Double::valueOf),
+                parseRuleNumber(where, "windowMillis", fields.get("windowMillis"), Long::valueOf),
+                parseRuleNumber(where, "idleMillis", fields.get("idleMillis"), Long::valueOf),
+                parseRuleNumber(where, "minHoldMillis", fields.get("minHoldMillis"), Long::valueOf),
+                parseRuleNumber(where, "maxHotKeys", fields.get("maxHotKeys"), Integer::valueOf)
+        );
+    }
+
+    private static <N extends Number> N parseRuleNumber(String rule,
+                                                        String field,
+                                                        String value,
+                                                        Function<String, N> parser) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {} for rule {}, value {}. Inheriting", field, rule, value);
+            return null;
+        }
+    }
+
     public static final class Server {
 
         private final int port;
@@ -149,6 +422,17 @@ public final class HotKeyServerProperties {
         private final int writerIdleSeconds;
         private final int allIdleSeconds;
         private final int maxFrameBytes;
+        private final int writeBufferLowWaterMark;
+        private final int writeBufferHighWaterMark;
+        private final long slowConsumerTimeoutMillis;
+        private final String serializer;
+        private final boolean jdkSerializerEnabled;
+        private final int keyTableMaxEntries;
+        private final String compressionCodec;
+        private final int compressionThreshold;
+        private final Map<CommandType, Integer> compressionThresholds;
+        private final TransportType transport;
+        private final int reusePortAcceptors;
 
         public Server(int port,
                       int bossThreads,
@@ -158,7 +442,18 @@ public final class HotKeyServerProperties {
                       int readerIdleSeconds,
                       int writerIdleSeconds,
                       int allIdleSeconds,
-                      int maxFrameBytes) {
+                      int maxFrameBytes,
+                      int writeBufferLowWaterMark,
+                      int writeBufferHighWaterMark,
+                      long slowConsumerTimeoutMillis,
+                      String serializer,
+                      boolean jdkSerializerEnabled,
+                      int keyTableMaxEntries,
+                      String compressionCodec,
+                      int compressionThreshold,
+                      Map<CommandType, Integer> compressionThresholds,
+                      TransportType transport,
+                      int reusePortAcceptors) {
             this.port = port;
             this.bossThreads = bossThreads;
             this.workerThreads = workerThreads;
@@ -168,6 +463,19 @@ public final class HotKeyServerProperties {
             this.writerIdleSeconds = writerIdleSeconds;
             this.allIdleSeconds = allIdleSeconds;
             this.maxFrameBytes = maxFrameBytes;
+            this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+            this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+            this.slowConsumerTimeoutMillis = slowConsumerTimeoutMillis;
+            this.serializer = serializer;
+            this.jdkSerializerEnabled = jdkSerializerEnabled;
+            this.keyTableMaxEntries = keyTableMaxEntries;
+            this.compressionCodec = compressionCodec;
+            this.compressionThreshold = compressionThreshold;
+            this.compressionThresholds = compressionThresholds == null
+                    ? Collections.<CommandType, Integer>emptyMap()
+                    : Collections.unmodifiableMap(compressionThresholds);
+            this.transport = transport;
+            this.reusePortAcceptors = reusePortAcceptors;
         }
 
         public int getPort() {
@@ -205,16 +513,79 @@ public final class HotKeyServerProperties {
         public int getMaxFrameBytes() {
             return maxFrameBytes;
         }
+
+        public int getWriteBufferLowWaterMark() {
+            return writeBufferLowWaterMark;
+        }
+
+        public int getWriteBufferHighWaterMark() {
+            return writeBufferHighWaterMark;
+        }
+
+        public long getSlowConsumerTimeoutMillis() {
+            return slowConsumerTimeoutMillis;
+        }
+
+        public String getSerializer() {
+            return serializer;
+        }
+
+        public boolean isJdkSerializerEnabled() {
+            return jdkSerializerEnabled;
+        }
+
+        public int getKeyTableMaxEntries() {
+            return keyTableMaxEntries;
+        }
+
+        public String getCompressionCodec() {
+            return compressionCodec;
+        }
+
+        public int getCompressionThreshold() {
+            return compressionThreshold;
+        }
+
+        public Map<CommandType, Integer> getCompressionThresholds() {
+            return compressionThresholds;
+        }
+
+        public TransportType getTransport() {
+            return transport;
+        }
+
+        public int getReusePortAcceptors() {
+            return reusePortAcceptors;
+        }
     }
 
     public static final class Aggregator {
 
         private final long windowSizeMillis;
         private final int windowSlotCount;
-
-        public Aggregator(long windowSizeMillis, int windowSlotCount) {
+        private final AggregationMode mode;
+        private final Map<String, AggregationMode> appModes;
+        private final int sketchWidth;
+        private final int sketchDepth;
+        private final int sketchTopK;
+        private final long offHeapMaxBytes;
+
+        public Aggregator(long windowSizeMillis,
+                          int windowSlotCount,
+                          AggregationMode mode,
+                          Map<String, AggregationMode> appModes,
+                          int sketchWidth,
+                          int sketchDepth,
+                          int sketchTopK,
+                          long offHeapMaxBytes) {
             this.windowSizeMillis = windowSizeMillis;
             this.windowSlotCount = windowSlotCount;
+            this.mode = mode;
+            this.appModes = appModes == null ? Collections.emptyMap() : Collections.unmodifiableMap(appModes);
+            this.sketchWidth = sketchWidth;
+            this.sketchDepth = sketchDepth;
+            this.sketchTopK = sketchTopK;
+            this.offHeapMaxBytes = offHeapMaxBytes;
         }
 
         public long getWindowSizeMillis() {
@@ -224,38 +595,126 @@ public final class HotKeyServerProperties {
         public int getWindowSlotCount() {
             return windowSlotCount;
         }
+
+        public AggregationMode getMode() {
+            return mode;
+        }
+
+        public Map<String, AggregationMode> getAppModes() {
+            return appModes;
+        }
+
+        public int getSketchWidth() {
+            return sketchWidth;
+        }
+
+        public int getSketchDepth() {
+            return sketchDepth;
+        }
+
+        public int getSketchTopK() {
+            return sketchTopK;
+        }
+
+        public long getOffHeapMaxBytes() {
+            return offHeapMaxBytes;
+        }
     }
 
     public static final class Algorithm {
 
+        private final String strategy;
+        private final List<HotKeyRuleDefinition> rules;
         private final long minCountThreshold;
-
-        public Algorithm(long minCountThreshold) {
+        private final double minQps;
+        private final long halfLifeMillis;
+        private final double growthFactor;
+        private final double zScoreThreshold;
+        private final double sharePercent;
+        private final double exitRatio;
+        private final long minHoldMillis;
+        private final int maxHotKeys;
+
+        public Algorithm(String strategy,
+                         List<HotKeyRuleDefinition> rules,
+                         long minCountThreshold,
+                         double minQps,
+                         long halfLifeMillis,
+                         double growthFactor,
+                         double zScoreThreshold,
+                         double sharePercent,
+                         double exitRatio,
+                         long minHoldMillis,
+                         int maxHotKeys) {
+            this.strategy = strategy;
+            this.rules = rules;
             this.minCountThreshold = minCountThreshold;
+            this.minQps = minQps;
+            this.halfLifeMillis = halfLifeMillis;
+            this.growthFactor = growthFactor;
+            this.zScoreThreshold = zScoreThreshold;
+            this.sharePercent = sharePercent;
+            this.exitRatio = exitRatio;
+            this.minHoldMillis = minHoldMillis;
+            this.maxHotKeys = maxHotKeys;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public List<HotKeyRuleDefinition> getRules() {
+            return rules;
         }
 
         public long getMinCountThreshold() {
             return minCountThreshold;
         }
+
+        public double getMinQps() {
+            return minQps;
+        }
+
+        public long getHalfLifeMillis() {
+            return halfLifeMillis;
+        }
+
+        public double getGrowthFactor() {
+            return growthFactor;
+        }
+
+        public double getZScoreThreshold() {
+            return zScoreThreshold;
+        }
+
+        public double getSharePercent() {
+            return sharePercent;
+        }
+
+        public double getExitRatio() {
+            return exitRatio;
+        }
+
+        public long getMinHoldMillis() {
+            return minHoldMillis;
+        }
+
+        public int getMaxHotKeys() {
+            return maxHotKeys;
+        }
     }
 
     public static final class Scheduler {
 
         private final int corePoolSize;
-        private final int workerPoolSize;
-        private final long periodMillis;
-        private final long decayPeriodMillis;
+        private final long expiryTickMillis;
         private final long hotKeyIdleMillis;
 
         public Scheduler(int corePoolSize,
-                         int workerPoolSize,
-                         long periodMillis,
-                         long decayPeriodMillis,
+                         long expiryTickMillis,
                          long hotKeyIdleMillis) {
             this.corePoolSize = corePoolSize;
-            this.workerPoolSize = workerPoolSize;
-            this.periodMillis = periodMillis;
-            this.decayPeriodMillis = decayPeriodMillis;
+            this.expiryTickMillis = expiryTickMillis;
             this.hotKeyIdleMillis = hotKeyIdleMillis;
         }
 
@@ -263,20 +722,99 @@ public final class HotKeyServerProperties {
             return corePoolSize;
         }
 
-        public int getWorkerPoolSize() {
-            return workerPoolSize;
+        public long getExpiryTickMillis() {
+            return expiryTickMillis;
+        }
+
+        public long getHotKeyIdleMillis() {
+            return hotKeyIdleMillis;
+        }
+    }
+
+    public static final class Pipeline {
+
+        private final int shardCount;
+        private final int shardQueueCapacity;
+        private final OverloadPolicy overloadPolicy;
+        private final int sampleRate;
+        private final int shedWatermarkPercent;
+        private final int batchSize;
+        private final long maxLingerMillis;
+
+        public Pipeline(int shardCount,
+                        int shardQueueCapacity,
+                        OverloadPolicy overloadPolicy,
+                        int sampleRate,
+                        int shedWatermarkPercent,
+                        int batchSize,
+                        long maxLingerMillis) {
+            this.shardCount = shardCount;
+            this.shardQueueCapacity = shardQueueCapacity;
+            this.overloadPolicy = overloadPolicy;
+            this.sampleRate = sampleRate;
+            this.shedWatermarkPercent = shedWatermarkPercent;
+            this.batchSize = batchSize;
+            this.maxLingerMillis = maxLingerMillis;
         }
 
-        public long getPeriodMillis() {
-            return periodMillis;
+        public int getShardCount() {
+            return shardCount;
         }
 
-        public long getDecayPeriodMillis() {
-            return decayPeriodMillis;
+        public int getShardQueueCapacity() {
+            return shardQueueCapacity;
         }
 
-        public long getHotKeyIdleMillis() {
-            return hotKeyIdleMillis;
+        public OverloadPolicy getOverloadPolicy() {
+            return overloadPolicy;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public int getShedWatermarkPercent() {
+            return shedWatermarkPercent;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public long getMaxLingerMillis() {
+            return maxLingerMillis;
+        }
+    }
+
+    public static final class Result {
+
+        private final int changeLogCapacity;
+
+        public Result(int changeLogCapacity) {
+            this.changeLogCapacity = changeLogCapacity;
+        }
+
+        public int getChangeLogCapacity() {
+            return changeLogCapacity;
+        }
+    }
+
+    public static final class Push {
+
+        private final long lingerMillis;
+        private final int maxBatchKeys;
+
+        public Push(long lingerMillis, int maxBatchKeys) {
+            this.lingerMillis = lingerMillis;
+            this.maxBatchKeys = maxBatchKeys;
+        }
+
+        public long getLingerMillis() {
+            return lingerMillis;
+        }
+
+        public int getMaxBatchKeys() {
+            return maxBatchKeys;
         }
     }
 }
@@ -1,58 +1,273 @@
 package com.ispengya.hotkey.server.core;
 
-import com.ispengya.hotkey.server.model.AccessReport;
 import com.ispengya.hotkey.server.scheduler.HotKeyChangePublisher;
-import com.ispengya.hotkey.server.scheduler.HotKeyComputeTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
-public final class AccessReportPipeline {
+/**
+ * AccessReportPipeline 负责接收访问上报并交给各分片异步消费。
+ *
+ * <p>上报按 hash(appName, key) 路由到固定的 {@link AccessReportShard}，每个分片拥有
+ * 独立的有界环形队列和唯一的消费线程，并独占自己那一部分滑动窗口状态。
+ * 生产者之间只在各自目标分片的队列上竞争，消费者之间完全不共享窗口数据。</p>
+ *
+ * <p>一次上报会按分片拆成若干 {@link ReportBatch}，每个分片只入队一次。
+ * 提交从不阻塞调用线程（通常是 Netty IO 线程）：分片队列过载时
+ * 按配置的 {@link OverloadPolicy} 丢弃或采样，并累计丢弃、采样的 key 数量供外部观测。</p>
+ */
+public final class AccessReportPipeline implements InstanceRegistry, AppTrafficCounter {
 
-    private static final int DEFAULT_QUEUE_CAPACITY = 2_000_000;
+    private static final Logger log = LoggerFactory.getLogger(AccessReportPipeline.class);
 
-    private final InstanceWindowRegistry windowRegistry;
-    private final HotKeyComputeAlgorithm algorithm;
-    private final HotKeyResultStore resultStore;
-    private final HotKeyChangePublisher changePublisher;
+    /**
+     * 过载告警日志的最小间隔。
+     */
+    private static final long OVERLOAD_LOG_INTERVAL_MILLIS = 1000L;
 
-    private final BlockingQueue<AccessReport> queue;
+    private final AccessReportShard[] shards;
     private final ExecutorService consumerExecutor;
+    private final OverloadPolicy overloadPolicy;
 
-    public AccessReportPipeline(InstanceWindowRegistry windowRegistry,
-                                HotKeyComputeAlgorithm algorithm,
+    private final AtomicLong lastOverloadLogMillis = new AtomicLong();
+
+    public AccessReportPipeline(InstanceAggStoreFactory storeFactory,
+                                int shardCount,
+                                int shardQueueCapacity,
+                                OverloadPolicy overloadPolicy,
+                                int sampleRate,
+                                int shedWatermarkPercent,
+                                int batchSize,
+                                long maxLingerMillis,
+                                long expiryTickMillis,
+                                HotKeyRuleRegistry ruleRegistry,
                                 HotKeyResultStore resultStore,
                                 HotKeyChangePublisher changePublisher) {
-        this.windowRegistry = windowRegistry;
-        this.algorithm = algorithm;
-        this.resultStore = resultStore;
-        this.changePublisher = changePublisher;
-        this.queue = new LinkedBlockingQueue<>(DEFAULT_QUEUE_CAPACITY);
-        this.consumerExecutor = Executors.newFixedThreadPool(determineConsumerCount());
+        int n = resolveShardCount(shardCount);
+        this.shards = new AccessReportShard[n];
+        this.overloadPolicy = overloadPolicy;
+        for (int i = 0; i < n; i++) {
+            shards[i] = new AccessReportShard(
+                    i,
+                    shardQueueCapacity,
+                    overloadPolicy,
+                    sampleRate,
+                    shedWatermarkPercent,
+                    batchSize,
+                    maxLingerMillis,
+                    new InstanceWindowRegistry(storeFactory, ruleRegistry, expiryTickMillis),
+                    this,
+                    resultStore,
+                    changePublisher
+            );
+        }
+        this.consumerExecutor = Executors.newFixedThreadPool(n, new ThreadFactory() {
+            private int index = 0;
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "hotkey-pipeline-shard-" + index++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
         startConsumers();
     }
 
-    public void submit(AccessReport report) {
-        if (report == null || report.getKey() == null || report.getAppName() == null) {
+    /**
+     * 提交一次上报中的全部 key 计数，不会阻塞调用线程。
+     *
+     * <p>按 key 所属分片拆成若干 {@link ReportBatch}，每个分片只入队一次，
+     * 分配量只与分片数相关，不再为每个 key 创建上报对象。计数为空或非正数的 key 会被忽略。</p>
+     *
+     * @param appName   应用名
+     * @param keyCounts key 访问次数
+     * @return 因过载未被接收（丢弃或采样舍弃）的子批次数量
+     */
+    public int submit(String appName, Map<String, Integer> keyCounts) {
+        if (appName == null || keyCounts == null || keyCounts.isEmpty()) {
+            return 0;
+        }
+        int n = shards.length;
+        // 第一遍只统计每个分片的 key 数量，用于精确分配数组
+        int[] sizes = new int[n];
+        for (Map.Entry<String, Integer> entry : keyCounts.entrySet()) {
+            if (isValid(entry)) {
+                sizes[shardIndex(appName, entry.getKey())]++;
+            }
+        }
+        ReportBatch[] batches = new ReportBatch[n];
+        for (int i = 0; i < n; i++) {
+            if (sizes[i] > 0) {
+                batches[i] = new ReportBatch(appName, sizes[i]);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : keyCounts.entrySet()) {
+            if (isValid(entry)) {
+                batches[shardIndex(appName, entry.getKey())].add(entry.getKey(), entry.getValue());
+            }
+        }
+        int rejected = 0;
+        for (int i = 0; i < n; i++) {
+            if (batches[i] == null) {
+                continue;
+            }
+            SubmitStatus status = shards[i].offer(batches[i]);
+            recordOverload(status);
+            if (status == SubmitStatus.DROPPED || status == SubmitStatus.SHED) {
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * 因队列已满被丢弃的 key 数量。
+     */
+    public long getDroppedCount() {
+        long sum = 0L;
+        for (AccessReportShard shard : shards) {
+            sum += shard.getDroppedCount();
+        }
+        return sum;
+    }
+
+    /**
+     * DROP_OLDEST 策略下被挤出队列的旧 key 数量。
+     */
+    public long getEvictedCount() {
+        long sum = 0L;
+        for (AccessReportShard shard : shards) {
+            sum += shard.getEvictedCount();
+        }
+        return sum;
+    }
+
+    /**
+     * DOWN_SAMPLE 策略下因采样被舍弃的 key 数量。
+     */
+    public long getShedCount() {
+        long sum = 0L;
+        for (AccessReportShard shard : shards) {
+            sum += shard.getShedCount();
+        }
+        return sum;
+    }
+
+    /**
+     * DOWN_SAMPLE 策略下被保留并放大计数的 key 数量。
+     */
+    public long getSampledCount() {
+        long sum = 0L;
+        for (AccessReportShard shard : shards) {
+            sum += shard.getSampledCount();
+        }
+        return sum;
+    }
+
+    /**
+     * 当前所有分片队列中积压的子批次数量。
+     */
+    public long getPendingCount() {
+        long pending = 0L;
+        for (AccessReportShard shard : shards) {
+            pending += shard.getQueueSize();
+        }
+        return pending;
+    }
+
+    /**
+     * 请求所有分片推进热 key 到期时间轮。
+     *
+     * <p>推进在各分片消费线程下一次循环时执行，只处理已经空闲到期的热 key，调用方不会阻塞。</p>
+     */
+    public void requestExpiry() {
+        for (AccessReportShard shard : shards) {
+            shard.requestExpiry();
+        }
+    }
+
+    /**
+     * 汇总应用在所有分片中的窗口访问总量，成本与分片数相关，与 key 数量无关。
+     */
+    @Override
+    public long appTotalCount(String appName, long nowMillis) {
+        long total = 0L;
+        for (AccessReportShard shard : shards) {
+            AppKeySpace keySpace = shard.getWindowRegistry().findKeySpace(appName);
+            if (keySpace != null) {
+                total += keySpace.getStore().totalCount(nowMillis);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 列出所有分片中出现过的应用名。
+     */
+    @Override
+    public Set<String> listAppNames() {
+        Set<String> appNames = new HashSet<>();
+        for (AccessReportShard shard : shards) {
+            appNames.addAll(shard.getWindowRegistry().listAppNames());
+        }
+        return appNames;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private void recordOverload(SubmitStatus status) {
+        if (status == SubmitStatus.ACCEPTED) {
             return;
         }
-        try {
-            queue.put(report);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        long now = System.currentTimeMillis();
+        long last = lastOverloadLogMillis.get();
+        if (now - last >= OVERLOAD_LOG_INTERVAL_MILLIS
+                && lastOverloadLogMillis.compareAndSet(last, now)
+                && log.isWarnEnabled()) {
+            log.warn("Access report pipeline overloaded. policy={}, dropped={}, evicted={}, shed={}, sampled={}, pending={}",
+                    overloadPolicy, getDroppedCount(), getEvictedCount(), getShedCount(),
+                    getSampledCount(), getPendingCount());
         }
     }
 
     private void startConsumers() {
-        int nThreads = determineConsumerCount();
-        for (int i = 0; i < nThreads; i++) {
-            consumerExecutor.submit(this::consumeLoop);
+        for (AccessReportShard shard : shards) {
+            consumerExecutor.submit(shard);
         }
     }
 
-    private int determineConsumerCount() {
+    private static boolean isValid(Map.Entry<String, Integer> entry) {
+        Integer count = entry.getValue();
+        return entry.getKey() != null && count != null && count > 0;
+    }
+
+    private int shardIndex(String appName, String key) {
+        int h = appName.hashCode() * 31 + key.hashCode();
+        // 打散高位，避免相近 key 集中到同一分片
+        h ^= (h >>> 16);
+        return Math.floorMod(h, shards.length);
+    }
+
+    /**
+     * 解析实际的分片数量，配置为 0 或负数时取 CPU 核数的一半（至少为 1）。
+     *
+     * @param shardCount 配置的分片数量
+     * @return 实际分片数量
+     */
+    public static int resolveShardCount(int shardCount) {
+        if (shardCount > 0) {
+            return shardCount;
+        }
         int cores = Runtime.getRuntime().availableProcessors();
         if (cores <= 0) {
             return 1;
@@ -61,25 +276,14 @@ public final class AccessReportPipeline {
         return half > 0 ? half : 1;
     }
 
-    private void consumeLoop() {
-        while (true) {
-            try {
-                AccessReport report = queue.take();
-                String owner = report.getAppName();
-                windowRegistry.selectWindowForApp(owner).addReport(report);
-                HotKeyComputeTask.computeAndPublish(
-                        report.getAppName(),
-                        report.getKey(),
-                        windowRegistry,
-                        algorithm,
-                        resultStore,
-                        changePublisher
-                );
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Throwable ignored) {
-            }
-        }
+    /**
+     * 解析热 key 到期精度：不超过窗口槽跨度的值按窗口槽跨度处理（0 即默认等于窗口槽跨度）。
+     *
+     * @param expiryTickMillis 配置的到期精度
+     * @param windowSizeMillis 窗口槽跨度
+     * @return 实际使用的到期精度
+     */
+    public static long resolveExpiryTickMillis(long expiryTickMillis, long windowSizeMillis) {
+        return Math.max(Math.max(1L, windowSizeMillis), expiryTickMillis);
     }
 }
@@ -0,0 +1,333 @@
+package com.ispengya.hotkey.server.core;
+
+import com.ispengya.hotkey.server.scheduler.HotKeyChangePublisher;
+import com.ispengya.hotkey.server.scheduler.HotKeyComputeTask;
+import com.ispengya.hotkey.server.scheduler.HotKeyDecayTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AccessReportShard 是上报管道中的一个分片。
+ *
+ * <p>每个分片拥有一个有界的 {@link MpscRingBuffer} 和唯一的消费线程，队列元素是
+ * 一次上报中路由到本分片的 {@link ReportBatch}，
+ * 并独占路由到该分片的 (appName, key) 对应的滑动窗口状态。窗口的读写都只发生在
+ * 消费线程内，因此无需加锁，同一个 key 的上报也按入队顺序处理。</p>
+ *
+ * <p>消费线程按批取出子批次（最多 batchSize 个，最长等待 maxLingerMillis），先在批内按
+ * (appName, key) 合并计数，再对每个不同的 key 只写一次窗口、只做一次热 key 判定，
+ * 避免同一秒内被大量实例上报的 key 被重复计算。</p>
+ *
+ * @author ispengya
+ */
+final class AccessReportShard implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessReportShard.class);
+
+    /**
+     * 队列为空时消费线程的休眠时间。
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    /**
+     * 攒批等待期间每次休眠的时间。
+     */
+    private static final long LINGER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    /**
+     * DROP_OLDEST 策略下挤占队头的最大尝试次数，避免与其他生产者无限竞争。
+     */
+    private static final int MAX_EVICT_ATTEMPTS = 4;
+
+    private final int index;
+    private final MpscRingBuffer<ReportBatch> queue;
+    private final OverloadPolicy overloadPolicy;
+    private final int sampleRate;
+    private final int shedThreshold;
+    private final InstanceWindowRegistry windowRegistry;
+    private final HotKeyContext computeContext;
+    private final HotKeyResultStore resultStore;
+    private final HotKeyChangePublisher changePublisher;
+    private final int batchSize;
+    private final long lingerNanos;
+
+    /**
+     * 过载时被丢弃、挤出、采样舍弃以及采样保留的 key 数量。
+     */
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder shedCount = new LongAdder();
+    private final LongAdder sampledCount = new LongAdder();
+
+    /**
+     * 当前批次取出的子批次，仅由消费线程使用并在每批结束后清空复用。
+     */
+    private final List<ReportBatch> batch;
+
+    /**
+     * 当前批次中有待写入计数的应用。
+     */
+    private final List<AppKeySpace> pending = new ArrayList<>();
+
+    /**
+     * 每个 key 写入窗口后的热度判定回调。
+     */
+    private final AppKeySpace.PendingKeyConsumer computeConsumer;
+
+    /**
+     * 热 key 到期时间轮，与窗口状态一样只由消费线程访问。
+     */
+    private final ExpiryTimingWheel expiryWheel;
+
+    /**
+     * 是否有待执行的时间轮推进请求。
+     */
+    private final AtomicBoolean expiryRequested = new AtomicBoolean();
+
+    /**
+     * 本次时间推进中有热 key 到期的应用。
+     */
+    private final List<AppKeySpace> expiredSpaces = new ArrayList<>();
+
+    /**
+     * 时间轮到期回调。
+     */
+    private final Consumer<ExpiryTimingWheel.Node> expiryConsumer;
+
+    /**
+     * 当前批次的写入时间。
+     */
+    private long batchNowMillis;
+
+    AccessReportShard(int index,
+                      int queueCapacity,
+                      OverloadPolicy overloadPolicy,
+                      int sampleRate,
+                      int shedWatermarkPercent,
+                      int batchSize,
+                      long maxLingerMillis,
+                      InstanceWindowRegistry windowRegistry,
+                      AppTrafficCounter trafficCounter,
+                      HotKeyResultStore resultStore,
+                      HotKeyChangePublisher changePublisher) {
+        this.index = index;
+        this.queue = new MpscRingBuffer<>(queueCapacity);
+        this.overloadPolicy = overloadPolicy == null ? OverloadPolicy.DROP_NEWEST : overloadPolicy;
+        this.sampleRate = Math.max(1, sampleRate);
+        int percent = Math.min(100, Math.max(1, shedWatermarkPercent));
+        this.shedThreshold = (int) ((long) queue.capacity() * percent / 100L);
+        this.windowRegistry = windowRegistry;
+        this.computeContext = new HotKeyContext(trafficCounter);
+        this.resultStore = resultStore;
+        this.changePublisher = changePublisher;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxLingerMillis));
+        this.batch = new ArrayList<>(this.batchSize);
+        this.computeConsumer = (keySpace, keyId) -> {
+            computeContext.reset(keySpace, keyId, batchNowMillis);
+            HotKeyComputeTask.computeAndPublish(keySpace, keyId, computeContext, resultStore, changePublisher);
+        };
+        this.expiryWheel = windowRegistry.getExpiryWheel();
+        this.expiryConsumer = node -> {
+            AppKeySpace keySpace = AppKeySpace.expire(node);
+            if (keySpace != null) {
+                expiredSpaces.add(keySpace);
+            }
+        };
+    }
+
+    /**
+     * 将一个子批次放入分片队列，不会阻塞调用线程。
+     *
+     * <p>队列过载时按 {@link OverloadPolicy} 处理，丢弃、挤出、采样的 key 数量累计在分片内，
+     * 并通过返回值告知调用方结果。</p>
+     *
+     * @param batch 路由到本分片的上报子批次
+     * @return 提交结果
+     */
+    SubmitStatus offer(ReportBatch batch) {
+        switch (overloadPolicy) {
+            case DOWN_SAMPLE:
+                return offerSampled(batch);
+            case DROP_OLDEST:
+                return offerEvictingOldest(batch);
+            case DROP_NEWEST:
+            default:
+                return offerOrDrop(batch, SubmitStatus.ACCEPTED);
+        }
+    }
+
+    private SubmitStatus offerSampled(ReportBatch batch) {
+        if (sampleRate <= 1 || queue.size() < shedThreshold) {
+            return offerOrDrop(batch, SubmitStatus.ACCEPTED);
+        }
+        int before = batch.size();
+        batch.sample(sampleRate);
+        shedCount.add(before - batch.size());
+        if (batch.size() == 0) {
+            return SubmitStatus.SHED;
+        }
+        SubmitStatus status = offerOrDrop(batch, SubmitStatus.SAMPLED);
+        if (status == SubmitStatus.SAMPLED) {
+            sampledCount.add(batch.size());
+        }
+        return status;
+    }
+
+    private SubmitStatus offerEvictingOldest(ReportBatch batch) {
+        if (queue.offer(batch)) {
+            return SubmitStatus.ACCEPTED;
+        }
+        boolean evicted = false;
+        for (int i = 0; i < MAX_EVICT_ATTEMPTS; i++) {
+            ReportBatch oldest = queue.poll();
+            if (oldest != null) {
+                evictedCount.add(oldest.size());
+                evicted = true;
+            }
+            if (queue.offer(batch)) {
+                return evicted ? SubmitStatus.EVICTED_OLDEST : SubmitStatus.ACCEPTED;
+            }
+        }
+        droppedCount.add(batch.size());
+        return SubmitStatus.DROPPED;
+    }
+
+    private SubmitStatus offerOrDrop(ReportBatch batch, SubmitStatus accepted) {
+        if (queue.offer(batch)) {
+            return accepted;
+        }
+        droppedCount.add(batch.size());
+        return SubmitStatus.DROPPED;
+    }
+
+    long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    long getShedCount() {
+        return shedCount.sum();
+    }
+
+    long getSampledCount() {
+        return sampledCount.sum();
+    }
+
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    InstanceWindowRegistry getWindowRegistry() {
+        return windowRegistry;
+    }
+
+    void requestExpiry() {
+        expiryRequested.set(true);
+    }
+
+    @Override
+    public void run() {
+        Thread current = Thread.currentThread();
+        while (!current.isInterrupted()) {
+            advanceExpiryIfRequested();
+            if (fillBatch() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                processBatch();
+            } catch (Throwable t) {
+                log.error("Failed to consume access report batch. shard={}, batches={}", index, batch.size(), t);
+            } finally {
+                batch.clear();
+                for (AppKeySpace keySpace : pending) {
+                    keySpace.clearPending();
+                }
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * 从队列中批量取出子批次，直到达到批大小或超过最长等待时间。
+     *
+     * @return 本批取出的数量
+     */
+    private int fillBatch() {
+        int drained = queue.drainTo(batch, batchSize);
+        if (drained == 0 || drained >= batchSize || lingerNanos <= 0L) {
+            return drained;
+        }
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                break;
+            }
+            if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                LockSupport.parkNanos(Math.min(remaining, LINGER_PARK_NANOS));
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * 按 (appName, key) 合并本批上报，每个不同 key 只写一次窗口、只判定一次热度。
+     *
+     * <p>key 在这里被编码为所属应用字典中的 int ID，后续窗口写入与热度判定都基于 ID。</p>
+     */
+    private void processBatch() {
+        AppKeySpace keySpace = null;
+        for (ReportBatch reports : batch) {
+            if (keySpace == null || !keySpace.getAppName().equals(reports.getAppName())) {
+                keySpace = windowRegistry.selectKeySpaceForApp(reports.getAppName());
+            }
+            boolean firstPending = !keySpace.hasPending();
+            for (int i = 0; i < reports.size(); i++) {
+                long count = reports.countAt(i);
+                // 上报只携带访问次数，全部按成功、无耗时计入
+                keySpace.accumulate(reports.keyAt(i), count, count, 0L);
+            }
+            if (firstPending && keySpace.hasPending()) {
+                pending.add(keySpace);
+            }
+        }
+        batchNowMillis = System.currentTimeMillis();
+        for (AppKeySpace space : pending) {
+            space.flushPending(batchNowMillis, computeConsumer);
+        }
+    }
+
+    /**
+     * 推进热 key 到期时间轮，只有到期的条目会被处理，到期的 key 按应用合并后发布。
+     */
+    private void advanceExpiryIfRequested() {
+        if (!expiryRequested.getAndSet(false)) {
+            return;
+        }
+        try {
+            expiryWheel.advance(System.currentTimeMillis(), expiryConsumer);
+            for (AppKeySpace keySpace : expiredSpaces) {
+                try {
+                    new HotKeyDecayTask(keySpace, resultStore, changePublisher).run();
+                } catch (Throwable t) {
+                    log.error("Failed to expire hot keys. shard={}, appName={}", index, keySpace.getAppName(), t);
+                }
+            }
+        } finally {
+            expiredSpaces.clear();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * AggregationMode 定义应用滑动窗口的聚合方式。
+ *
+ * @author ispengya
+ */
+public enum AggregationMode {
+
+    /**
+     * 每个 key 精确计数，内存随窗口内不同 key 的数量增长。
+     */
+    EXACT,
+
+    /**
+     * 使用分槽 Count-Min Sketch 估算计数，并以 Space-Saving 维护有界的候选热 key 集合。
+     * 内存固定，计数只会高估不会低估，适合 key 空间极大的长尾应用。
+     */
+    SKETCH,
+
+    /**
+     * 每个 key 精确计数，但计数保存在按预算一次性分配的堆外开放寻址表中，
+     * 运行期间不产生堆对象；表满时新 key 不再被跟踪。
+     */
+    OFF_HEAP
+}
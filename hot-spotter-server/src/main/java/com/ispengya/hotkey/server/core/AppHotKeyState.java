@@ -0,0 +1,434 @@
+package com.ispengya.hotkey.server.core;
+
+import com.ispengya.hotkey.server.model.HotKeyDelta;
+import com.ispengya.hotkey.server.model.HotKeyResult;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AppHotKeyState 保存单个应用当前生效的热 key 集合及其版本。
+ *
+ * <p>所有分片线程共享同一个实例，增删在对象锁内完成。版本号是单调递增的序号：
+ * 以状态创建时的毫秒时间戳为起点，每次实际发生变化加一，因此服务端重启后的版本通常
+ * 仍大于重启前客户端持有的版本；重复加入已存在的 key 或删除不存在的 key 不会产生新版本。</p>
+ *
+ * <p>最近的变更按 (version, added, removed) 记录在定长的环形日志中，读取方可以通过
+ * {@link #changesSince(long)} 只获取某个版本之后的净变化，而不必复制整个集合。
+ * 完整快照 {@link #snapshot()} 在版本变化后第一次被读取时才生成，并缓存到下一次变化。</p>
+ *
+ * <p>每个热 key 记录其命中的 {@link HotKeyRule} 与最近一次判定时的窗口得分（窗口内访问次数），
+ * 热 key 按得分组织为带位置索引的小顶堆，刷新得分与取最弱的 key 都是 O(log n)。
+ * 应用级规则的数量上限按 top-K 维护：集合已满时，新 key 的得分高于当前最弱的热 key 才会将其替换，
+ * 加入与替换共用一个版本；前缀规则的数量上限已满时直接拒绝新 key。</p>
+ *
+ * @author ispengya
+ */
+public final class AppHotKeyState {
+
+    /**
+     * {@link #add} 的返回值：key 已经是热 key，没有产生新版本。
+     */
+    public static final long NOT_CHANGED = -1L;
+
+    /**
+     * {@link #add} 的返回值：热 key 数量已达上限且得分不足以替换，key 未被加入。
+     */
+    public static final long REJECTED = -2L;
+
+    private static final String[] EMPTY = new String[0];
+
+    private final String appName;
+
+    /**
+     * 热 key -> 规则与得分。
+     */
+    private final Map<String, HotEntry> hotKeys = new HashMap<>();
+
+    /**
+     * 按得分排列的小顶堆，堆顶是最弱的热 key。
+     */
+    private HotEntry[] heap = new HotEntry[16];
+
+    /**
+     * 设置了数量上限的前缀规则当前命中的热 key 数量；应用级规则直接使用集合大小。
+     */
+    private final Map<HotKeyRule, int[]> ruleCounts = new IdentityHashMap<>();
+    private final ChangeEntry[] changeLog;
+
+    /**
+     * 下一条变更在环形日志中的写入位置与已记录的变更总数。
+     */
+    private int logHead;
+    private long logCount;
+
+    /**
+     * 环形日志中最旧一条变更之前的版本，早于该版本的读取方只能拿完整快照。
+     */
+    private long logBaseVersion;
+
+    private long version;
+    private long lastUpdateTimeMillis;
+
+    /**
+     * 最近一次生成的完整快照，版本变化后失效。
+     */
+    private volatile HotKeyResult cachedSnapshot;
+
+    /**
+     * 构造应用热 key 状态。
+     *
+     * @param appName           应用名
+     * @param changeLogCapacity 保留的变更条数
+     */
+    public AppHotKeyState(String appName, int changeLogCapacity) {
+        this.appName = appName;
+        this.changeLog = new ChangeEntry[Math.max(1, changeLogCapacity)];
+        this.version = System.currentTimeMillis();
+        this.lastUpdateTimeMillis = version;
+        // 早于创建时版本的读取方（包括首次查询的客户端）需要完整快照
+        this.logBaseVersion = version;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    /**
+     * 加入一个热 key，key 已经是热 key 时只刷新其得分。
+     *
+     * <p>应用热 key 数量已达上限时，得分高于最弱热 key 的新 key 替换它，被替换的 key 放入 displaced，
+     * 加入与替换在同一个版本中完成。</p>
+     *
+     * @param key       业务 key
+     * @param rule      key 命中的判定规则，null 表示不受数量上限约束
+     * @param score     key 当前的窗口得分
+     * @param displaced 接收被替换下来的 key，可以为 null
+     * @return 新版本号；key 已经是热 key 时返回 {@link #NOT_CHANGED}，
+     * 数量已达上限且不能替换时返回 {@link #REJECTED}
+     */
+    public synchronized long add(String key, HotKeyRule rule, double score, Collection<String> displaced) {
+        if (key == null) {
+            return NOT_CHANGED;
+        }
+        HotEntry existing = hotKeys.get(key);
+        if (existing != null) {
+            updateScore(existing, score);
+            return NOT_CHANGED;
+        }
+        if (isPrefixFull(rule)) {
+            return REJECTED;
+        }
+        String[] removed = EMPTY;
+        int maxHotKeys = appMaxHotKeys(rule);
+        if (maxHotKeys > 0 && hotKeys.size() >= maxHotKeys) {
+            HotEntry weakest = hotKeys.isEmpty() ? null : heap[0];
+            if (weakest == null || score <= weakest.score) {
+                return REJECTED;
+            }
+            removeEntry(weakest);
+            removed = new String[]{weakest.key};
+            if (displaced != null) {
+                displaced.add(weakest.key);
+            }
+        }
+        HotEntry entry = new HotEntry(key, rule, score);
+        hotKeys.put(key, entry);
+        heapInsert(entry);
+        countRule(rule, 1);
+        return commit(new String[]{key}, removed);
+    }
+
+    /**
+     * 用 key 最新的窗口得分刷新其在堆中的位置，不论本次判定是否仍为热 key。
+     *
+     * <p>热度回落但仍在保持期内的 key 得分随之下降，不会以过期的峰值得分挡住新的热 key。</p>
+     *
+     * @param key   业务 key
+     * @param score key 当前的窗口得分
+     * @return key 仍是热 key 时返回 true；已被其他 key 替换或删除时返回 false
+     */
+    public synchronized boolean refreshScore(String key, double score) {
+        HotEntry existing = key == null ? null : hotKeys.get(key);
+        if (existing == null) {
+            return false;
+        }
+        updateScore(existing, score);
+        return true;
+    }
+
+    /**
+     * 批量删除热 key，所有实际被删除的 key 共用一个新版本。
+     *
+     * @param keys 待删除的 key
+     * @return 新版本号；没有任何 key 被删除时返回 {@link #NOT_CHANGED}
+     */
+    public synchronized long removeAll(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return NOT_CHANGED;
+        }
+        String[] removed = new String[keys.size()];
+        int n = 0;
+        for (String key : keys) {
+            HotEntry entry = key == null ? null : hotKeys.get(key);
+            if (entry != null) {
+                removeEntry(entry);
+                removed[n++] = key;
+            }
+        }
+        if (n == 0) {
+            return NOT_CHANGED;
+        }
+        if (n < removed.length) {
+            String[] trimmed = new String[n];
+            System.arraycopy(removed, 0, trimmed, 0, n);
+            removed = trimmed;
+        }
+        return commit(EMPTY, removed);
+    }
+
+    public synchronized boolean contains(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return hotKeys.size();
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取当前热 key 集合的不可变快照。
+     *
+     * @return 快照，集合为只读
+     */
+    public HotKeyResult snapshot() {
+        HotKeyResult snapshot = cachedSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = cachedSnapshot;
+            if (snapshot == null) {
+                snapshot = new HotKeyResult(
+                        appName,
+                        version,
+                        lastUpdateTimeMillis,
+                        Collections.unmodifiableSet(new HashSet<>(hotKeys.keySet()))
+                );
+                cachedSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 获取指定版本之后的净变化。
+     *
+     * <p>同一个 key 先加后删（或先删后加）会相互抵消。</p>
+     *
+     * @param sinceVersion 读取方已知的版本
+     * @return 净变化；版本早于日志保留范围，或大于当前版本（例如来自重启前的服务端）时返回 null，
+     * 读取方应改用 {@link #snapshot()}
+     */
+    public synchronized HotKeyDelta changesSince(long sinceVersion) {
+        if (sinceVersion == version) {
+            return new HotKeyDelta(appName, sinceVersion, version,
+                    Collections.emptySet(), Collections.emptySet());
+        }
+        if (sinceVersion > version || sinceVersion < logBaseVersion) {
+            return null;
+        }
+        Set<String> added = new LinkedHashSet<>();
+        Set<String> removed = new LinkedHashSet<>();
+        int retained = (int) Math.min(logCount, changeLog.length);
+        int start = Math.floorMod(logHead - retained, changeLog.length);
+        for (int i = 0; i < retained; i++) {
+            ChangeEntry entry = changeLog[(start + i) % changeLog.length];
+            if (entry.version <= sinceVersion) {
+                continue;
+            }
+            for (String key : entry.added) {
+                if (!removed.remove(key)) {
+                    added.add(key);
+                }
+            }
+            for (String key : entry.removed) {
+                if (!added.remove(key)) {
+                    removed.add(key);
+                }
+            }
+        }
+        return new HotKeyDelta(appName, sinceVersion, version, added, removed);
+    }
+
+    private boolean isPrefixFull(HotKeyRule rule) {
+        for (HotKeyRule r = rule; r != null && r.getParent() != null; r = r.getParent()) {
+            int max = r.getMaxHotKeys();
+            if (max <= 0) {
+                continue;
+            }
+            int[] counter = ruleCounts.get(r);
+            if (counter != null && counter[0] >= max) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int appMaxHotKeys(HotKeyRule rule) {
+        if (rule == null) {
+            return 0;
+        }
+        HotKeyRule appRule = rule;
+        while (appRule.getParent() != null) {
+            appRule = appRule.getParent();
+        }
+        return appRule.getMaxHotKeys();
+    }
+
+    private void removeEntry(HotEntry entry) {
+        hotKeys.remove(entry.key);
+        heapRemove(entry);
+        countRule(entry.rule, -1);
+    }
+
+    private void updateScore(HotEntry entry, double score) {
+        double old = entry.score;
+        entry.score = score;
+        if (score < old) {
+            siftUp(entry.index);
+        } else if (score > old) {
+            siftDown(entry.index);
+        }
+    }
+
+    private void heapInsert(HotEntry entry) {
+        // 调用前 entry 已放入 hotKeys，堆大小为 hotKeys.size() - 1
+        int index = hotKeys.size() - 1;
+        if (index == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        heap[index] = entry;
+        entry.index = index;
+        siftUp(index);
+    }
+
+    private void heapRemove(HotEntry entry) {
+        // 调用前 entry 已从 hotKeys 移除，堆大小为 hotKeys.size() + 1
+        int last = hotKeys.size();
+        int index = entry.index;
+        HotEntry moved = heap[last];
+        heap[last] = null;
+        entry.index = -1;
+        if (index == last) {
+            return;
+        }
+        heap[index] = moved;
+        moved.index = index;
+        siftDown(index);
+        if (moved.index == index) {
+            siftUp(index);
+        }
+    }
+
+    private void siftUp(int index) {
+        HotEntry entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            HotEntry p = heap[parent];
+            if (p.score <= entry.score) {
+                break;
+            }
+            heap[index] = p;
+            p.index = index;
+            index = parent;
+        }
+        heap[index] = entry;
+        entry.index = index;
+    }
+
+    private void siftDown(int index) {
+        int size = hotKeys.size();
+        HotEntry entry = heap[index];
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].score < heap[child].score) {
+                child++;
+            }
+            HotEntry c = heap[child];
+            if (entry.score <= c.score) {
+                break;
+            }
+            heap[index] = c;
+            c.index = index;
+            index = child;
+        }
+        heap[index] = entry;
+        entry.index = index;
+    }
+
+    private void countRule(HotKeyRule rule, int delta) {
+        if (rule == null || rule.getParent() == null || rule.getMaxHotKeys() <= 0) {
+            return;
+        }
+        int[] counter = ruleCounts.computeIfAbsent(rule, r -> new int[1]);
+        counter[0] += delta;
+        if (counter[0] <= 0) {
+            ruleCounts.remove(rule);
+        }
+    }
+
+    private long commit(String[] added, String[] removed) {
+        version++;
+        lastUpdateTimeMillis = System.currentTimeMillis();
+        ChangeEntry evicted = changeLog[logHead];
+        if (evicted != null) {
+            logBaseVersion = evicted.version;
+        }
+        changeLog[logHead] = new ChangeEntry(version, added, removed);
+        logHead = (logHead + 1) % changeLog.length;
+        logCount++;
+        cachedSnapshot = null;
+        return version;
+    }
+
+    private static final class HotEntry {
+
+        private final String key;
+        private final HotKeyRule rule;
+        private double score;
+        private int index;
+
+        private HotEntry(String key, HotKeyRule rule, double score) {
+            this.key = key;
+            this.rule = rule;
+            this.score = score;
+        }
+    }
+
+    private static final class ChangeEntry {
+
+        private final long version;
+        private final String[] added;
+        private final String[] removed;
+
+        private ChangeEntry(long version, String[] added, String[] removed) {
+            this.version = version;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.ispengya.hotkey.server.core;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AppKeySpace 是单个应用在单个分片内的全部 key 状态。
+ *
+ * <p>包括 key 字典（{@link KeyDictionary}）、滑动窗口存储（{@link InstanceAggStore}）
+ * 以及该分片负责的热 key 条目。key 在进入分片时被编码为 int ID，窗口与热 key 条目
+ * 均以 ID 为键；ID 的引用计数由窗口和热 key 条目持有，过期时释放，冷 key 的 ID 随之回收。</p>
+ *
+ * <p>key 的判定规则由应用的 {@link HotKeyRuleSet} 按最长前缀选择。
+ * 热 key 条目按“最近活跃时间 + 规则的空闲阈值”挂在分片的 {@link ExpiryTimingWheel} 上，
+ * 再次被判定为热 key 时以 O(1) 重新挂到新的截止时间，只有真正空闲的条目才会到期；
+ * 条目记录成为热 key 的时间，到期时间不早于该时间加上规则的最短保持时间。
+ * 判定策略需要的 key 基线（{@link KeyBaseline}）同样以 ID 为键并挂在时间轮上，超过策略的保留时间
+ * 没有判定时被丢弃。</p>
+ *
+ * <p>批内合并计数也以 ID 为下标保存在原生数组中，批次之间复用，不产生对象。</p>
+ *
+ * <p>只由所属分片的消费线程访问。</p>
+ *
+ * @author ispengya
+ */
+public final class AppKeySpace {
+
+    private final String appName;
+    private final KeyDictionary dictionary;
+    private final InstanceAggStore store;
+    private final HotKeyRuleSet rules;
+    private final ExpiryTimingWheel expiryWheel;
+
+    /**
+     * 热 key 条目：key ID -> 挂在时间轮上的空闲截止时间。
+     */
+    private final IntObjectMap<HotKeyEntry> hotEntries = new IntObjectHashMap<>();
+
+    /**
+     * 判定策略使用的 key 基线，按需创建。
+     */
+    private final IntObjectMap<KeyBaseline> baselines = new IntObjectHashMap<>();
+
+    /**
+     * 本次时间推进中到期、尚未发布的热 key。
+     */
+    private List<String> expiredKeys;
+
+    /**
+     * 当前批次按 ID 合并的计数。
+     */
+    private long[] pendingCounts = new long[0];
+    private long[] pendingSuccess = new long[0];
+    private long[] pendingRt = new long[0];
+    private int[] touched = new int[16];
+    private int touchedCount;
+
+    AppKeySpace(String appName,
+                InstanceAggStoreFactory storeFactory,
+                HotKeyRuleSet rules,
+                ExpiryTimingWheel expiryWheel) {
+        this.appName = appName;
+        this.dictionary = new KeyDictionary();
+        this.store = storeFactory.create(appName, rules.getWindowSlotCount(), dictionary);
+        this.rules = rules;
+        this.expiryWheel = expiryWheel;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public KeyDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public InstanceAggStore getStore() {
+        return store;
+    }
+
+    /**
+     * 为 key 选择判定规则，成本与 key 长度成正比。
+     */
+    public HotKeyRule ruleOf(String key) {
+        return rules.resolve(key);
+    }
+
+    /**
+     * 记录 key 在当前时间被判定为热 key，并把其空闲截止时间推迟到 nowMillis + idleMillis，
+     * 但不早于成为热 key 的时间 + minHoldMillis。
+     *
+     * @param keyId         key ID
+     * @param nowMillis     当前时间
+     * @param idleMillis    规则允许的最长空闲时间
+     * @param minHoldMillis 规则要求的最短保持时间
+     * @return 该 key 此前不在热 key 条目中时返回 true
+     */
+    public boolean recordHot(int keyId, long nowMillis, long idleMillis, long minHoldMillis) {
+        HotKeyEntry entry = hotEntries.get(keyId);
+        boolean added = entry == null;
+        if (added) {
+            entry = new HotKeyEntry(this, keyId, nowMillis + Math.max(0L, minHoldMillis));
+            hotEntries.put(keyId, entry);
+            dictionary.retain(keyId);
+        }
+        expiryWheel.schedule(entry, Math.max(nowMillis + idleMillis, entry.holdUntilMillis));
+        return added;
+    }
+
+    /**
+     * 移除 key 的热 key 条目并释放其 ID，用于 key 已在应用热 key 中被其他分片的 key 替换的情况。
+     *
+     * <p>移除后 key 按进入阈值重新判定，不会凭退出阈值回到热 key 中。</p>
+     *
+     * @param keyId key ID
+     * @return 该 key 此前在热 key 条目中时返回 true
+     */
+    public boolean clearHot(int keyId) {
+        HotKeyEntry entry = hotEntries.remove(keyId);
+        if (entry == null) {
+            return false;
+        }
+        expiryWheel.cancel(entry);
+        dictionary.release(keyId);
+        return true;
+    }
+
+    /**
+     * key 当前是否在本分片的热 key 条目中。
+     */
+    public boolean isHot(int keyId) {
+        return hotEntries.containsKey(keyId);
+    }
+
+    /**
+     * 取出本次时间推进中到期的热 key。
+     *
+     * @return 到期的 key，没有时返回 null
+     */
+    public List<String> drainExpiredHotKeys() {
+        List<String> expired = expiredKeys;
+        expiredKeys = null;
+        return expired;
+    }
+
+    public int getHotEntryCount() {
+        return hotEntries.size();
+    }
+
+    public int getBaselineCount() {
+        return baselines.size();
+    }
+
+    /**
+     * 获取 key 的基线，不存在时创建并持有其 ID；保留期限顺延到 nowMillis + retentionMillis。
+     */
+    KeyBaseline baselineOf(int keyId, long nowMillis, long retentionMillis) {
+        KeyBaseline baseline = baselines.get(keyId);
+        if (baseline == null) {
+            baseline = new KeyBaseline(this, keyId);
+            baselines.put(keyId, baseline);
+            dictionary.retain(keyId);
+        }
+        expiryWheel.schedule(baseline, nowMillis + Math.max(1L, retentionMillis));
+        return baseline;
+    }
+
+    /**
+     * 将一条上报计数合并到当前批次。
+     */
+    void accumulate(String key, long count, long successCount, long rtMillis) {
+        if (key == null || count <= 0L) {
+            return;
+        }
+        int keyId = dictionary.intern(key);
+        if (keyId >= pendingCounts.length) {
+            int length = Math.max(keyId + 1, pendingCounts.length * 2);
+            pendingCounts = Arrays.copyOf(pendingCounts, length);
+            pendingSuccess = Arrays.copyOf(pendingSuccess, length);
+            pendingRt = Arrays.copyOf(pendingRt, length);
+        }
+        if (pendingCounts[keyId] == 0L) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touched.length * 2);
+            }
+            touched[touchedCount++] = keyId;
+            // 批次处理期间持有 ID，避免窗口滚动时的空闲清理提前回收
+            dictionary.retain(keyId);
+        }
+        pendingCounts[keyId] += count;
+        pendingSuccess[keyId] += successCount;
+        pendingRt[keyId] += rtMillis;
+    }
+
+    /**
+     * 将当前批次合并后的计数写入窗口，并对每个不同的 key 回调一次。
+     *
+     * <p>回调结束后释放批次对 ID 的持有，没有被窗口或热 key 条目持有的 ID 会被立即回收。</p>
+     *
+     * @param nowMillis 写入时间
+     * @param consumer  每个 key 的回调
+     */
+    void flushPending(long nowMillis, PendingKeyConsumer consumer) {
+        try {
+            for (int i = 0; i < touchedCount; i++) {
+                int keyId = touched[i];
+                store.add(keyId, dictionary.keyOf(keyId),
+                        pendingCounts[keyId], pendingSuccess[keyId], pendingRt[keyId], nowMillis);
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                consumer.accept(this, touched[i]);
+            }
+        } finally {
+            clearPending();
+        }
+    }
+
+    void clearPending() {
+        for (int i = 0; i < touchedCount; i++) {
+            int keyId = touched[i];
+            pendingCounts[keyId] = 0L;
+            pendingSuccess[keyId] = 0L;
+            pendingRt[keyId] = 0L;
+            dictionary.release(keyId);
+        }
+        touchedCount = 0;
+    }
+
+    boolean hasPending() {
+        return touchedCount > 0;
+    }
+
+    /**
+     * 时间轮到期回调：移除热 key 条目或 key 基线并释放其 ID，到期的热 key 留待
+     * {@link #drainExpiredHotKeys()} 发布。
+     *
+     * @param node 到期的时间轮节点
+     * @return 本次推进中该空间首个到期的热 key 时返回节点所属的 key 空间，否则返回 null
+     */
+    static AppKeySpace expire(ExpiryTimingWheel.Node node) {
+        if (node instanceof KeyBaseline) {
+            ((KeyBaseline) node).getKeySpace().expireBaseline((KeyBaseline) node);
+            return null;
+        }
+        HotKeyEntry entry = (HotKeyEntry) node;
+        AppKeySpace keySpace = entry.keySpace;
+        return keySpace.expireEntry(entry) ? keySpace : null;
+    }
+
+    private void expireBaseline(KeyBaseline baseline) {
+        int keyId = baseline.getKeyId();
+        if (baselines.remove(keyId) != null) {
+            dictionary.release(keyId);
+        }
+    }
+
+    private boolean expireEntry(HotKeyEntry entry) {
+        int keyId = entry.keyId;
+        if (hotEntries.remove(keyId) == null) {
+            return false;
+        }
+        boolean first = expiredKeys == null;
+        if (first) {
+            expiredKeys = new ArrayList<>();
+        }
+        expiredKeys.add(dictionary.keyOf(keyId));
+        dictionary.release(keyId);
+        return first;
+    }
+
+    /**
+     * 批次中每个不同 key 的回调。
+     */
+    interface PendingKeyConsumer {
+
+        void accept(AppKeySpace keySpace, int keyId);
+    }
+
+    private static final class HotKeyEntry extends ExpiryTimingWheel.Node {
+
+        private final AppKeySpace keySpace;
+        private final int keyId;
+
+        /**
+         * 最短保持时间的截止时间，之前不会因空闲而到期。
+         */
+        private final long holdUntilMillis;
+
+        private HotKeyEntry(AppKeySpace keySpace, int keyId, long holdUntilMillis) {
+            this.keySpace = keySpace;
+            this.keyId = keyId;
+            this.holdUntilMillis = holdUntilMillis;
+        }
+    }
+}
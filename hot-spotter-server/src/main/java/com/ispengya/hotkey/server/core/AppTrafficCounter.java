@@ -0,0 +1,20 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * AppTrafficCounter 提供应用在当前窗口内的总访问量。
+ *
+ * <p>应用的 key 分散在多个分片中，总量需要跨分片汇总，由 {@link AccessReportPipeline} 实现。</p>
+ *
+ * @author ispengya
+ */
+interface AppTrafficCounter {
+
+    /**
+     * 应用在当前窗口内所有 key 的访问总量。
+     *
+     * @param appName   应用名
+     * @param nowMillis 当前时间
+     * @return 访问总量
+     */
+    long appTotalCount(String appName, long nowMillis);
+}
@@ -0,0 +1,57 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * CountThresholdAlgorithm 按窗口内访问次数判定热 Key。
+ *
+ * <p>窗口内访问总数大于等于阈值即为热 key；已是热 key 时按退出阈值判定。</p>
+ *
+ * @author ispengya
+ */
+public final class CountThresholdAlgorithm implements HotKeyComputeAlgorithm {
+
+    public static final String NAME = "count";
+
+    /**
+     * 最小访问次数阈值。
+     */
+    private final long minCountThreshold;
+
+    /**
+     * 已是热 key 时保持热度的最小访问次数。
+     */
+    private final long exitCountThreshold;
+
+    /**
+     * 构造次数阈值策略，进入与退出阈值相同。
+     *
+     * @param minCountThreshold 访问次数阈值
+     */
+    public CountThresholdAlgorithm(long minCountThreshold) {
+        this(minCountThreshold, minCountThreshold);
+    }
+
+    /**
+     * 构造次数阈值策略。
+     *
+     * @param minCountThreshold  进入热 key 的访问次数阈值
+     * @param exitCountThreshold 保持热 key 的访问次数阈值，不高于进入阈值
+     */
+    public CountThresholdAlgorithm(long minCountThreshold, long exitCountThreshold) {
+        this.minCountThreshold = minCountThreshold;
+        this.exitCountThreshold = Math.min(exitCountThreshold, minCountThreshold);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isHot(AggregatedKeyStat stat, HotKeyContext context) {
+        if (stat == null) {
+            return false;
+        }
+        long threshold = context.isCurrentlyHot() ? exitCountThreshold : minCountThreshold;
+        return stat.getTotalCount() >= threshold;
+    }
+}
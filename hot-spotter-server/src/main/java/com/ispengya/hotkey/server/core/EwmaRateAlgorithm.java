@@ -0,0 +1,68 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * EwmaRateAlgorithm 按指数加权平滑后的 QPS 判定热 Key。
+ *
+ * <p>每次判定把窗口平均 QPS 作为样本加入 key 的 {@link KeyBaseline}，平滑后的速率大于等于阈值
+ * 即为热 key，已是热 key 时按退出阈值判定。短暂的尖峰需要持续约一个半衰期才会被判定，
+ * 适合不希望热 key 集合频繁抖动的应用。</p>
+ *
+ * @author ispengya
+ */
+public final class EwmaRateAlgorithm implements HotKeyComputeAlgorithm {
+
+    public static final String NAME = "ewma";
+
+    private final double minQps;
+    private final double exitQps;
+    private final long windowSpanMillis;
+    private final long halfLifeMillis;
+
+    /**
+     * 构造 EWMA 速率策略，进入与退出阈值相同。
+     *
+     * @param minQps           平滑后每秒访问次数阈值
+     * @param windowSpanMillis 窗口总长度
+     * @param halfLifeMillis   平滑半衰期
+     */
+    public EwmaRateAlgorithm(double minQps, long windowSpanMillis, long halfLifeMillis) {
+        this(minQps, minQps, windowSpanMillis, halfLifeMillis);
+    }
+
+    /**
+     * 构造 EWMA 速率策略。
+     *
+     * @param minQps           进入热 key 的平滑后每秒访问次数阈值
+     * @param exitQps          保持热 key 的平滑后每秒访问次数阈值，不高于进入阈值
+     * @param windowSpanMillis 窗口总长度
+     * @param halfLifeMillis   平滑半衰期
+     */
+    public EwmaRateAlgorithm(double minQps, double exitQps, long windowSpanMillis, long halfLifeMillis) {
+        this.minQps = minQps;
+        this.exitQps = Math.min(exitQps, minQps);
+        this.windowSpanMillis = Math.max(1L, windowSpanMillis);
+        this.halfLifeMillis = Math.max(1L, halfLifeMillis);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isHot(AggregatedKeyStat stat, HotKeyContext context) {
+        if (stat == null) {
+            return false;
+        }
+        KeyBaseline baseline = context.getBaseline();
+        baseline.update(QpsRateAlgorithm.ratePerSecond(stat.getTotalCount(), windowSpanMillis),
+                context.getNowMillis(), halfLifeMillis);
+        return baseline.getMean() >= (context.isCurrentlyHot() ? exitQps : minQps);
+    }
+
+    @Override
+    public long getBaselineRetentionMillis() {
+        // 约 7 个半衰期后历史样本的权重已不足 1%
+        return Math.max(windowSpanMillis, halfLifeMillis * 7L);
+    }
+}
@@ -0,0 +1,254 @@
+package com.ispengya.hotkey.server.core;
+
+import java.util.function.Consumer;
+
+/**
+ * ExpiryTimingWheel 是按截止时间组织定时节点的分层时间轮。
+ *
+ * <p>第一层每格跨度为 tickMillis，共 wheelSize 格；每一层放不下的节点交给上一层，
+ * 上一层每格跨度等于下一层的总跨度，层数按需增加。时间每前进一格，只处理到期的那一格：
+ * 高层格子里的节点重新插入到低层，第一层格子里的节点即为到期节点。</p>
+ *
+ * <p>节点挂在格子的双向链表上，重新设置截止时间只需摘下并挂到新的格子，是 O(1) 的；
+ * 推进时间的成本只与经过的格数和实际到期（或下沉）的节点数有关，与节点总数无关。
+ * 节点不会早于截止时间到期，最多晚一格 tickMillis。</p>
+ *
+ * <p>非线程安全，只由所属分片的消费线程访问。</p>
+ *
+ * @author ispengya
+ */
+final class ExpiryTimingWheel {
+
+    /**
+     * 每层默认格数。
+     */
+    static final int DEFAULT_WHEEL_SIZE = 64;
+
+    private final Level root;
+
+    /**
+     * 插入时已经到期、等待下一次推进时处理的节点。
+     */
+    private final Node due = new Node();
+
+    private int size;
+
+    /**
+     * 构造时间轮。
+     *
+     * @param tickMillis  第一层每格的时间跨度，即到期精度
+     * @param wheelSize   每层格数
+     * @param startMillis 起始时间
+     */
+    ExpiryTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.root = new Level(Math.max(1L, tickMillis), Math.max(2, wheelSize), startMillis);
+        due.prev = due;
+        due.next = due;
+    }
+
+    /**
+     * 设置节点的截止时间，节点已在时间轮中时先从原来的格子摘下。
+     *
+     * @param node           节点
+     * @param deadlineMillis 截止时间
+     */
+    void schedule(Node node, long deadlineMillis) {
+        if (node.isScheduled()) {
+            node.unlink();
+        } else {
+            size++;
+        }
+        node.deadlineMillis = deadlineMillis;
+        // 按截止时间所在格的下一格挂入，保证到期回调不早于截止时间
+        node.slotMillis = deadlineMillis + root.tickMillis;
+        if (!root.insert(node)) {
+            due.append(node);
+        }
+    }
+
+    /**
+     * 从时间轮中移除节点。
+     */
+    void cancel(Node node) {
+        if (node.isScheduled()) {
+            node.unlink();
+            size--;
+        }
+    }
+
+    /**
+     * 将时间推进到 nowMillis，并对每个到期节点回调一次。
+     *
+     * <p>回调时节点已从时间轮中移除。</p>
+     *
+     * @param nowMillis 当前时间
+     * @param expired   到期回调
+     */
+    void advance(long nowMillis, Consumer<Node> expired) {
+        if (due.next != due) {
+            expireAll(due, expired);
+        }
+        long tick = root.tickMillis;
+        while (root.currentTime + tick <= nowMillis) {
+            if (size == 0) {
+                // 没有节点时直接跳到当前时间，避免长时间空闲后逐格空转
+                for (Level level = root; level != null; level = level.overflow) {
+                    level.currentTime = level.floor(nowMillis);
+                }
+                return;
+            }
+            long time = root.currentTime + tick;
+            // 先推进到达边界的高层，让其节点下沉，再处理第一层到期的格子
+            Level top = root;
+            while (top.overflow != null && time % top.overflow.tickMillis == 0L) {
+                top = top.overflow;
+            }
+            for (Level level = root; level != null && time % level.tickMillis == 0L; level = level.overflow) {
+                level.currentTime = time;
+            }
+            for (Level level = top; level != root; level = level.lower) {
+                cascade(level.bucketOf(time), expired);
+            }
+            expireAll(root.bucketOf(time), expired);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getTickMillis() {
+        return root.tickMillis;
+    }
+
+    private void cascade(Node bucket, Consumer<Node> expired) {
+        Node node = bucket.detach();
+        while (node != null) {
+            Node next = node.next;
+            node.next = null;
+            node.prev = null;
+            if (!root.insert(node)) {
+                size--;
+                expired.accept(node);
+            }
+            node = next;
+        }
+    }
+
+    private void expireAll(Node bucket, Consumer<Node> expired) {
+        Node node = bucket.detach();
+        while (node != null) {
+            Node next = node.next;
+            node.next = null;
+            node.prev = null;
+            size--;
+            expired.accept(node);
+            node = next;
+        }
+    }
+
+    /**
+     * 时间轮中的定时节点。格子本身也用一个不带数据的节点作为链表哨兵。
+     */
+    static class Node {
+
+        private long deadlineMillis;
+        private long slotMillis;
+        private Node prev;
+        private Node next;
+
+        long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        boolean isScheduled() {
+            return prev != null;
+        }
+
+        private void append(Node node) {
+            node.prev = prev;
+            node.next = this;
+            prev.next = node;
+            prev = node;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+
+        /**
+         * 取下哨兵后的整条链表，返回首个节点（以 null 结尾），哨兵恢复为空。
+         */
+        private Node detach() {
+            if (next == this) {
+                return null;
+            }
+            Node first = next;
+            prev.next = null;
+            next = this;
+            prev = this;
+            return first;
+        }
+    }
+
+    private static final class Level {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long intervalMillis;
+        private final Node[] buckets;
+        private final Level lower;
+        private long currentTime;
+        private Level overflow;
+
+        private Level(long tickMillis, int wheelSize, long startMillis) {
+            this(tickMillis, wheelSize, startMillis, null);
+        }
+
+        private Level(long tickMillis, int wheelSize, long startMillis, Level lower) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.intervalMillis = tickMillis * wheelSize;
+            this.lower = lower;
+            this.currentTime = floor(startMillis);
+            this.buckets = new Node[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                Node sentinel = new Node();
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                buckets[i] = sentinel;
+            }
+        }
+
+        /**
+         * 把节点放入本层或更高层的格子。
+         *
+         * @return 节点在当前格内已到期时返回 false
+         */
+        private boolean insert(Node node) {
+            long deadline = node.slotMillis;
+            if (deadline < currentTime + tickMillis) {
+                return false;
+            }
+            if (deadline < currentTime + intervalMillis) {
+                bucketOf(deadline).append(node);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(intervalMillis, wheelSize, currentTime, this);
+            }
+            return overflow.insert(node);
+        }
+
+        private Node bucketOf(long timeMillis) {
+            return buckets[(int) ((timeMillis / tickMillis) % wheelSize)];
+        }
+
+        private long floor(long timeMillis) {
+            return timeMillis - timeMillis % tickMillis;
+        }
+    }
+}
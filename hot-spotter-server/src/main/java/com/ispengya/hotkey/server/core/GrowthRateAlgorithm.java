@@ -0,0 +1,112 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * GrowthRateAlgorithm 按 key 相对自身基线的突增判定热 Key。
+ *
+ * <p>当前窗口平均 QPS 不低于 minQps，且满足以下任一条件即为热 key：
+ * <ul>
+ *     <li>没有基线（新出现或已长时间空闲的 key）；</li>
+ *     <li>速率达到基线均值的 growthFactor 倍；</li>
+ *     <li>相对基线的 z-score（(速率 - 均值) / 标准差）达到 zScoreThreshold。</li>
+ * </ul>
+ * 判定后再把本次速率加入基线，因此持续稳定的高流量会逐渐被基线吸收，不再刷新热度，
+ * 热 key 在空闲超时后自然移除；适合只关心突发热点的应用。</p>
+ *
+ * <p>已是热 key 时速率下限改用 exitQps，增长倍数与 z-score 阈值按 exitQps / minQps 同比放宽
+ * （增长倍数只放宽超出 1 倍的部分），突增回落的过程中不会反复进出。</p>
+ *
+ * @author ispengya
+ */
+public final class GrowthRateAlgorithm implements HotKeyComputeAlgorithm {
+
+    public static final String NAME = "growth";
+
+    private final double minQps;
+    private final double exitQps;
+    private final long windowSpanMillis;
+    private final long halfLifeMillis;
+    private final double growthFactor;
+    private final double zScoreThreshold;
+    private final double exitGrowthFactor;
+    private final double exitZScoreThreshold;
+
+    /**
+     * 构造突增策略，进入与退出阈值相同。
+     *
+     * @param minQps           每秒访问次数下限，低于该值不判定为热 key
+     * @param windowSpanMillis 窗口总长度
+     * @param halfLifeMillis   基线半衰期
+     * @param growthFactor     相对基线均值的增长倍数阈值
+     * @param zScoreThreshold  z-score 阈值
+     */
+    public GrowthRateAlgorithm(double minQps,
+                               long windowSpanMillis,
+                               long halfLifeMillis,
+                               double growthFactor,
+                               double zScoreThreshold) {
+        this(minQps, minQps, windowSpanMillis, halfLifeMillis, growthFactor, zScoreThreshold);
+    }
+
+    /**
+     * 构造突增策略。
+     *
+     * @param minQps           每秒访问次数下限，低于该值不判定为热 key
+     * @param exitQps          已是热 key 时的每秒访问次数下限，不高于 minQps
+     * @param windowSpanMillis 窗口总长度
+     * @param halfLifeMillis   基线半衰期
+     * @param growthFactor     相对基线均值的增长倍数阈值
+     * @param zScoreThreshold  z-score 阈值
+     */
+    public GrowthRateAlgorithm(double minQps,
+                               double exitQps,
+                               long windowSpanMillis,
+                               long halfLifeMillis,
+                               double growthFactor,
+                               double zScoreThreshold) {
+        this.minQps = minQps;
+        this.exitQps = Math.min(exitQps, minQps);
+        this.windowSpanMillis = Math.max(1L, windowSpanMillis);
+        this.halfLifeMillis = Math.max(1L, halfLifeMillis);
+        this.growthFactor = growthFactor;
+        this.zScoreThreshold = zScoreThreshold;
+        double ratio = minQps > 0.0d ? this.exitQps / minQps : 1.0d;
+        this.exitGrowthFactor = 1.0d + (growthFactor - 1.0d) * ratio;
+        this.exitZScoreThreshold = zScoreThreshold * ratio;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isHot(AggregatedKeyStat stat, HotKeyContext context) {
+        if (stat == null) {
+            return false;
+        }
+        double rate = QpsRateAlgorithm.ratePerSecond(stat.getTotalCount(), windowSpanMillis);
+        KeyBaseline baseline = context.getBaseline();
+        boolean hot = context.isCurrentlyHot()
+                ? rate >= exitQps && isBurst(rate, baseline, exitGrowthFactor, exitZScoreThreshold)
+                : rate >= minQps && isBurst(rate, baseline, growthFactor, zScoreThreshold);
+        baseline.update(rate, context.getNowMillis(), halfLifeMillis);
+        return hot;
+    }
+
+    @Override
+    public long getBaselineRetentionMillis() {
+        return Math.max(windowSpanMillis, halfLifeMillis * 7L);
+    }
+
+    private static boolean isBurst(double rate, KeyBaseline baseline, double growthFactor, double zScoreThreshold) {
+        double mean = baseline.getMean();
+        if (baseline.isEmpty() || mean <= 0.0d) {
+            return true;
+        }
+        if (rate >= mean * growthFactor) {
+            return true;
+        }
+        double stdDev = baseline.getStdDev();
+        return stdDev > 0.0d && (rate - mean) / stdDev >= zScoreThreshold;
+    }
+}
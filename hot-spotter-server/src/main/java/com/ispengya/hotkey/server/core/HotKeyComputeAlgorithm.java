@@ -1,32 +1,45 @@
 package com.ispengya.hotkey.server.core;
 
 /**
- * HotKeyComputeAlgorithm 定义滑动窗口下的热 Key 判定算法。
+ * HotKeyComputeAlgorithm 定义滑动窗口下的热 Key 判定策略（SPI）。
  *
- * <p>在给定时间窗口内，如果某个 key 的访问总数
- * 大于等于阈值，则判定为热 key。时间窗口由 {@link SlidingWindowInstanceAggStore} 的
- * 配置决定，算法本身只依赖聚合后的统计数据。</p>
+ * <p>策略只依赖窗口聚合后的统计 {@link AggregatedKeyStat} 以及 {@link HotKeyContext}
+ * 中的应用总量、key 基线等信息，每次判定必须是常数时间，不能遍历 key 集合。
+ * 时间窗口由 {@link InstanceAggStore} 的配置决定；SKETCH 模式下统计为估算值，判定方式不变。</p>
+ *
+ * <p>为避免阈值附近的 key 反复进出热 key 集合，策略应区分进入与退出阈值：
+ * {@link HotKeyContext#isCurrentlyHot()} 为 true 时按较低的退出阈值判定，key 只要不低于退出阈值
+ * 就继续保持热度。</p>
+ *
+ * <p>内置策略见 {@link HotKeyComputeAlgorithmFactory}；自定义策略可实现本接口并通过
+ * {@code META-INF/services/com.ispengya.hotkey.server.core.HotKeyComputeAlgorithm} 注册，
+ * 按 {@link #getName()} 在配置中按应用选用。实现必须是无状态的，同一实例会被所有分片线程共享，
+ * 需要按 key 保存的状态放在 {@link KeyBaseline} 中。</p>
+ *
+ * @author ispengya
  */
-public final class HotKeyComputeAlgorithm {
+public interface HotKeyComputeAlgorithm {
 
     /**
-     * 最小访问次数阈值。
+     * 策略名，配置中按该名称（不区分大小写）选用。
      */
-    private final long minCountThreshold;
+    String getName();
 
     /**
-     * 构造滑动窗口热 Key 判定算法。
+     * 判定 key 在当前窗口内是否为热 key。
      *
-     * @param minCountThreshold 访问次数阈值
+     * @param stat    key 的窗口统计，可能为 null
+     * @param context 本次判定的上下文
+     * @return 是否为热 key
      */
-    public HotKeyComputeAlgorithm(long minCountThreshold) {
-        this.minCountThreshold = minCountThreshold;
-    }
+    boolean isHot(AggregatedKeyStat stat, HotKeyContext context);
 
-    public boolean isHot(AggregatedKeyStat stat) {
-        if (stat == null) {
-            return false;
-        }
-        return stat.getTotalCount() >= minCountThreshold;
+    /**
+     * key 基线在没有判定的情况下保留多久。
+     *
+     * <p>返回 0 表示策略不使用 {@link HotKeyContext#getBaseline()}。</p>
+     */
+    default long getBaselineRetentionMillis() {
+        return 0L;
     }
 }
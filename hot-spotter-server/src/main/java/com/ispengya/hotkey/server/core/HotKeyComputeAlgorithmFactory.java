@@ -0,0 +1,167 @@
+package com.ispengya.hotkey.server.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * HotKeyComputeAlgorithmFactory 按策略名与阈值创建热 Key 判定策略。
+ *
+ * <p>内置策略：
+ * <ul>
+ *     <li>{@value CountThresholdAlgorithm#NAME}：窗口内访问次数阈值；</li>
+ *     <li>{@value QpsRateAlgorithm#NAME}：按窗口长度折算的 QPS 阈值；</li>
+ *     <li>{@value EwmaRateAlgorithm#NAME}：指数加权平滑后的 QPS 阈值；</li>
+ *     <li>{@value GrowthRateAlgorithm#NAME}：相对 key 自身基线的增长倍数 / z-score；</li>
+ *     <li>{@value TrafficShareAlgorithm#NAME}：占应用总流量的百分比。</li>
+ * </ul>
+ * 内置策略按规则给出的进入 / 退出阈值与窗口长度创建新实例，未给出进入阈值时使用全局配置，
+ * 未给出退出阈值时取进入阈值乘以 exitRatio。
+ * 此外通过 {@link ServiceLoader} 加载的 {@link HotKeyComputeAlgorithm} 实现按其名称注册，
+ * 与内置策略同名时覆盖内置策略；这类策略自行管理参数，规则中的阈值对其不生效。</p>
+ *
+ * @author ispengya
+ */
+public final class HotKeyComputeAlgorithmFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyComputeAlgorithmFactory.class);
+
+    private final Map<String, HotKeyComputeAlgorithm> customAlgorithms = new HashMap<>();
+    private final String defaultStrategy;
+    private final long minCountThreshold;
+    private final double minQps;
+    private final long halfLifeMillis;
+    private final double growthFactor;
+    private final double zScoreThreshold;
+    private final double sharePercent;
+    private final double exitRatio;
+
+    /**
+     * 构造策略工厂。
+     *
+     * @param defaultStrategy   默认策略名
+     * @param minCountThreshold 访问次数阈值（count）与下限（share）
+     * @param minQps            每秒访问次数阈值（qps、ewma）与下限（growth）
+     * @param halfLifeMillis    基线半衰期（ewma、growth）
+     * @param growthFactor      增长倍数阈值（growth）
+     * @param zScoreThreshold   z-score 阈值（growth）
+     * @param sharePercent      流量占比百分比阈值（share）
+     * @param exitRatio         退出阈值占进入阈值的比例，取值 (0, 1]
+     */
+    public HotKeyComputeAlgorithmFactory(String defaultStrategy,
+                                         long minCountThreshold,
+                                         double minQps,
+                                         long halfLifeMillis,
+                                         double growthFactor,
+                                         double zScoreThreshold,
+                                         double sharePercent,
+                                         double exitRatio) {
+        this.minCountThreshold = minCountThreshold;
+        this.minQps = minQps;
+        this.halfLifeMillis = halfLifeMillis;
+        this.growthFactor = growthFactor;
+        this.zScoreThreshold = zScoreThreshold;
+        this.sharePercent = sharePercent;
+        this.exitRatio = exitRatio > 0.0d && exitRatio <= 1.0d ? exitRatio : 1.0d;
+        for (HotKeyComputeAlgorithm algorithm : ServiceLoader.load(HotKeyComputeAlgorithm.class)) {
+            if (algorithm == null || algorithm.getName() == null) {
+                continue;
+            }
+            customAlgorithms.put(normalize(algorithm.getName()), algorithm);
+            if (log.isInfoEnabled()) {
+                log.info("Loaded hot key compute algorithm. name={}, class={}",
+                        algorithm.getName(), algorithm.getClass().getName());
+            }
+        }
+        String normalized = normalize(defaultStrategy);
+        if (normalized == null || !isKnown(normalized)) {
+            if (normalized != null) {
+                log.warn("Unknown hot key compute algorithm {}, using {}", defaultStrategy, CountThresholdAlgorithm.NAME);
+            }
+            normalized = CountThresholdAlgorithm.NAME;
+        }
+        this.defaultStrategy = normalized;
+    }
+
+    /**
+     * 创建判定策略。
+     *
+     * @param strategy         策略名，null 表示默认策略
+     * @param threshold        进入阈值，null 表示使用全局配置：count 为窗口内次数，
+     *                         qps / ewma / growth 为每秒次数，share 为百分比
+     * @param exitThreshold    退出阈值，null 表示进入阈值乘以 exitRatio
+     * @param windowSpanMillis 应用窗口总长度
+     * @return 判定策略
+     */
+    public HotKeyComputeAlgorithm create(String strategy,
+                                         Double threshold,
+                                         Double exitThreshold,
+                                         long windowSpanMillis) {
+        String name = normalize(strategy);
+        if (name == null) {
+            name = defaultStrategy;
+        }
+        HotKeyComputeAlgorithm custom = customAlgorithms.get(name);
+        if (custom != null) {
+            return custom;
+        }
+        switch (name) {
+            case CountThresholdAlgorithm.NAME: {
+                long enter = threshold == null ? minCountThreshold : Math.round(threshold);
+                return new CountThresholdAlgorithm(enter, Math.round(exit(enter, exitThreshold)));
+            }
+            case QpsRateAlgorithm.NAME: {
+                double enter = threshold == null ? minQps : threshold;
+                return new QpsRateAlgorithm(enter, exit(enter, exitThreshold), windowSpanMillis);
+            }
+            case EwmaRateAlgorithm.NAME: {
+                double enter = threshold == null ? minQps : threshold;
+                return new EwmaRateAlgorithm(enter, exit(enter, exitThreshold), windowSpanMillis, halfLifeMillis);
+            }
+            case GrowthRateAlgorithm.NAME: {
+                double enter = threshold == null ? minQps : threshold;
+                return new GrowthRateAlgorithm(enter, exit(enter, exitThreshold), windowSpanMillis,
+                        halfLifeMillis, growthFactor, zScoreThreshold);
+            }
+            case TrafficShareAlgorithm.NAME: {
+                double enter = threshold == null ? sharePercent : threshold;
+                return new TrafficShareAlgorithm(minCountThreshold, enter, exit(enter, exitThreshold));
+            }
+            default:
+                log.warn("Unknown hot key compute algorithm {}, using {}", strategy, defaultStrategy);
+                return create(defaultStrategy, null, null, windowSpanMillis);
+        }
+    }
+
+    private double exit(double enter, Double exitThreshold) {
+        return exitThreshold == null ? enter * exitRatio : Math.min(exitThreshold, enter);
+    }
+
+    public String getDefaultStrategy() {
+        return defaultStrategy;
+    }
+
+    private boolean isKnown(String name) {
+        switch (name) {
+            case CountThresholdAlgorithm.NAME:
+            case QpsRateAlgorithm.NAME:
+            case EwmaRateAlgorithm.NAME:
+            case GrowthRateAlgorithm.NAME:
+            case TrafficShareAlgorithm.NAME:
+                return true;
+            default:
+                return customAlgorithms.containsKey(name);
+        }
+    }
+
+    private static String normalize(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
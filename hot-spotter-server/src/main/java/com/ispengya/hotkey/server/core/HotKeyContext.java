@@ -0,0 +1,79 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * HotKeyContext 是一次热 Key 判定的上下文，提供策略在统计之外需要的信息。
+ *
+ * <p>每个分片复用一个实例，由消费线程在每次判定前重置。应用总量在同一批次内按应用只汇总一次，
+ * key 基线只在策略调用 {@link #getBaseline()} 时才创建，不使用它们的策略没有额外开销。</p>
+ *
+ * @author ispengya
+ */
+public final class HotKeyContext {
+
+    private final AppTrafficCounter trafficCounter;
+
+    private AppKeySpace keySpace;
+    private int keyId;
+    private long nowMillis;
+    private HotKeyRule rule;
+
+    /**
+     * 最近一次汇总应用总量的应用与时间。
+     */
+    private String totalAppName;
+    private long totalNowMillis;
+    private long appTotalCount;
+
+    HotKeyContext(AppTrafficCounter trafficCounter) {
+        this.trafficCounter = trafficCounter;
+    }
+
+    void reset(AppKeySpace keySpace, int keyId, long nowMillis) {
+        this.keySpace = keySpace;
+        this.keyId = keyId;
+        this.nowMillis = nowMillis;
+        this.rule = keySpace.ruleOf(keySpace.getDictionary().keyOf(keyId));
+    }
+
+    public String getAppName() {
+        return keySpace.getAppName();
+    }
+
+    public long getNowMillis() {
+        return nowMillis;
+    }
+
+    /**
+     * 当前 key 是否已经是热 key，策略据此在进入阈值与退出阈值之间选择。
+     */
+    public boolean isCurrentlyHot() {
+        return keySpace.isHot(keyId);
+    }
+
+    /**
+     * 当前 key 命中的判定规则。
+     */
+    public HotKeyRule getRule() {
+        return rule;
+    }
+
+    /**
+     * 应用在当前窗口内所有 key 的访问总量（跨分片汇总）。
+     */
+    public long getAppTotalCount() {
+        String appName = keySpace.getAppName();
+        if (!appName.equals(totalAppName) || totalNowMillis != nowMillis) {
+            appTotalCount = trafficCounter.appTotalCount(appName, nowMillis);
+            totalAppName = appName;
+            totalNowMillis = nowMillis;
+        }
+        return appTotalCount;
+    }
+
+    /**
+     * 当前 key 的速率基线，不存在时创建；每次获取都会把基线的保留期限顺延。
+     */
+    public KeyBaseline getBaseline() {
+        return keySpace.baselineOf(keyId, nowMillis, rule.getAlgorithm().getBaselineRetentionMillis());
+    }
+}
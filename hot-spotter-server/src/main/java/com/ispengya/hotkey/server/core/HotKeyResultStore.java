@@ -5,19 +5,37 @@ import com.ispengya.hotkey.server.model.HotKeyResult;
 /**
  * HotKeyResultStore 定义热 Key 结果的存储接口。
  *
- * <p>计算模块将结果写入此处，查询模块从此处读取结果。</p>
+ * <p>每个应用对应一个 {@link AppHotKeyState}，计算与衰减模块直接在状态上做原子的增删，
+ * 查询模块读取其快照或增量变化。</p>
  *
  * @author ispengya
  */
 public interface HotKeyResultStore {
 
     /**
-     * 更新指定实例的热 Key 结果。
+     * 获取指定应用的热 Key 状态，不存在时创建。
      *
-     * @param result 热 Key 结果对象
+     * @param appName 应用名
+     * @return 热 Key 状态
      */
-    void update(HotKeyResult result);
+    AppHotKeyState stateOf(String appName);
 
+    /**
+     * 获取指定应用的热 Key 状态。
+     *
+     * @param appName 应用名
+     * @return 热 Key 状态，不存在时返回 null
+     */
+    AppHotKeyState findState(String appName);
+
+    Iterable<AppHotKeyState> listStates();
+
+    /**
+     * 获取指定应用当前热 Key 集合的快照。
+     *
+     * @param appName 应用名
+     * @return 快照，应用不存在时返回 null
+     */
     HotKeyResult get(String appName);
 
     Iterable<HotKeyResult> listAll();
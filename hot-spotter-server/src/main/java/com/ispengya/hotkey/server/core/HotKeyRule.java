@@ -0,0 +1,70 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * HotKeyRule 是编译后的热 Key 判定规则，所有字段都已按继承关系确定。
+ *
+ * <p>前缀规则的 parent 是所属应用的应用级规则，应用级规则没有 parent。</p>
+ *
+ * @author ispengya
+ */
+public final class HotKeyRule {
+
+    private final String prefix;
+    private final HotKeyComputeAlgorithm algorithm;
+    private final long idleMillis;
+    private final long minHoldMillis;
+    private final int maxHotKeys;
+    private final HotKeyRule parent;
+
+    HotKeyRule(String prefix,
+               HotKeyComputeAlgorithm algorithm,
+               long idleMillis,
+               long minHoldMillis,
+               int maxHotKeys,
+               HotKeyRule parent) {
+        this.prefix = prefix;
+        this.algorithm = algorithm;
+        this.idleMillis = idleMillis;
+        this.minHoldMillis = Math.max(0L, minHoldMillis);
+        this.maxHotKeys = Math.max(0, maxHotKeys);
+        this.parent = parent;
+    }
+
+    /**
+     * key 前缀，应用级规则返回 null。
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public HotKeyComputeAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    /**
+     * 成为热 key 后至少保持的时间，期间不会因空闲而移除。
+     */
+    public long getMinHoldMillis() {
+        return minHoldMillis;
+    }
+
+    /**
+     * 命中本规则的热 key 数量上限，0 表示不限制。
+     */
+    public int getMaxHotKeys() {
+        return maxHotKeys;
+    }
+
+    public HotKeyRule getParent() {
+        return parent;
+    }
+
+    @Override
+    public String toString() {
+        return prefix == null ? "app" : "prefix:" + prefix;
+    }
+}
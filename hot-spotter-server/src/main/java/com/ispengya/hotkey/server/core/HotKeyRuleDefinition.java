@@ -0,0 +1,92 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * HotKeyRuleDefinition 是一条未编译的热 Key 判定规则配置。
+ *
+ * <p>prefix 为 null 时是应用级规则，否则只作用于该应用下以 prefix 开头的 key。
+ * 值为 null 的字段表示未配置，编译时从上一级继承：前缀规则继承应用级规则，
+ * 应用级规则继承全局配置。</p>
+ *
+ * @author ispengya
+ */
+public final class HotKeyRuleDefinition {
+
+    private final String appName;
+    private final String prefix;
+    private final String strategy;
+    private final Double threshold;
+    private final Double exitThreshold;
+    private final Long windowMillis;
+    private final Long idleMillis;
+    private final Long minHoldMillis;
+    private final Integer maxHotKeys;
+
+    /**
+     * 构造规则配置。
+     *
+     * @param appName      应用名
+     * @param prefix       key 前缀，null 表示应用级规则
+     * @param strategy     判定策略名
+     * @param threshold     进入热 key 的主阈值：count 为次数，qps / ewma / growth 为每秒次数，share 为百分比
+     * @param exitThreshold 已是热 key 时保持热度的主阈值，含义同 threshold
+     * @param windowMillis  统计窗口长度，只对应用级规则生效
+     * @param idleMillis    热 key 允许的最长空闲时间
+     * @param minHoldMillis 成为热 key 后至少保持的时间
+     * @param maxHotKeys    热 key 数量上限，0 表示不限制
+     */
+    public HotKeyRuleDefinition(String appName,
+                                String prefix,
+                                String strategy,
+                                Double threshold,
+                                Double exitThreshold,
+                                Long windowMillis,
+                                Long idleMillis,
+                                Long minHoldMillis,
+                                Integer maxHotKeys) {
+        this.appName = appName;
+        this.prefix = prefix;
+        this.strategy = strategy;
+        this.threshold = threshold;
+        this.exitThreshold = exitThreshold;
+        this.windowMillis = windowMillis;
+        this.idleMillis = idleMillis;
+        this.minHoldMillis = minHoldMillis;
+        this.maxHotKeys = maxHotKeys;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public Double getThreshold() {
+        return threshold;
+    }
+
+    public Double getExitThreshold() {
+        return exitThreshold;
+    }
+
+    public Long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public Long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public Long getMinHoldMillis() {
+        return minHoldMillis;
+    }
+
+    public Integer getMaxHotKeys() {
+        return maxHotKeys;
+    }
+}
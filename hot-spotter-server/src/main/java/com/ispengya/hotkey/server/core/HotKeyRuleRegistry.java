@@ -0,0 +1,170 @@
+package com.ispengya.hotkey.server.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HotKeyRuleRegistry 把按应用、按 key 前缀配置的判定规则编译为每个应用的 {@link HotKeyRuleSet}。
+ *
+ * <p>规则逐级继承：全局配置 → 应用级规则 → 前缀规则。可配置的内容包括判定策略与进入 / 退出阈值、
+ * 热 key 空闲时间与最短保持时间以及热 key 数量上限；窗口长度只能按应用配置，因为同一应用的所有 key
+ * 共用一个滑动窗口存储。前缀规则更换了策略时不继承应用级阈值（不同策略的阈值含义不同）；
+ * 前缀规则的数量上限只约束命中该前缀的热 key，不配置时只受应用级上限约束。</p>
+ *
+ * <p>规则在启动时一次性编译，之后只读；没有配置规则的应用共用默认规则集。</p>
+ *
+ * @author ispengya
+ */
+public final class HotKeyRuleRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyRuleRegistry.class);
+
+    private final HotKeyComputeAlgorithmFactory algorithmFactory;
+    private final long windowSizeMillis;
+    private final int windowSlotCount;
+    private final long defaultIdleMillis;
+    private final long defaultMinHoldMillis;
+    private final int defaultMaxHotKeys;
+    private final HotKeyRuleSet defaultRules;
+    private final Map<String, HotKeyRuleSet> appRules = new HashMap<>();
+
+    /**
+     * 构造并编译规则。
+     *
+     * @param definitions       规则配置
+     * @param algorithmFactory  判定策略工厂
+     * @param windowSizeMillis  单个窗口槽时间跨度
+     * @param windowSlotCount   默认窗口槽数量
+     * @param defaultIdleMillis    默认热 key 空闲时间
+     * @param defaultMinHoldMillis 默认热 key 最短保持时间
+     * @param defaultMaxHotKeys    默认单个应用热 key 数量上限，0 表示不限制
+     */
+    public HotKeyRuleRegistry(List<HotKeyRuleDefinition> definitions,
+                              HotKeyComputeAlgorithmFactory algorithmFactory,
+                              long windowSizeMillis,
+                              int windowSlotCount,
+                              long defaultIdleMillis,
+                              long defaultMinHoldMillis,
+                              int defaultMaxHotKeys) {
+        this.algorithmFactory = algorithmFactory;
+        this.windowSizeMillis = Math.max(1L, windowSizeMillis);
+        this.windowSlotCount = Math.max(1, windowSlotCount);
+        this.defaultIdleMillis = defaultIdleMillis;
+        this.defaultMinHoldMillis = defaultMinHoldMillis;
+        this.defaultMaxHotKeys = defaultMaxHotKeys;
+        this.defaultRules = compile(null, null, Collections.emptyList());
+
+        Map<String, HotKeyRuleDefinition> appDefinitions = new HashMap<>();
+        Map<String, List<HotKeyRuleDefinition>> prefixDefinitions = new LinkedHashMap<>();
+        if (definitions != null) {
+            for (HotKeyRuleDefinition definition : definitions) {
+                String appName = definition.getAppName();
+                if (appName == null) {
+                    continue;
+                }
+                List<HotKeyRuleDefinition> prefixes = prefixDefinitions.computeIfAbsent(appName, name -> new ArrayList<>());
+                if (definition.getPrefix() == null) {
+                    appDefinitions.put(appName, definition);
+                } else {
+                    prefixes.add(definition);
+                }
+            }
+        }
+        for (Map.Entry<String, List<HotKeyRuleDefinition>> entry : prefixDefinitions.entrySet()) {
+            String appName = entry.getKey();
+            HotKeyRuleSet rules = compile(appName, appDefinitions.get(appName), entry.getValue());
+            appRules.put(appName, rules);
+            if (log.isInfoEnabled()) {
+                log.info("Compiled hot key rules. appName={}, strategy={}, windowSlotCount={}, prefixRules={}",
+                        appName, rules.getAppRule().getAlgorithm().getName(),
+                        rules.getWindowSlotCount(), rules.getPrefixRuleCount());
+            }
+        }
+    }
+
+    /**
+     * 获取应用的规则集。
+     *
+     * @param appName 应用名
+     * @return 规则集，没有单独配置的应用返回默认规则集
+     */
+    public HotKeyRuleSet forApp(String appName) {
+        HotKeyRuleSet rules = appRules.get(appName);
+        return rules == null ? defaultRules : rules;
+    }
+
+    private HotKeyRuleSet compile(String appName,
+                                  HotKeyRuleDefinition appDefinition,
+                                  List<HotKeyRuleDefinition> prefixDefinitions) {
+        int slotCount = windowSlotCount;
+        String strategy = null;
+        Double threshold = null;
+        Double exitThreshold = null;
+        long idleMillis = defaultIdleMillis;
+        long minHoldMillis = defaultMinHoldMillis;
+        int maxHotKeys = defaultMaxHotKeys;
+        if (appDefinition != null) {
+            Long windowMillis = appDefinition.getWindowMillis();
+            if (windowMillis != null && windowMillis > 0L) {
+                slotCount = (int) Math.max(1L, (windowMillis + windowSizeMillis - 1) / windowSizeMillis);
+            }
+            strategy = appDefinition.getStrategy();
+            threshold = appDefinition.getThreshold();
+            exitThreshold = appDefinition.getExitThreshold();
+            idleMillis = valueOr(appDefinition.getIdleMillis(), idleMillis);
+            minHoldMillis = valueOr(appDefinition.getMinHoldMillis(), minHoldMillis);
+            maxHotKeys = valueOr(appDefinition.getMaxHotKeys(), maxHotKeys);
+        }
+        long windowSpanMillis = windowSizeMillis * slotCount;
+        HotKeyRule appRule = new HotKeyRule(
+                null,
+                algorithmFactory.create(strategy, threshold, exitThreshold, windowSpanMillis),
+                idleMillis,
+                minHoldMillis,
+                maxHotKeys,
+                null
+        );
+
+        KeyPrefixTrie<HotKeyRule> trie = new KeyPrefixTrie<>();
+        for (HotKeyRuleDefinition definition : prefixDefinitions) {
+            if (definition.getWindowMillis() != null) {
+                log.warn("Window length can only be set per app, ignored for prefix rule. appName={}, prefix={}",
+                        appName, definition.getPrefix());
+            }
+            String prefixStrategy = definition.getStrategy() == null ? strategy : definition.getStrategy();
+            Double prefixThreshold = definition.getThreshold();
+            Double prefixExitThreshold = definition.getExitThreshold();
+            if (prefixThreshold == null && definition.getStrategy() == null) {
+                prefixThreshold = threshold;
+                if (prefixExitThreshold == null) {
+                    prefixExitThreshold = exitThreshold;
+                }
+            }
+            HotKeyRule rule = new HotKeyRule(
+                    definition.getPrefix(),
+                    algorithmFactory.create(prefixStrategy, prefixThreshold, prefixExitThreshold, windowSpanMillis),
+                    valueOr(definition.getIdleMillis(), idleMillis),
+                    valueOr(definition.getMinHoldMillis(), minHoldMillis),
+                    valueOr(definition.getMaxHotKeys(), 0),
+                    appRule
+            );
+            trie.put(definition.getPrefix(), rule);
+        }
+        return new HotKeyRuleSet(appRule, trie, slotCount);
+    }
+
+    private static long valueOr(Long value, long defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    private static int valueOr(Integer value, int defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+}
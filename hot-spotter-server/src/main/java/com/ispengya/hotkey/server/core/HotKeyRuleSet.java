@@ -0,0 +1,53 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * HotKeyRuleSet 是单个应用编译后的全部判定规则。
+ *
+ * <p>前缀规则编译为 {@link KeyPrefixTrie}，为 key 选择规则只需沿 key 的字符走一遍前缀树，
+ * 取最长匹配的前缀规则，成本与 key 长度成正比，与规则数量无关；没有匹配时使用应用级规则。</p>
+ *
+ * <p>构建完成后只读，可被所有分片共享。</p>
+ *
+ * @author ispengya
+ */
+public final class HotKeyRuleSet {
+
+    private final HotKeyRule appRule;
+    private final KeyPrefixTrie<HotKeyRule> prefixRules;
+    private final int windowSlotCount;
+
+    HotKeyRuleSet(HotKeyRule appRule, KeyPrefixTrie<HotKeyRule> prefixRules, int windowSlotCount) {
+        this.appRule = appRule;
+        this.prefixRules = prefixRules;
+        this.windowSlotCount = windowSlotCount;
+    }
+
+    /**
+     * 为 key 选择判定规则。
+     *
+     * @param key 业务 key
+     * @return 最长匹配的前缀规则，没有匹配时返回应用级规则
+     */
+    public HotKeyRule resolve(String key) {
+        if (key == null || prefixRules.size() == 0) {
+            return appRule;
+        }
+        HotKeyRule rule = prefixRules.longestMatch(key);
+        return rule == null ? appRule : rule;
+    }
+
+    public HotKeyRule getAppRule() {
+        return appRule;
+    }
+
+    public int getPrefixRuleCount() {
+        return prefixRules.size();
+    }
+
+    /**
+     * 应用滑动窗口的槽数量。
+     */
+    public int getWindowSlotCount() {
+        return windowSlotCount;
+    }
+}
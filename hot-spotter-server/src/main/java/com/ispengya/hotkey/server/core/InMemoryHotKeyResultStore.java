@@ -1,6 +1,9 @@
 package com.ispengya.hotkey.server.core;
 
 import com.ispengya.hotkey.server.model.HotKeyResult;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -11,20 +14,49 @@ import java.util.concurrent.ConcurrentMap;
  */
 public final class InMemoryHotKeyResultStore implements HotKeyResultStore {
 
-    private final ConcurrentMap<String, HotKeyResult> store = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AppHotKeyState> store = new ConcurrentHashMap<>();
+    private final int changeLogCapacity;
+
+    /**
+     * 构造内存结果存储。
+     *
+     * @param changeLogCapacity 每个应用保留的变更条数
+     */
+    public InMemoryHotKeyResultStore(int changeLogCapacity) {
+        this.changeLogCapacity = changeLogCapacity;
+    }
 
     @Override
-    public void update(HotKeyResult result) {
-        store.put(result.getAppName(), result);
+    public AppHotKeyState stateOf(String appName) {
+        AppHotKeyState state = store.get(appName);
+        if (state != null) {
+            return state;
+        }
+        return store.computeIfAbsent(appName, name -> new AppHotKeyState(name, changeLogCapacity));
     }
 
     @Override
-    public HotKeyResult get(String appName) {
+    public AppHotKeyState findState(String appName) {
         return store.get(appName);
     }
 
     @Override
-    public Iterable<HotKeyResult> listAll() {
+    public Iterable<AppHotKeyState> listStates() {
         return store.values();
     }
+
+    @Override
+    public HotKeyResult get(String appName) {
+        AppHotKeyState state = store.get(appName);
+        return state == null ? null : state.snapshot();
+    }
+
+    @Override
+    public Iterable<HotKeyResult> listAll() {
+        List<HotKeyResult> results = new ArrayList<>(store.size());
+        for (AppHotKeyState state : store.values()) {
+            results.add(state.snapshot());
+        }
+        return results;
+    }
 }
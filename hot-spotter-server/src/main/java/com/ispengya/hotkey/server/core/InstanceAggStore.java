@@ -0,0 +1,48 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * InstanceAggStore 定义单个应用的滑动窗口聚合存储。
+ *
+ * <p>不同实现在精度与内存之间做不同取舍（见 {@link AggregationMode}），
+ * {@link HotKeyComputeAlgorithm} 只依赖 {@link #snapshotForKey(String, long)} 返回的统计，
+ * 与具体实现无关。</p>
+ *
+ * <p>实现只由所属分片的消费线程写入，除 {@link #totalCount(long)} 外的方法也只在该线程调用。</p>
+ *
+ * @author ispengya
+ */
+public interface InstanceAggStore {
+
+    /**
+     * 将已合并的访问计数写入指定时间对应的窗口槽。
+     *
+     * <p>需要按 key 保存状态的实现以 keyId 为键，并通过 {@link KeyDictionary#retain(int)}
+     * 持有该 ID，状态过期时释放。</p>
+     *
+     * @param keyId        key 在所属分片字典中的 ID
+     * @param key          业务 key
+     * @param count        访问次数
+     * @param successCount 成功次数
+     * @param rtMillis     累计耗时
+     * @param nowMillis    写入时间
+     */
+    void add(int keyId, String key, long count, long successCount, long rtMillis, long nowMillis);
+
+    /**
+     * 获取单个 key 截至指定时间的滑动窗口聚合统计。
+     *
+     * @param keyId     key 在所属分片字典中的 ID
+     * @param key       业务 key
+     * @param nowMillis 当前时间
+     * @return 聚合统计，窗口内没有访问时返回 null
+     */
+    AggregatedKeyStat snapshotForKey(int keyId, String key, long nowMillis);
+
+    /**
+     * 获取截至指定时间整个应用在滑动窗口内的访问总量，可由其他线程调用。
+     *
+     * @param nowMillis 当前时间
+     * @return 窗口内访问总量
+     */
+    long totalCount(long nowMillis);
+}
@@ -0,0 +1,94 @@
+package com.ispengya.hotkey.server.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * InstanceAggStoreFactory 按应用选择聚合方式并创建对应的 {@link InstanceAggStore}。
+ *
+ * <p>未单独配置的应用使用默认聚合方式；窗口槽数量可由应用的判定规则覆盖。</p>
+ *
+ * @author ispengya
+ */
+public final class InstanceAggStoreFactory {
+
+    private final long windowSizeMillis;
+    private final int windowSlotCount;
+    private final AggregationMode defaultMode;
+    private final Map<String, AggregationMode> appModes;
+    private final int sketchWidth;
+    private final int sketchDepth;
+    private final int sketchTopK;
+    private final long offHeapBytesPerShard;
+
+    /**
+     * 构造存储工厂。
+     *
+     * @param windowSizeMillis 单个窗口槽时间跨度
+     * @param windowSlotCount  窗口槽数量
+     * @param defaultMode      默认聚合方式
+     * @param appModes         按应用覆盖的聚合方式
+     * @param sketchWidth      SKETCH 模式每行计数器数量
+     * @param sketchDepth      SKETCH 模式哈希行数
+     * @param sketchTopK       SKETCH 模式候选热 key 数量上限
+     * @param offHeapMaxBytes  OFF_HEAP 模式单个应用的堆外内存预算，按分片数平分
+     * @param shardCount       上报管道分片数
+     */
+    public InstanceAggStoreFactory(long windowSizeMillis,
+                                   int windowSlotCount,
+                                   AggregationMode defaultMode,
+                                   Map<String, AggregationMode> appModes,
+                                   int sketchWidth,
+                                   int sketchDepth,
+                                   int sketchTopK,
+                                   long offHeapMaxBytes,
+                                   int shardCount) {
+        this.windowSizeMillis = windowSizeMillis;
+        this.windowSlotCount = windowSlotCount;
+        this.defaultMode = defaultMode == null ? AggregationMode.EXACT : defaultMode;
+        this.appModes = appModes == null ? Collections.emptyMap() : new HashMap<>(appModes);
+        this.sketchWidth = sketchWidth;
+        this.sketchDepth = sketchDepth;
+        this.sketchTopK = sketchTopK;
+        this.offHeapBytesPerShard = offHeapMaxBytes / Math.max(1, shardCount);
+    }
+
+    /**
+     * 为应用创建聚合存储。
+     *
+     * @param appName    应用名
+     * @param dictionary 该应用在所属分片内的 key 字典
+     * @return 聚合存储
+     */
+    public InstanceAggStore create(String appName, KeyDictionary dictionary) {
+        return create(appName, windowSlotCount, dictionary);
+    }
+
+    /**
+     * 按应用规则指定的窗口槽数量为应用创建聚合存储。
+     *
+     * @param appName         应用名
+     * @param windowSlotCount 窗口槽数量
+     * @param dictionary      该应用在所属分片内的 key 字典
+     * @return 聚合存储
+     */
+    public InstanceAggStore create(String appName, int windowSlotCount, KeyDictionary dictionary) {
+        switch (modeOf(appName)) {
+            case SKETCH:
+                return new SketchInstanceAggStore(
+                        windowSizeMillis, windowSlotCount, sketchWidth, sketchDepth, sketchTopK);
+            case OFF_HEAP:
+                return new OffHeapInstanceAggStore(
+                        windowSizeMillis, windowSlotCount, offHeapBytesPerShard, dictionary);
+            case EXACT:
+            default:
+                return new SlidingWindowInstanceAggStore(windowSizeMillis, windowSlotCount, dictionary);
+        }
+    }
+
+    public AggregationMode modeOf(String appName) {
+        AggregationMode mode = appModes.get(appName);
+        return mode == null ? defaultMode : mode;
+    }
+}
@@ -1,29 +1,62 @@
 package com.ispengya.hotkey.server.core;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
- * InstanceWindowRegistry 负责维护 appName 到滑动窗口存储的映射。
+ * InstanceWindowRegistry 负责维护 appName 到该应用 key 状态（{@link AppKeySpace}）的映射。
  *
  * 核心职责：
- * 1. 根据 appName 选择对应的滑动窗口（不存在时创建）
+ * 1. 根据 appName 选择对应的 key 状态与滑动窗口（不存在时按应用配置的聚合方式与判定规则创建）
  * 2. 枚举当前所有已存在窗口对应的 appName
+ * 3. 持有所属分片的热 key 到期时间轮
  */
 public final class InstanceWindowRegistry implements InstanceRegistry {
 
-    private final ConcurrentMap<String, SlidingWindowInstanceAggStore> stores = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AppKeySpace> keySpaces = new ConcurrentHashMap<>();
 
-    private final long windowSizeMillis;
-    private final int windowSlotCount;
+    private final InstanceAggStoreFactory storeFactory;
+    private final HotKeyRuleRegistry ruleRegistry;
+    private final ExpiryTimingWheel expiryWheel;
 
-    public InstanceWindowRegistry(long windowSizeMillis,
-                                  int windowSlotCount) {
-        this.windowSizeMillis = windowSizeMillis;
-        this.windowSlotCount = windowSlotCount;
+    /**
+     * 构造注册表。
+     *
+     * @param storeFactory     窗口存储工厂
+     * @param ruleRegistry     热 key 判定规则
+     * @param expiryTickMillis 热 key 空闲到期的精度
+     */
+    public InstanceWindowRegistry(InstanceAggStoreFactory storeFactory,
+                                  HotKeyRuleRegistry ruleRegistry,
+                                  long expiryTickMillis) {
+        this.storeFactory = storeFactory;
+        this.ruleRegistry = ruleRegistry;
+        this.expiryWheel = new ExpiryTimingWheel(
+                expiryTickMillis, ExpiryTimingWheel.DEFAULT_WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    /**
+     * 根据 appName 选择对应的 key 状态，如果不存在则创建。
+     *
+     * @param appName 应用名
+     * @return 该应用的 key 字典、滑动窗口与热 key 条目
+     */
+    public AppKeySpace selectKeySpaceForApp(String appName) {
+        AppKeySpace keySpace = keySpaces.get(appName);
+        if (keySpace != null) {
+            return keySpace;
+        }
+        return keySpaces.computeIfAbsent(appName, name -> new AppKeySpace(
+                name, storeFactory, ruleRegistry.forApp(name), expiryWheel));
+    }
+
+    /**
+     * 查询 appName 对应的 key 状态，不存在时返回 null。
+     */
+    AppKeySpace findKeySpace(String appName) {
+        return keySpaces.get(appName);
     }
 
     /**
@@ -32,23 +65,23 @@ public final class InstanceWindowRegistry implements InstanceRegistry {
      * @param appName 应用名
      * @return 该应用对应的滑动窗口存储
      */
-    public SlidingWindowInstanceAggStore selectWindowForApp(String appName) {
-        return stores.computeIfAbsent(appName, this::createWindowForApp);
+    public InstanceAggStore selectWindowForApp(String appName) {
+        return selectKeySpaceForApp(appName).getStore();
     }
 
-    @Override
-    public Set<String> listAppNames() {
-        return stores.keySet();
+    Collection<AppKeySpace> listKeySpaces() {
+        return keySpaces.values();
     }
 
-    private SlidingWindowInstanceAggStore createWindowForApp(String appName) {
-        List<WindowSlot> slots = new ArrayList<>();
-        long now = System.currentTimeMillis();
-        long alignedStart = now - (now % windowSizeMillis);
-        for (int i = 0; i < windowSlotCount; i++) {
-            long start = alignedStart - (long) i * windowSizeMillis;
-            slots.add(new WindowSlot(start, new ConcurrentHashMap<>()));
-        }
-        return new SlidingWindowInstanceAggStore(windowSizeMillis, windowSlotCount, slots);
+    /**
+     * 本注册表所有应用共用的热 key 到期时间轮，与注册表同属一个分片。
+     */
+    ExpiryTimingWheel getExpiryWheel() {
+        return expiryWheel;
+    }
+
+    @Override
+    public Set<String> listAppNames() {
+        return keySpaces.keySet();
     }
 }
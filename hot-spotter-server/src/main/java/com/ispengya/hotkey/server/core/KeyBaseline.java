@@ -0,0 +1,82 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * KeyBaseline 是单个 key 的访问速率基线，以指数加权方式统计均值与方差。
+ *
+ * <p>权重按时间衰减：距离上次更新 dt 毫秒后，新样本的权重为 {@code 1 - 2^(-dt / halfLifeMillis)}，
+ * 因此判定频率高低不影响基线的时间尺度。更新是 O(1) 的，不保存历史样本。</p>
+ *
+ * <p>基线挂在所属分片的 {@link ExpiryTimingWheel} 上，超过策略的保留时间没有判定时被丢弃，
+ * 相当于基线衰减为零。只由所属分片的消费线程访问。</p>
+ *
+ * @author ispengya
+ */
+public final class KeyBaseline extends ExpiryTimingWheel.Node {
+
+    private final AppKeySpace keySpace;
+    private final int keyId;
+    private boolean empty = true;
+    private double mean;
+    private double variance;
+    private long lastUpdateMillis;
+
+    KeyBaseline(AppKeySpace keySpace, int keyId) {
+        this.keySpace = keySpace;
+        this.keyId = keyId;
+    }
+
+    AppKeySpace getKeySpace() {
+        return keySpace;
+    }
+
+    int getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * 是否还没有任何样本。
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(variance);
+    }
+
+    public long getLastUpdateMillis() {
+        return lastUpdateMillis;
+    }
+
+    /**
+     * 加入一个样本。第一个样本直接作为均值。
+     *
+     * @param sample         样本值
+     * @param nowMillis      当前时间
+     * @param halfLifeMillis 半衰期
+     */
+    public void update(double sample, long nowMillis, long halfLifeMillis) {
+        if (empty) {
+            mean = sample;
+            variance = 0.0d;
+            lastUpdateMillis = nowMillis;
+            empty = false;
+            return;
+        }
+        long dt = Math.max(0L, nowMillis - lastUpdateMillis);
+        double alpha = halfLifeMillis <= 0L ? 1.0d : 1.0d - Math.pow(2.0d, -(double) dt / halfLifeMillis);
+        double diff = sample - mean;
+        double increment = alpha * diff;
+        mean += increment;
+        variance = (1.0d - alpha) * (variance + diff * increment);
+        lastUpdateMillis = Math.max(lastUpdateMillis, nowMillis);
+    }
+}
@@ -0,0 +1,198 @@
+package com.ispengya.hotkey.server.core;
+
+import java.util.Arrays;
+
+/**
+ * KeyDictionary 为单个应用在单个分片内的业务 key 分配紧凑的 int ID。
+ *
+ * <p>上报进入分片时只对 key 字符串做一次哈希查找，之后窗口、热度状态都以 int ID 作为键，
+ * 避免长 key 字符串被反复哈希和比较。ID 从 0 开始连续分配，释放后放入空闲栈复用。</p>
+ *
+ * <p>每个 ID 带有引用计数：持有该 key 状态的结构（窗口计数、热 key 条目）各自
+ * {@link #retain(int)} 一次，过期时 {@link #release(int)}。引用计数归零的 ID 会被回收，
+ * 因此字典大小只与仍有状态的 key 数量相关。</p>
+ *
+ * <p>内部使用线性探测的开放寻址表，删除时向前搬移后续元素，不留墓碑。非线程安全，
+ * 只由所属分片的消费线程访问。</p>
+ *
+ * @author ispengya
+ */
+public final class KeyDictionary {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * 哈希表，存放 ID + 1，0 表示空位。
+     */
+    private int[] table;
+    private int tableMask;
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] refCounts;
+
+    /**
+     * 已释放、可复用的 ID。
+     */
+    private int[] freeIds;
+    private int freeCount;
+
+    /**
+     * 已分配过的最大 ID + 1。
+     */
+    private int nextId;
+    private int size;
+
+    public KeyDictionary() {
+        this.table = new int[INITIAL_CAPACITY * 2];
+        this.tableMask = table.length - 1;
+        this.keys = new String[INITIAL_CAPACITY];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.refCounts = new int[INITIAL_CAPACITY];
+        this.freeIds = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * 获取 key 的 ID，不存在时分配一个新 ID（引用计数为 0）。
+     *
+     * <p>调用方应随即 {@link #retain(int)} 该 ID，并在不再需要时 {@link #release(int)}。</p>
+     *
+     * @param key 业务 key
+     * @return key ID
+     */
+    public int intern(String key) {
+        int hash = spread(key.hashCode());
+        int pos = hash & tableMask;
+        while (true) {
+            int slot = table[pos];
+            if (slot == 0) {
+                break;
+            }
+            int id = slot - 1;
+            if (hashes[id] == hash && key.equals(keys[id])) {
+                return id;
+            }
+            pos = (pos + 1) & tableMask;
+        }
+        int id = allocateId();
+        keys[id] = key;
+        hashes[id] = hash;
+        refCounts[id] = 0;
+        table[pos] = id + 1;
+        size++;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * 查询 key 的 ID，不存在时返回 -1。
+     */
+    public int idOf(String key) {
+        int hash = spread(key.hashCode());
+        int pos = hash & tableMask;
+        while (true) {
+            int slot = table[pos];
+            if (slot == 0) {
+                return -1;
+            }
+            int id = slot - 1;
+            if (hashes[id] == hash && key.equals(keys[id])) {
+                return id;
+            }
+            pos = (pos + 1) & tableMask;
+        }
+    }
+
+    /**
+     * 根据 ID 取回 key。
+     */
+    public String keyOf(int id) {
+        return keys[id];
+    }
+
+    /**
+     * 增加 ID 的引用计数。
+     */
+    public void retain(int id) {
+        refCounts[id]++;
+    }
+
+    /**
+     * 减少 ID 的引用计数，归零时回收该 ID。
+     */
+    public void release(int id) {
+        if (--refCounts[id] <= 0) {
+            remove(id);
+        }
+    }
+
+    /**
+     * 当前仍在使用的 ID 数量。
+     */
+    public int size() {
+        return size;
+    }
+
+    private int allocateId() {
+        if (freeCount > 0) {
+            return freeIds[--freeCount];
+        }
+        if (nextId == keys.length) {
+            int newLength = keys.length * 2;
+            keys = Arrays.copyOf(keys, newLength);
+            hashes = Arrays.copyOf(hashes, newLength);
+            refCounts = Arrays.copyOf(refCounts, newLength);
+        }
+        return nextId++;
+    }
+
+    private void remove(int id) {
+        int pos = hashes[id] & tableMask;
+        while (table[pos] != id + 1) {
+            pos = (pos + 1) & tableMask;
+        }
+        // 向前搬移同一探测链上的后续元素，保持查找不中断
+        int hole = pos;
+        int next = (hole + 1) & tableMask;
+        while (table[next] != 0) {
+            int home = hashes[table[next] - 1] & tableMask;
+            if (((next - home) & tableMask) >= ((next - hole) & tableMask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+        table[hole] = 0;
+        keys[id] = null;
+        refCounts[id] = 0;
+        size--;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    private void rehash(int newTableLength) {
+        int[] newTable = new int[newTableLength];
+        int newMask = newTableLength - 1;
+        for (int slot : table) {
+            if (slot == 0) {
+                continue;
+            }
+            int pos = hashes[slot - 1] & newMask;
+            while (newTable[pos] != 0) {
+                pos = (pos + 1) & newMask;
+            }
+            newTable[pos] = slot;
+        }
+        this.table = newTable;
+        this.tableMask = newMask;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ispengya.hotkey.server.core;
+
+import java.util.Arrays;
+
+/**
+ * KeyPrefixTrie 是按字符组织的前缀树，用于查找 key 的最长匹配前缀。
+ *
+ * <p>每个节点的子节点按字符排序保存在数组中并二分查找，查找成本与 key 长度成正比，
+ * 与前缀数量无关。构建完成后只读，可被多个线程共享。</p>
+ *
+ * @param <V> 前缀关联的值
+ * @author ispengya
+ */
+final class KeyPrefixTrie<V> {
+
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    /**
+     * 关联前缀与值，前缀已存在时覆盖。
+     */
+    void put(String prefix, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.childOrCreate(prefix.charAt(i));
+        }
+        if (node.value == null) {
+            size++;
+        }
+        node.value = value;
+    }
+
+    /**
+     * 查找 key 的最长匹配前缀关联的值。
+     *
+     * @param key 业务 key
+     * @return 最长匹配前缀的值，没有匹配时返回 null
+     */
+    V longestMatch(String key) {
+        Node<V> node = root;
+        V matched = root.value;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.child(key.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                matched = node.value;
+            }
+        }
+        return matched;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static final class Node<V> {
+
+        private char[] labels = new char[0];
+        private Node<V>[] children = newArray(0);
+        private V value;
+
+        private Node<V> child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private Node<V> childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            int n = labels.length;
+            char[] newLabels = new char[n + 1];
+            Node<V>[] newChildren = newArray(n + 1);
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(labels, at, newLabels, at + 1, n - at);
+            System.arraycopy(children, at, newChildren, at + 1, n - at);
+            Node<V> created = new Node<>();
+            newLabels[at] = c;
+            newChildren[at] = created;
+            labels = newLabels;
+            children = newChildren;
+            return created;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newArray(int length) {
+            return (Node<V>[]) new Node<?>[length];
+        }
+    }
+}
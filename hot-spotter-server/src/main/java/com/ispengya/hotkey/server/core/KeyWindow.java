@@ -0,0 +1,116 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * KeyWindow 维护单个 key 在滑动窗口内的环形计数。
+ *
+ * <p>环长度等于窗口槽数量，第 {@code w} 个时间槽（{@code w = 时间戳 / 槽跨度}）的计数落在
+ * {@code w % slotCount} 位置；同时维护窗口内所有槽的累计值。时间前进时只把滑出窗口的槽
+ * 从累计值中减掉并清零，因此读取该 key 的窗口总和是 O(1) 的，滚动成本按经过的槽数均摊。</p>
+ *
+ * <p>该对象只由所属分片的消费线程访问，读写均不加锁。</p>
+ *
+ * @author ispengya
+ */
+final class KeyWindow {
+
+    private final int slotCount;
+
+    private final long[] totalCounts;
+    private final long[] successCounts;
+    private final long[] rtMillis;
+
+    /**
+     * 窗口内的累计值。
+     */
+    private long totalCount;
+    private long successCount;
+    private long totalRtMillis;
+
+    /**
+     * 当前已经滚动到的时间槽序号。
+     */
+    private long headWindow = Long.MIN_VALUE;
+
+    KeyWindow(int slotCount) {
+        this.slotCount = slotCount;
+        this.totalCounts = new long[slotCount];
+        this.successCounts = new long[slotCount];
+        this.rtMillis = new long[slotCount];
+    }
+
+    /**
+     * 在指定时间槽上累加访问。
+     */
+    void add(long windowIndex, long count, long success, long rt) {
+        roll(windowIndex);
+        int idx = indexOf(headWindow);
+        totalCounts[idx] += count;
+        totalCount += count;
+        successCounts[idx] += success;
+        successCount += success;
+        rtMillis[idx] += rt;
+        totalRtMillis += rt;
+    }
+
+    /**
+     * 获取截至指定时间槽的窗口聚合统计，窗口内没有访问时返回 null。
+     */
+    AggregatedKeyStat snapshot(String key, long windowIndex) {
+        roll(windowIndex);
+        if (totalCount == 0L) {
+            return null;
+        }
+        return new AggregatedKeyStat(
+                key,
+                totalCount,
+                successCount,
+                totalCount - successCount,
+                totalRtMillis
+        );
+    }
+
+    /**
+     * 该 key 在整个窗口内是否都没有访问。
+     */
+    boolean isIdle(long windowIndex) {
+        return headWindow == Long.MIN_VALUE || windowIndex - headWindow >= slotCount;
+    }
+
+    private void roll(long windowIndex) {
+        if (headWindow == Long.MIN_VALUE) {
+            headWindow = windowIndex;
+            return;
+        }
+        // 时间回拨时继续写入当前槽
+        if (windowIndex <= headWindow) {
+            return;
+        }
+        if (windowIndex - headWindow >= slotCount) {
+            // 整个窗口都已过期，直接清空
+            for (int i = 0; i < slotCount; i++) {
+                totalCounts[i] = 0L;
+                successCounts[i] = 0L;
+                rtMillis[i] = 0L;
+            }
+            totalCount = 0L;
+            successCount = 0L;
+            totalRtMillis = 0L;
+        } else {
+            // 依次把滑出窗口的槽从累计值中扣除
+            for (long w = headWindow + 1; w <= windowIndex; w++) {
+                int idx = indexOf(w);
+                totalCount -= totalCounts[idx];
+                successCount -= successCounts[idx];
+                totalRtMillis -= rtMillis[idx];
+                totalCounts[idx] = 0L;
+                successCounts[idx] = 0L;
+                rtMillis[idx] = 0L;
+            }
+        }
+        headWindow = windowIndex;
+    }
+
+    private int indexOf(long windowIndex) {
+        return (int) Math.floorMod(windowIndex, (long) slotCount);
+    }
+}
@@ -0,0 +1,148 @@
+package com.ispengya.hotkey.server.core;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * MpscRingBuffer 是一个有界的多生产者、单消费者环形队列。
+ *
+ * <p>基于预分配数组和每个位置的序号实现：生产者通过 CAS 抢占写入位置，
+ * 入队不会分配节点对象，队列满时 {@link #offer(Object)} 直接返回 false。
+ * 常规出队只由一个消费线程执行；为支持「丢弃最旧」的过载策略，读取位置同样通过 CAS
+ * 推进，因此生产者也可以调用 {@link #poll()} 挤掉队头元素。</p>
+ *
+ * @param <E> 元素类型
+ * @author ispengya
+ */
+public final class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] elements;
+
+    /**
+     * 每个位置的序号：等于写入位置时可写，等于写入位置 + 1 时可读。
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * 生产者下一个写入位置。
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个读取位置。
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * 构造环形队列，容量向上取整到 2 的幂，且至少为 2。
+     *
+     * <p>容量为 1 时「已写入」的序号 pos + 1 恰好等于下一个写入位置的期望序号，
+     * 生产者无法判断队列已满，因此最小容量取 2。</p>
+     *
+     * @param requestedCapacity 期望容量
+     */
+    public MpscRingBuffer(int requestedCapacity) {
+        int cap = 2;
+        while (cap < requestedCapacity && cap < (1 << 30)) {
+            cap <<= 1;
+        }
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.elements = new Object[cap];
+        this.sequences = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队，可被多个线程并发调用。
+     *
+     * @param e 元素
+     * @return 队列已满时返回 false
+     */
+    public boolean offer(E e) {
+        long pos;
+        int index;
+        while (true) {
+            pos = tail.get();
+            index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0L) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (diff < 0L) {
+                return false;
+            }
+        }
+        elements[index] = e;
+        sequences.lazySet(index, pos + 1);
+        return true;
+    }
+
+    /**
+     * 出队。通常由消费线程调用，生产者在丢弃最旧元素时也会调用。
+     *
+     * @return 队列为空时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos;
+        int index;
+        while (true) {
+            pos = head.get();
+            index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0L) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (diff < 0L) {
+                return null;
+            }
+        }
+        E e = (E) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, pos + capacity);
+        return e;
+    }
+
+    /**
+     * 批量出队，最多取出 maxElements 个元素追加到 target 中。
+     *
+     * @param target      目标集合
+     * @param maxElements 最多取出的元素数量
+     * @return 实际取出的数量
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            E e = poll();
+            if (e == null) {
+                break;
+            }
+            target.add(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * 当前队列中的元素数量（近似值）。
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0L) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,310 @@
+package com.ispengya.hotkey.server.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * OffHeapInstanceAggStore 把每个 key 的滑动窗口计数保存在堆外内存中。
+ *
+ * <p>整张表是一块按预算一次性分配的 direct {@link ByteBuffer}，以 key ID 为键做线性探测的
+ * 开放寻址。每条记录由定长的 long 组成：
+ * <pre>
+ * [keyId + 1][headWindow][total][success][rt][slot0: total, success, rt] ... [slotN-1: ...]
+ * </pre>
+ * 逻辑与 {@link KeyWindow} 相同：按 {@code 槽序号 % 槽数量} 定位格子，滑出窗口的格子从累计值中扣除，
+ * 读取某个 key 的窗口总和是 O(1) 的。运行期间不为 key 分配任何堆对象，对 GC 几乎没有影响。</p>
+ *
+ * <p>容量由内存预算决定，负载因子不超过 0.75。表满时新 key 不再入表（只计入应用总量），
+ * 并累计拒绝次数；每次槽滚动时清理整个窗口内都没有访问的记录，删除时向前搬移后续记录，
+ * 不留墓碑。</p>
+ *
+ * <p>只由所属分片的消费线程读写，{@link #totalCount(long)} 可由其他线程调用。</p>
+ *
+ * @author ispengya
+ */
+public final class OffHeapInstanceAggStore implements InstanceAggStore {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapInstanceAggStore.class);
+
+    private static final int KEY = 0;
+    private static final int HEAD = 1;
+    private static final int TOTAL = 2;
+    private static final int SUCCESS = 3;
+    private static final int RT = 4;
+    private static final int CELLS = 5;
+    private static final int FIELDS_PER_CELL = 3;
+
+    private final long windowSizeMillis;
+    private final int windowSlotCount;
+    private final WindowSlot[] slots;
+    private final KeyDictionary dictionary;
+
+    private final ByteBuffer table;
+    private final int recordBytes;
+    private final int capacity;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+    private long rejectedCount;
+
+    /**
+     * 构造堆外聚合存储。
+     *
+     * @param windowSizeMillis 单个窗口槽时间跨度
+     * @param windowSlotCount  窗口槽数量
+     * @param maxBytes         表的内存预算（字节）
+     * @param dictionary       所属分片内该应用的 key 字典
+     */
+    public OffHeapInstanceAggStore(long windowSizeMillis,
+                                   int windowSlotCount,
+                                   long maxBytes,
+                                   KeyDictionary dictionary) {
+        this.windowSizeMillis = windowSizeMillis;
+        this.windowSlotCount = Math.max(1, windowSlotCount);
+        this.dictionary = dictionary;
+        this.slots = new WindowSlot[this.windowSlotCount];
+        for (int i = 0; i < this.windowSlotCount; i++) {
+            slots[i] = new WindowSlot();
+        }
+        this.recordBytes = (CELLS + this.windowSlotCount * FIELDS_PER_CELL) * Long.BYTES;
+        long budget = Math.min(Math.max(maxBytes, recordBytes * 2L), Integer.MAX_VALUE);
+        int cap = 2;
+        while ((long) cap * 2 * recordBytes <= budget) {
+            cap <<= 1;
+        }
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.maxSize = Math.max(1, (int) (cap * 0.75d));
+        this.table = ByteBuffer.allocateDirect(cap * recordBytes).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public void add(int keyId, String key, long count, long successCount, long rtMillis, long nowMillis) {
+        long windowIndex = windowIndexOf(nowMillis);
+        resolveSlot(windowIndex).add(count);
+        int record = findOrInsert(keyId);
+        if (record < 0) {
+            rejectedCount++;
+            if ((rejectedCount & 0xFFFFL) == 1L && log.isWarnEnabled()) {
+                log.warn("Off-heap window table is full, new keys are not tracked. capacity={}, rejected={}",
+                        maxSize, rejectedCount);
+            }
+            return;
+        }
+        roll(record, windowIndex);
+        int cell = cellOffset(record, headOf(record));
+        addLong(cell, count);
+        addLong(cell + Long.BYTES, successCount);
+        addLong(cell + 2 * Long.BYTES, rtMillis);
+        addLong(field(record, TOTAL), count);
+        addLong(field(record, SUCCESS), successCount);
+        addLong(field(record, RT), rtMillis);
+    }
+
+    @Override
+    public AggregatedKeyStat snapshotForKey(int keyId, String key, long nowMillis) {
+        int record = find(keyId);
+        if (record < 0) {
+            return null;
+        }
+        roll(record, windowIndexOf(nowMillis));
+        long total = table.getLong(field(record, TOTAL));
+        if (total == 0L) {
+            return null;
+        }
+        long success = table.getLong(field(record, SUCCESS));
+        return new AggregatedKeyStat(key, total, success, total - success, table.getLong(field(record, RT)));
+    }
+
+    @Override
+    public long totalCount(long nowMillis) {
+        return WindowSlot.sumWindow(slots, windowIndexOf(nowMillis));
+    }
+
+    /**
+     * 表满而未能记录的新 key 次数。
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    private WindowSlot resolveSlot(long windowIndex) {
+        WindowSlot slot = slots[(int) Math.floorMod(windowIndex, (long) windowSlotCount)];
+        if (slot.getGeneration() < windowIndex) {
+            slot.reset(windowIndex);
+            // 每滚动一个槽顺带清理一次空闲记录，成本按槽跨度均摊
+            evictIdle(windowIndex);
+        }
+        return slot;
+    }
+
+    private void roll(int record, long windowIndex) {
+        long head = headOf(record);
+        if (head == Long.MIN_VALUE) {
+            table.putLong(field(record, HEAD), windowIndex);
+            return;
+        }
+        // 时间回拨时继续写入当前格子
+        if (windowIndex <= head) {
+            return;
+        }
+        long total = table.getLong(field(record, TOTAL));
+        long success = table.getLong(field(record, SUCCESS));
+        long rt = table.getLong(field(record, RT));
+        if (windowIndex - head >= windowSlotCount) {
+            // 整个窗口都已过期，直接清空
+            for (int i = 0; i < windowSlotCount; i++) {
+                clearCell(cellOffsetOfIndex(record, i));
+            }
+            total = 0L;
+            success = 0L;
+            rt = 0L;
+        } else {
+            for (long w = head + 1; w <= windowIndex; w++) {
+                int cell = cellOffset(record, w);
+                total -= table.getLong(cell);
+                success -= table.getLong(cell + Long.BYTES);
+                rt -= table.getLong(cell + 2 * Long.BYTES);
+                clearCell(cell);
+            }
+        }
+        table.putLong(field(record, TOTAL), total);
+        table.putLong(field(record, SUCCESS), success);
+        table.putLong(field(record, RT), rt);
+        table.putLong(field(record, HEAD), windowIndex);
+    }
+
+    private void evictIdle(long windowIndex) {
+        int i = 0;
+        while (i < capacity) {
+            int record = i * recordBytes;
+            long stored = table.getLong(field(record, KEY));
+            if (stored != 0L && windowIndex - headOf(record) >= windowSlotCount) {
+                // 删除后后续记录可能搬到当前位置，因此不前进，重新检查当前位置
+                int keyId = (int) (stored - 1L);
+                removeAt(i);
+                dictionary.release(keyId);
+                continue;
+            }
+            i++;
+        }
+    }
+
+    private int find(int keyId) {
+        long stored = keyId + 1L;
+        int pos = spread(keyId) & mask;
+        while (true) {
+            int record = pos * recordBytes;
+            long current = table.getLong(field(record, KEY));
+            if (current == stored) {
+                return record;
+            }
+            if (current == 0L) {
+                return -1;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    private int findOrInsert(int keyId) {
+        long stored = keyId + 1L;
+        int pos = spread(keyId) & mask;
+        while (true) {
+            int record = pos * recordBytes;
+            long current = table.getLong(field(record, KEY));
+            if (current == stored) {
+                return record;
+            }
+            if (current == 0L) {
+                if (size >= maxSize) {
+                    return -1;
+                }
+                for (int offset = 0; offset < recordBytes; offset += Long.BYTES) {
+                    table.putLong(record + offset, 0L);
+                }
+                table.putLong(field(record, KEY), stored);
+                table.putLong(field(record, HEAD), Long.MIN_VALUE);
+                size++;
+                dictionary.retain(keyId);
+                return record;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    private void removeAt(int pos) {
+        int hole = pos;
+        int next = (hole + 1) & mask;
+        while (true) {
+            long stored = table.getLong(next * recordBytes);
+            if (stored == 0L) {
+                break;
+            }
+            int home = spread((int) (stored - 1L)) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                copyRecord(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table.putLong(hole * recordBytes, 0L);
+        size--;
+    }
+
+    private void copyRecord(int from, int to) {
+        int src = from * recordBytes;
+        int dst = to * recordBytes;
+        for (int offset = 0; offset < recordBytes; offset += Long.BYTES) {
+            table.putLong(dst + offset, table.getLong(src + offset));
+        }
+    }
+
+    private long headOf(int record) {
+        return table.getLong(field(record, HEAD));
+    }
+
+    private int cellOffset(int record, long windowIndex) {
+        return cellOffsetOfIndex(record, (int) Math.floorMod(windowIndex, (long) windowSlotCount));
+    }
+
+    private int cellOffsetOfIndex(int record, int slotIndex) {
+        return record + (CELLS + slotIndex * FIELDS_PER_CELL) * Long.BYTES;
+    }
+
+    private void clearCell(int cell) {
+        table.putLong(cell, 0L);
+        table.putLong(cell + Long.BYTES, 0L);
+        table.putLong(cell + 2 * Long.BYTES, 0L);
+    }
+
+    private void addLong(int offset, long delta) {
+        table.putLong(offset, table.getLong(offset) + delta);
+    }
+
+    private static int field(int record, int field) {
+        return record + field * Long.BYTES;
+    }
+
+    private long windowIndexOf(long timestampMillis) {
+        if (windowSizeMillis <= 0L) {
+            return timestampMillis;
+        }
+        return timestampMillis / windowSizeMillis;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
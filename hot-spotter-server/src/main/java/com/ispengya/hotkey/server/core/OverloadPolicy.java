@@ -0,0 +1,25 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * OverloadPolicy 定义分片队列过载时的处理策略。
+ *
+ * @author ispengya
+ */
+public enum OverloadPolicy {
+
+    /**
+     * 队列已满时丢弃新到达的上报。
+     */
+    DROP_NEWEST,
+
+    /**
+     * 队列已满时挤掉队列中最旧的上报，为新上报腾出位置。
+     */
+    DROP_OLDEST,
+
+    /**
+     * 队列水位超过阈值后按比例采样，被保留的上报按采样倍数放大计数，
+     * 使窗口统计在期望上保持不变；队列彻底写满时丢弃新上报。
+     */
+    DOWN_SAMPLE
+}
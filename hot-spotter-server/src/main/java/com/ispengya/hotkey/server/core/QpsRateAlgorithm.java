@@ -0,0 +1,62 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * QpsRateAlgorithm 按窗口平均 QPS 判定热 Key。
+ *
+ * <p>窗口内访问总数除以窗口总长度得到每秒访问次数，大于等于阈值即为热 key。
+ * 与次数阈值相比，调整窗口长度时不需要同步修改阈值。已是热 key 时按退出阈值判定。</p>
+ *
+ * @author ispengya
+ */
+public final class QpsRateAlgorithm implements HotKeyComputeAlgorithm {
+
+    public static final String NAME = "qps";
+
+    private final double minQps;
+    private final double exitQps;
+    private final long windowSpanMillis;
+
+    /**
+     * 构造 QPS 阈值策略，进入与退出阈值相同。
+     *
+     * @param minQps           每秒访问次数阈值
+     * @param windowSpanMillis 窗口总长度
+     */
+    public QpsRateAlgorithm(double minQps, long windowSpanMillis) {
+        this(minQps, minQps, windowSpanMillis);
+    }
+
+    /**
+     * 构造 QPS 阈值策略。
+     *
+     * @param minQps           进入热 key 的每秒访问次数阈值
+     * @param exitQps          保持热 key 的每秒访问次数阈值，不高于进入阈值
+     * @param windowSpanMillis 窗口总长度
+     */
+    public QpsRateAlgorithm(double minQps, double exitQps, long windowSpanMillis) {
+        this.minQps = minQps;
+        this.exitQps = Math.min(exitQps, minQps);
+        this.windowSpanMillis = Math.max(1L, windowSpanMillis);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isHot(AggregatedKeyStat stat, HotKeyContext context) {
+        if (stat == null) {
+            return false;
+        }
+        double threshold = context.isCurrentlyHot() ? exitQps : minQps;
+        return ratePerSecond(stat.getTotalCount(), windowSpanMillis) >= threshold;
+    }
+
+    /**
+     * 窗口内访问次数折算为每秒访问次数。
+     */
+    static double ratePerSecond(long count, long windowSpanMillis) {
+        return count * 1000.0d / windowSpanMillis;
+    }
+}
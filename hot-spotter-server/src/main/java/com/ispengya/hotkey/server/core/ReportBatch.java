@@ -0,0 +1,73 @@
+package com.ispengya.hotkey.server.core;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ReportBatch 是一次上报中路由到同一分片的 key 集合。
+ *
+ * <p>上报消息按分片拆开后，每个分片只收到一个 ReportBatch，key 与计数以平行数组保存，
+ * 不再为每个 key 创建独立的上报对象。同一批次中的 key 共享应用名。</p>
+ *
+ * <p>入队前只由提交线程修改（采样），入队后只由分片消费线程读取。</p>
+ *
+ * @author ispengya
+ */
+final class ReportBatch {
+
+    private final String appName;
+    private final String[] keys;
+    private final int[] counts;
+    private int size;
+
+    ReportBatch(String appName, int capacity) {
+        this.appName = appName;
+        this.keys = new String[capacity];
+        this.counts = new int[capacity];
+    }
+
+    void add(String key, int count) {
+        keys[size] = key;
+        counts[size] = count;
+        size++;
+    }
+
+    /**
+     * 按 1/sampleRate 的概率保留每个 key，并将保留下来的计数放大 sampleRate 倍，保持期望值不变。
+     *
+     * <p>原地压缩数组，不产生新对象。</p>
+     *
+     * @param sampleRate 采样倍率
+     */
+    void sample(int sampleRate) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(sampleRate) != 0) {
+                continue;
+            }
+            keys[kept] = keys[i];
+            counts[kept] = (int) Math.min((long) counts[i] * sampleRate, Integer.MAX_VALUE);
+            kept++;
+        }
+        for (int i = kept; i < size; i++) {
+            keys[i] = null;
+        }
+        size = kept;
+    }
+
+    String getAppName() {
+        return appName;
+    }
+
+    String keyAt(int i) {
+        return keys[i];
+    }
+
+    int countAt(int i) {
+        return counts[i];
+    }
+
+    int size() {
+        return size;
+    }
+}
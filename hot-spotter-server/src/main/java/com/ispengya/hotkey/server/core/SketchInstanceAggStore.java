@@ -0,0 +1,215 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * SketchInstanceAggStore 以固定内存估算单个应用的滑动窗口计数。
+ *
+ * <p>每个窗口槽维护一个 depth × width 的 Count-Min Sketch，同时维护所有在窗口内的槽
+ * 相加得到的窗口 Sketch；时间前进时把滑出窗口的槽从窗口 Sketch 中减掉并清零，
+ * 因此单个 key 的窗口估算只需读取 depth 个计数器。候选热 key 由容量为 topK 的
+ * {@link SpaceSavingTopK} 维护，只有集合中的 key 会返回统计，计数取两者中较小的上界。</p>
+ *
+ * <p>误差界（N 为窗口内访问总量）：
+ * <ul>
+ *     <li>Count-Min：估算值不低于真实值，且以至少 1 - e^(-depth) 的概率高估不超过 e·N / width；</li>
+ *     <li>Space-Saving：高估不超过 N / topK，真实计数超过 N / topK 的 key 一定会被跟踪。</li>
+ * </ul>
+ * 成功次数与耗时不单独记录，按窗口内整个应用的成功率与平均耗时折算。</p>
+ *
+ * <p>内存约为 (windowSlotCount + 1) × depth × width × 8 字节，外加 topK 个候选条目，
+ * 与 key 基数无关。不按 key ID 保存状态，也不持有字典 ID。只由所属分片的消费线程读写，
+ * {@link #totalCount(long)} 可由其他线程调用。</p>
+ *
+ * @author ispengya
+ */
+public final class SketchInstanceAggStore implements InstanceAggStore {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final long windowSizeMillis;
+    private final int windowSlotCount;
+    private final int depth;
+    private final int width;
+    private final int mask;
+
+    /**
+     * 各槽的 Sketch，按 {@code 行 * width + 列} 展开。
+     */
+    private final long[][] slotCounters;
+
+    /**
+     * 窗口内所有槽之和。
+     */
+    private final long[] windowCounters;
+
+    private final WindowSlot[] slots;
+    private final long[] slotSuccessCounts;
+    private final long[] slotRtMillis;
+    private final SpaceSavingTopK topK;
+
+    private long windowTotalCount;
+    private long windowSuccessCount;
+    private long windowRtMillis;
+
+    /**
+     * 当前已经滚动到的时间槽序号。
+     */
+    private long headWindow = Long.MIN_VALUE;
+
+    /**
+     * 构造 Sketch 聚合存储。
+     *
+     * @param windowSizeMillis 单个窗口槽时间跨度
+     * @param windowSlotCount  窗口槽数量
+     * @param width            每行计数器数量，向上取整到 2 的幂
+     * @param depth            哈希行数
+     * @param topK             候选热 key 数量上限
+     */
+    public SketchInstanceAggStore(long windowSizeMillis,
+                                  int windowSlotCount,
+                                  int width,
+                                  int depth,
+                                  int topK) {
+        this.windowSizeMillis = windowSizeMillis;
+        this.windowSlotCount = Math.max(1, windowSlotCount);
+        this.depth = Math.max(1, depth);
+        int w = 1;
+        while (w < width && w < (1 << 24)) {
+            w <<= 1;
+        }
+        this.width = w;
+        this.mask = w - 1;
+        this.slotCounters = new long[this.windowSlotCount][this.depth * w];
+        this.windowCounters = new long[this.depth * w];
+        this.slots = new WindowSlot[this.windowSlotCount];
+        for (int i = 0; i < this.windowSlotCount; i++) {
+            slots[i] = new WindowSlot();
+        }
+        this.slotSuccessCounts = new long[this.windowSlotCount];
+        this.slotRtMillis = new long[this.windowSlotCount];
+        this.topK = new SpaceSavingTopK(topK);
+    }
+
+    @Override
+    public void add(int keyId, String key, long count, long successCount, long rtMillis, long nowMillis) {
+        if (key == null) {
+            return;
+        }
+        roll(windowIndexOf(nowMillis));
+        int slot = indexOf(headWindow);
+        long[] counters = slotCounters[slot];
+        long h1 = mix(key.hashCode());
+        long h2 = mix(h1 ^ SEED);
+        for (int r = 0; r < depth; r++) {
+            int cell = r * width + (int) ((h1 + r * h2) & mask);
+            counters[cell] += count;
+            windowCounters[cell] += count;
+        }
+        slots[slot].add(count);
+        slotSuccessCounts[slot] += successCount;
+        slotRtMillis[slot] += rtMillis;
+        windowTotalCount += count;
+        windowSuccessCount += successCount;
+        windowRtMillis += rtMillis;
+        topK.offer(key, count);
+    }
+
+    @Override
+    public AggregatedKeyStat snapshotForKey(int keyId, String key, long nowMillis) {
+        if (key == null) {
+            return null;
+        }
+        roll(windowIndexOf(nowMillis));
+        long tracked = topK.count(key);
+        if (tracked <= 0L) {
+            return null;
+        }
+        long estimate = Math.min(tracked, estimate(key));
+        if (estimate <= 0L || windowTotalCount <= 0L) {
+            return null;
+        }
+        double ratio = (double) estimate / (double) windowTotalCount;
+        long success = Math.min(estimate, Math.round(windowSuccessCount * ratio));
+        return new AggregatedKeyStat(
+                key,
+                estimate,
+                success,
+                estimate - success,
+                Math.round(windowRtMillis * ratio)
+        );
+    }
+
+    @Override
+    public long totalCount(long nowMillis) {
+        return WindowSlot.sumWindow(slots, windowIndexOf(nowMillis));
+    }
+
+    private long estimate(String key) {
+        long h1 = mix(key.hashCode());
+        long h2 = mix(h1 ^ SEED);
+        long min = Long.MAX_VALUE;
+        for (int r = 0; r < depth; r++) {
+            long v = windowCounters[r * width + (int) ((h1 + r * h2) & mask)];
+            if (v < min) {
+                min = v;
+            }
+        }
+        return min;
+    }
+
+    private void roll(long windowIndex) {
+        if (headWindow == Long.MIN_VALUE) {
+            headWindow = windowIndex;
+            slots[indexOf(windowIndex)].reset(windowIndex);
+            return;
+        }
+        // 时间回拨时继续写入当前槽
+        if (windowIndex <= headWindow) {
+            return;
+        }
+        long steps = Math.min(windowIndex - headWindow, (long) windowSlotCount);
+        for (long w = windowIndex - steps + 1; w <= windowIndex; w++) {
+            expireSlot(indexOf(w));
+        }
+        headWindow = windowIndex;
+        slots[indexOf(windowIndex)].reset(windowIndex);
+        // 窗口滑动后用新的窗口估算值刷新候选集合，过期的 key 随之移除
+        topK.refresh(this::estimate);
+    }
+
+    private void expireSlot(int slot) {
+        long[] counters = slotCounters[slot];
+        for (int i = 0; i < counters.length; i++) {
+            long v = counters[i];
+            if (v != 0L) {
+                windowCounters[i] -= v;
+                counters[i] = 0L;
+            }
+        }
+        windowTotalCount -= slots[slot].getTotalCount();
+        windowSuccessCount -= slotSuccessCounts[slot];
+        windowRtMillis -= slotRtMillis[slot];
+        slotSuccessCounts[slot] = 0L;
+        slotRtMillis[slot] = 0L;
+        slots[slot].reset(WindowSlot.UNUSED);
+    }
+
+    private int indexOf(long windowIndex) {
+        return (int) Math.floorMod(windowIndex, (long) windowSlotCount);
+    }
+
+    private long windowIndexOf(long timestampMillis) {
+        if (windowSizeMillis <= 0L) {
+            return timestampMillis;
+        }
+        return timestampMillis / windowSizeMillis;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,19 +1,25 @@
 package com.ispengya.hotkey.server.core;
 
-import com.ispengya.hotkey.server.model.AccessReport;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import java.util.Iterator;
 
 /**
- * SlidingWindowInstanceAggStore 按实例维度管理单个 key 的滑动时间窗口统计。
+ * SlidingWindowInstanceAggStore 按实例维度管理单个 key 的滑动时间窗口统计，
+ * 对应 {@link AggregationMode#EXACT} 精确计数模式。
+ *
+ * <p>内部将时间划分为固定长度的 {@link WindowSlot} 环，按 {@code (时间戳 / 槽跨度) % 槽数量}
+ * 直接定位当前槽，时间前进时按代次原地重置，不做扫描也不分配新槽；
+ * 每个 key 各自维护一个 {@link KeyWindow}，以环形数组记录各槽计数并同步维护窗口累计值。
+ * 新上报的数据写入当前时间对应的槽中，获取某个 key 的快照时直接读取其累计值，
+ * 无需遍历或合并所有槽。key 窗口以 {@link KeyDictionary} 分配的 int ID 为键。</p>
  *
- * <p>内部将时间划分为多个 {@link WindowSlot}，新上报的数据写入当前时间对应的槽中；
- * 获取快照时，合并当前滑动窗口覆盖范围内所有槽的数据，得到该实例在最近一段时间内
- * 的访问聚合统计。</p>
+ * <p>每个存储实例只属于一个 {@link AccessReportPipeline} 分片，由该分片唯一的消费线程
+ * 读写，因此内部结构均不加锁；槽的代次与计数通过 volatile 发布，其他线程可以安全读取
+ * {@link #totalCount(long)}。</p>
  */
-public final class SlidingWindowInstanceAggStore {
+public final class SlidingWindowInstanceAggStore implements InstanceAggStore {
 
     /**
      * 单个窗口槽的时间跨度（毫秒）。
@@ -26,137 +32,131 @@ public final class SlidingWindowInstanceAggStore {
     private final int windowSlotCount;
 
     /**
-     * 槽列表。
+     * 固定长度的槽环，第 {@code w} 个时间槽落在 {@code w % windowSlotCount} 位置。
+     */
+    private final WindowSlot[] slots;
+
+    /**
+     * 每个 key 的环形窗口计数，以 key ID 为键。
+     */
+    private final IntObjectMap<KeyWindow> keyWindows = new IntObjectHashMap<>();
+
+    /**
+     * 所属分片内该应用的 key 字典，窗口存在期间持有对应 ID。
      */
-    private final List<WindowSlot> slots;
+    private final KeyDictionary dictionary;
 
     /**
      * 构造滑动窗口聚合存储。
      *
      * @param windowSizeMillis 单个窗口槽时间跨度
      * @param windowSlotCount  窗口槽数量
-     * @param slots            预初始化的窗口槽列表
+     * @param dictionary       所属分片内该应用的 key 字典
      */
     public SlidingWindowInstanceAggStore(long windowSizeMillis,
                                          int windowSlotCount,
-                                         List<WindowSlot> slots) {
+                                         KeyDictionary dictionary) {
         this.windowSizeMillis = windowSizeMillis;
-        this.windowSlotCount = windowSlotCount;
-        this.slots = slots;
+        this.dictionary = dictionary;
+        this.windowSlotCount = Math.max(1, windowSlotCount);
+        this.slots = new WindowSlot[this.windowSlotCount];
+        for (int i = 0; i < this.windowSlotCount; i++) {
+            slots[i] = new WindowSlot();
+        }
     }
 
     /**
-     * 将一条访问上报记录写入当前时间对应的窗口槽。
+     * 将已合并的访问计数写入指定时间对应的窗口槽。
      *
-     * @param report 访问上报对象
+     * @param keyId        key ID
+     * @param key          业务 key
+     * @param count        访问次数
+     * @param successCount 成功次数
+     * @param rtMillis     累计耗时
+     * @param nowMillis    写入时间
      */
-    public void addReport(AccessReport report) {
-        if (report == null || report.getKey() == null) {
-            return;
-        }
-        String key = report.getKey();
-        long now = System.currentTimeMillis();
-        WindowSlot slot = resolveSlot(now);
-        Map<String, AggregatedKeyStat> stats = slot.getStats();
-        synchronized (stats) {
-            AggregatedKeyStat stat = stats.get(key);
-            if (stat == null) {
-                stat = new AggregatedKeyStat(
-                        key,
-                        0L,
-                        0L,
-                        0L,
-                        0L
-                );
-            }
-            long totalCount = stat.getTotalCount() + report.getCount();
-            long successCount = stat.getSuccessCount() + (report.isSuccess() ? report.getCount() : 0L);
-            long failCount = stat.getFailCount() + (report.isSuccess() ? 0L : report.getCount());
-            long totalRtMillis = stat.getTotalRtMillis() + report.getRtMillis();
-            AggregatedKeyStat newStat = new AggregatedKeyStat(
-                    key,
-                    totalCount,
-                    successCount,
-                    failCount,
-                    totalRtMillis
-            );
-            stats.put(key, newStat);
+    @Override
+    public void add(int keyId, String key, long count, long successCount, long rtMillis, long nowMillis) {
+        long windowIndex = windowIndexOf(nowMillis);
+        resolveSlot(windowIndex).add(count);
+        KeyWindow window = keyWindows.get(keyId);
+        if (window == null) {
+            window = new KeyWindow(windowSlotCount);
+            keyWindows.put(keyId, window);
+            dictionary.retain(keyId);
         }
+        window.add(windowIndex, count, successCount, rtMillis);
     }
 
-    public AggregatedKeyStat snapshotForKey(String key) {
-        if (key == null) {
+    /**
+     * 获取单个 key 截至指定时间的滑动窗口聚合统计。
+     *
+     * <p>直接读取该 key 维护的窗口累计值，成本与窗口槽数量和 key 数量无关。</p>
+     *
+     * @param keyId     key ID
+     * @param key       业务 key
+     * @param nowMillis 当前时间
+     * @return 聚合统计，窗口内没有访问时返回 null
+     */
+    @Override
+    public AggregatedKeyStat snapshotForKey(int keyId, String key, long nowMillis) {
+        KeyWindow window = keyWindows.get(keyId);
+        if (window == null) {
             return null;
         }
-        Map<String, AggregatedKeyStat> merged = new HashMap<>();
-        // 对当前时间对齐到窗口起点，例如 10:00:01.234 对齐为 10:00:01.000
-        long nowMillis = System.currentTimeMillis();
-        long currentWindowStart = alignToWindow(nowMillis);
-        // 整个滑动窗口覆盖的最早时间起点
-        long minWindowStart = currentWindowStart - (windowSlotCount - 1L) * windowSizeMillis;
-        for (WindowSlot slot : slots) {
-            long slotStart = slot.getWindowStartMillis();
-            // 只统计当前滑动窗口范围内的槽，超出范围的视为过期数据
-            if (slotStart < minWindowStart || slotStart > currentWindowStart) {
-                continue;
-            }
-            // 对槽内容进行快照，避免在合并过程中被并发修改
-            Map<String, AggregatedKeyStat> slotStats;
-            synchronized (slot.getStats()) {
-                slotStats = new HashMap<>(slot.getStats());
-            }
+        return window.snapshot(key, windowIndexOf(nowMillis));
+    }
+
+    /**
+     * 获取截至指定时间整个应用在滑动窗口内的访问总量。
+     *
+     * <p>只累加代次仍在窗口内的槽，尚未被重置的过期槽自动忽略；可由其他线程调用。</p>
+     *
+     * @param nowMillis 当前时间
+     * @return 窗口内访问总量
+     */
+    @Override
+    public long totalCount(long nowMillis) {
+        return WindowSlot.sumWindow(slots, windowIndexOf(nowMillis));
+    }
 
-            for (AggregatedKeyStat stat : slotStats.values()) {
-                AggregatedKeyStat existing = merged.get(stat.getKey());
-                if (existing == null) {
-                    merged.put(stat.getKey(), stat);
-                } else {
-                    AggregatedKeyStat mergedStat = new AggregatedKeyStat(
-                            stat.getKey(),
-                            existing.getTotalCount() + stat.getTotalCount(),
-                            existing.getSuccessCount() + stat.getSuccessCount(),
-                            existing.getFailCount() + stat.getFailCount(),
-                            existing.getTotalRtMillis() + stat.getTotalRtMillis()
-                    );
-                    merged.put(stat.getKey(), mergedStat);
-                }
+    /**
+     * 清理整个窗口内都没有访问的 key 并释放其 ID，避免长尾 key 无限占用内存。
+     *
+     * @param windowIndex 当前时间槽序号
+     */
+    private void evictIdleKeys(long windowIndex) {
+        Iterator<IntObjectMap.PrimitiveEntry<KeyWindow>> it = keyWindows.entries().iterator();
+        while (it.hasNext()) {
+            IntObjectMap.PrimitiveEntry<KeyWindow> entry = it.next();
+            if (entry.value().isIdle(windowIndex)) {
+                int keyId = entry.key();
+                it.remove();
+                dictionary.release(keyId);
             }
         }
-        return merged.get(key);
     }
 
-    private WindowSlot resolveSlot(long nowMillis) {
-        // 将时间戳对齐到窗口起点，用于确定所属的时间槽
-        long windowStart = alignToWindow(nowMillis);
-        // 记录当前最老槽的起始时间及其索引，用于需要复用槽时选择被覆盖的目标
-        long oldestStart = Long.MAX_VALUE;
-        int oldestIndex = -1;
-        for (int i = 0; i < windowSlotCount; i++) {
-            WindowSlot slot = slots.get(i);
-            long slotStart = slot.getWindowStartMillis();
-            // 如果找到了与当前时间对应的槽，直接复用
-            if (slotStart == windowStart) {
-                return slot;
-            }
-            // 记录起始时间最早的槽，用于后续滑动窗口覆盖
-            if (slotStart < oldestStart) {
-                oldestStart = slotStart;
-                oldestIndex = i;
-            }
+    /**
+     * 定位时间槽序号对应的槽，O(1) 且不分配对象。
+     *
+     * <p>环位置上的槽仍是旧代次时原地重置为新代次；时间回拨到旧代次时继续写入
+     * 该位置当前的槽，与 {@link KeyWindow} 的处理保持一致。</p>
+     */
+    private WindowSlot resolveSlot(long windowIndex) {
+        WindowSlot slot = slots[(int) Math.floorMod(windowIndex, (long) windowSlotCount)];
+        if (slot.getGeneration() < windowIndex) {
+            slot.reset(windowIndex);
+            // 每滚动一个槽顺带清理一次空闲 key，成本按槽跨度均摊
+            evictIdleKeys(windowIndex);
         }
-        // 如果没有找到匹配的槽，则复用最老的那个槽，将其重置为当前窗口
-        int index = oldestIndex >= 0 ? oldestIndex : 0;
-        WindowSlot newSlot = new WindowSlot(windowStart, new ConcurrentHashMap<>());
-        slots.set(index, newSlot);
-        return newSlot;
+        return slot;
     }
 
-    private long alignToWindow(long timestampMillis) {
-        // 容错处理：窗口大小非法时直接返回原始时间戳
+    private long windowIndexOf(long timestampMillis) {
         if (windowSizeMillis <= 0L) {
             return timestampMillis;
         }
-        // 将时间戳向下取整到窗口边界，例如 1234ms 对齐到 1000ms
-        return timestampMillis - (timestampMillis % windowSizeMillis);
+        return timestampMillis / windowSizeMillis;
     }
 }
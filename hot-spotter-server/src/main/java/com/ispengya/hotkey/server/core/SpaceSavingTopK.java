@@ -0,0 +1,147 @@
+package com.ispengya.hotkey.server.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * SpaceSavingTopK 以 Space-Saving 算法维护有界数量的候选热 key。
+ *
+ * <p>最多跟踪 capacity 个 key，按计数组成最小堆。新 key 到达且已满时替换计数最小的条目，
+ * 新条目的计数继承被替换者的计数。设流总量为 N，则：
+ * <ul>
+ *     <li>任一 key 的计数最多高估 N / capacity；</li>
+ *     <li>真实计数超过 N / capacity 的 key 一定在集合中。</li>
+ * </ul>
+ * 满载后替换时复用条目对象，不再分配内存。</p>
+ *
+ * <p>非线程安全，只由所属分片的消费线程访问。</p>
+ *
+ * @author ispengya
+ */
+final class SpaceSavingTopK {
+
+    private final int capacity;
+    private final Entry[] heap;
+    private final Map<String, Entry> index;
+    private int size;
+
+    SpaceSavingTopK(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.heap = new Entry[this.capacity];
+        this.index = new HashMap<>(this.capacity * 2);
+    }
+
+    /**
+     * 为 key 累加计数，必要时替换当前计数最小的条目。
+     */
+    void offer(String key, long count) {
+        Entry entry = index.get(key);
+        if (entry != null) {
+            entry.count += count;
+            siftDown(entry.position);
+            return;
+        }
+        if (size < capacity) {
+            entry = new Entry();
+            entry.key = key;
+            entry.count = count;
+            entry.position = size;
+            heap[size++] = entry;
+            index.put(key, entry);
+            siftUp(entry.position);
+            return;
+        }
+        Entry min = heap[0];
+        index.remove(min.key);
+        min.key = key;
+        min.count += count;
+        index.put(key, min);
+        siftDown(0);
+    }
+
+    /**
+     * 获取 key 的计数上界，不在集合中时返回 -1。
+     */
+    long count(String key) {
+        Entry entry = index.get(key);
+        return entry == null ? -1L : entry.count;
+    }
+
+    /**
+     * 用外部的窗口估算值刷新所有条目的计数，估算值为 0 的条目被移除。
+     *
+     * <p>窗口滑动后调用，使集合中的计数随窗口过期而回落。</p>
+     *
+     * @param estimator 计数估算函数
+     */
+    void refresh(ToLongFunction<String> estimator) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Entry entry = heap[i];
+            long estimate = Math.min(entry.count, estimator.applyAsLong(entry.key));
+            if (estimate <= 0L) {
+                index.remove(entry.key);
+                continue;
+            }
+            entry.count = estimate;
+            entry.position = kept;
+            heap[kept++] = entry;
+        }
+        for (int i = kept; i < size; i++) {
+            heap[i] = null;
+        }
+        size = kept;
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void siftUp(int i) {
+        Entry entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Entry p = heap[parent];
+            if (p.count <= entry.count) {
+                break;
+            }
+            place(p, i);
+            i = parent;
+        }
+        place(entry, i);
+    }
+
+    private void siftDown(int i) {
+        Entry entry = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < size && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            if (entry.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(entry, i);
+    }
+
+    private void place(Entry entry, int i) {
+        heap[i] = entry;
+        entry.position = i;
+    }
+
+    private static final class Entry {
+
+        private String key;
+        private long count;
+        private int position;
+    }
+}
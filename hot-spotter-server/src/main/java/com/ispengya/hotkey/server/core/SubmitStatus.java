@@ -0,0 +1,34 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * SubmitStatus 表示一次上报提交到 {@link AccessReportPipeline} 的结果。
+ *
+ * @author ispengya
+ */
+public enum SubmitStatus {
+
+    /**
+     * 正常入队。
+     */
+    ACCEPTED,
+
+    /**
+     * 过载采样后被保留，计数已按采样倍数放大。
+     */
+    SAMPLED,
+
+    /**
+     * 过载采样时被舍弃。
+     */
+    SHED,
+
+    /**
+     * 挤掉了队列中最旧的一条上报后入队。
+     */
+    EVICTED_OLDEST,
+
+    /**
+     * 队列已满，本条上报被丢弃。
+     */
+    DROPPED
+}
@@ -0,0 +1,60 @@
+package com.ispengya.hotkey.server.core;
+
+/**
+ * TrafficShareAlgorithm 按 key 占应用总流量的比例判定热 Key。
+ *
+ * <p>窗口内访问次数不低于 minCountThreshold，且占该应用窗口内总访问量的百分比不低于
+ * sharePercent 即为热 key，已是热 key 时按 exitSharePercent 判定。阈值随应用流量自动伸缩，适合流量差异很大的多个应用共用一套配置。
+ * 应用总量跨分片汇总，同一批次内每个应用只汇总一次。</p>
+ *
+ * @author ispengya
+ */
+public final class TrafficShareAlgorithm implements HotKeyComputeAlgorithm {
+
+    public static final String NAME = "share";
+
+    private final long minCountThreshold;
+    private final double sharePercent;
+    private final double exitSharePercent;
+
+    /**
+     * 构造流量占比策略，进入与退出阈值相同。
+     *
+     * @param minCountThreshold 访问次数下限
+     * @param sharePercent      占应用总流量的百分比阈值
+     */
+    public TrafficShareAlgorithm(long minCountThreshold, double sharePercent) {
+        this(minCountThreshold, sharePercent, sharePercent);
+    }
+
+    /**
+     * 构造流量占比策略。
+     *
+     * @param minCountThreshold 访问次数下限
+     * @param sharePercent      进入热 key 的百分比阈值
+     * @param exitSharePercent  保持热 key 的百分比阈值，不高于进入阈值
+     */
+    public TrafficShareAlgorithm(long minCountThreshold, double sharePercent, double exitSharePercent) {
+        this.minCountThreshold = minCountThreshold;
+        this.sharePercent = sharePercent;
+        this.exitSharePercent = Math.min(exitSharePercent, sharePercent);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isHot(AggregatedKeyStat stat, HotKeyContext context) {
+        if (stat == null || stat.getTotalCount() < minCountThreshold) {
+            return false;
+        }
+        long appTotal = context.getAppTotalCount();
+        if (appTotal <= 0L) {
+            return false;
+        }
+        double threshold = context.isCurrentlyHot() ? exitSharePercent : sharePercent;
+        return stat.getTotalCount() * 100.0d >= threshold * appTotal;
+    }
+}
@@ -1,43 +1,77 @@
 package com.ispengya.hotkey.server.core;
 
-import java.util.Map;
-
 /**
- * WindowSlot 表示滑动窗口中的一个时间槽。
+ * WindowSlot 表示滑动窗口环中的一个时间槽。
+ *
+ * <p>槽在存储创建时一次性分配，之后按代次（时间槽序号 {@code 时间戳 / 槽跨度}）原地复用：
+ * 时间前进到落在同一环位置的新代次时，只重置代次与计数，不再创建新对象。
+ * 各 key 的计数由 {@link KeyWindow} 自行维护，槽本身只记录当前代次和该时间段内
+ * 整个应用的访问总量。</p>
  *
- * <p>每个槽对应一个时间段（如 1 秒），存储该时间段内的 key 访问统计。</p>
+ * <p>槽只由所属分片的消费线程写入；代次与计数声明为 volatile，其他线程读取时可以
+ * 看到完整的重置结果。</p>
  *
  * @author ispengya
  */
 public final class WindowSlot {
 
     /**
-     * 窗口槽的开始时间戳（毫秒）。
+     * 尚未使用过的槽的代次。
      */
-    private final long windowStartMillis;
+    static final long UNUSED = Long.MIN_VALUE;
 
     /**
-     * 该槽内的统计数据：key -> AggregatedKeyStat。
+     * 当前代次，即该槽对应的时间槽序号。
      */
-    private final Map<String, AggregatedKeyStat> stats;
+    private volatile long generation = UNUSED;
+
+    /**
+     * 该时间段内应用的访问总量。
+     */
+    private volatile long totalCount;
+
+    /**
+     * 将槽重置为新的代次，计数清零。
+     *
+     * <p>先清零计数再发布代次，读取方看到新代次时计数一定已经清零。</p>
+     *
+     * @param newGeneration 新代次
+     */
+    void reset(long newGeneration) {
+        totalCount = 0L;
+        generation = newGeneration;
+    }
+
+    void add(long count) {
+        // 单写线程，volatile 写保证对读取方可见
+        totalCount = totalCount + count;
+    }
 
     /**
-     * 构造窗口槽。
+     * 累加代次仍在窗口内的槽的访问总量，尚未被重置的过期槽自动忽略。
      *
-     * @param windowStartMillis 槽开始时间
-     * @param stats             统计数据 Map
+     * @param slots       槽环
+     * @param windowIndex 当前时间槽序号
+     * @return 窗口内访问总量
      */
-    public WindowSlot(long windowStartMillis,
-                      Map<String, AggregatedKeyStat> stats) {
-        this.windowStartMillis = windowStartMillis;
-        this.stats = stats;
+    static long sumWindow(WindowSlot[] slots, long windowIndex) {
+        long total = 0L;
+        for (WindowSlot slot : slots) {
+            long generation = slot.getGeneration();
+            if (generation != UNUSED
+                    && generation <= windowIndex
+                    && windowIndex - generation < slots.length) {
+                total += slot.getTotalCount();
+            }
+        }
+        return total;
     }
 
-    public long getWindowStartMillis() {
-        return windowStartMillis;
+    public long getGeneration() {
+        return generation;
     }
 
-    public Map<String, AggregatedKeyStat> getStats() {
-        return stats;
+    public long getTotalCount() {
+        return totalCount;
     }
 }
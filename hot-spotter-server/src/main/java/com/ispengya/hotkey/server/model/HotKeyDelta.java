@@ -0,0 +1,58 @@
+package com.ispengya.hotkey.server.model;
+
+import com.ispengya.hotkey.server.core.AppHotKeyState;
+
+import java.util.Set;
+
+/**
+ * HotKeyDelta 表示某应用热 Key 集合在两个版本之间的净变化。
+ *
+ * <p>由 {@link AppHotKeyState#changesSince(long)} 根据变更日志生成，
+ * 将 fromVersion 时的集合加上 added、去掉 removed 即得到 toVersion 时的集合。</p>
+ *
+ * @author ispengya
+ */
+public final class HotKeyDelta {
+
+    private final String appName;
+    private final long fromVersion;
+    private final long toVersion;
+    private final Set<String> added;
+    private final Set<String> removed;
+
+    public HotKeyDelta(String appName,
+                       long fromVersion,
+                       long toVersion,
+                       Set<String> added,
+                       Set<String> removed) {
+        this.appName = appName;
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    public Set<String> getAdded() {
+        return added;
+    }
+
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+}
@@ -7,7 +7,7 @@ import java.util.Set;
 /**
  * HotKeyResult 封装了 Server 端计算得出的某实例热 Key 结果。
  *
- * <p>该对象存储在 {@link HotKeyResultStore} 中，
+ * <p>该对象是 {@link HotKeyResultStore} 中某个应用热 Key 状态的只读快照，
  * 供 CLI 查询时使用。</p>
  *
  * @author ispengya
@@ -18,7 +18,7 @@ public final class HotKeyResult {
 
     /**
      * 结果版本号。
-     * 每次计算生成新结果时，版本号应递增（通常使用时间戳）。
+     * 以应用状态创建时的毫秒时间戳为起点，热 Key 集合每次发生变化加一。
      */
     private final long version;
 
@@ -65,16 +65,4 @@ public final class HotKeyResult {
     public Set<String> getHotKeys() {
         return hotKeys;
     }
-
-    /**
-     * 基于当前时间构建一个新的 HotKeyResult。
-     *
-     * @param hotKeys    热 Key 集合
-     * @return 新的 HotKeyResult 对象
-     */
-    public static HotKeyResult from(String appName, Set<String> hotKeys) {
-        long now = System.currentTimeMillis();
-        long version = now;
-        return new HotKeyResult(appName, version, now, hotKeys);
-    }
 }
@@ -4,8 +4,10 @@ import com.ispengya.hotkey.remoting.message.HotKeyQueryRequest;
 import com.ispengya.hotkey.remoting.message.HotKeyViewMessage;
 import com.ispengya.hotkey.remoting.protocol.Command;
 import com.ispengya.hotkey.remoting.protocol.CommandType;
-import com.ispengya.hotkey.remoting.protocol.Serializer;
+import com.ispengya.hotkey.remoting.protocol.NegotiatingSerializer;
+import com.ispengya.hotkey.server.core.AppHotKeyState;
 import com.ispengya.hotkey.server.core.HotKeyResultStore;
+import com.ispengya.hotkey.server.model.HotKeyDelta;
 import com.ispengya.hotkey.server.model.HotKeyResult;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
@@ -18,7 +20,8 @@ import java.util.Map;
  * HotKeyQueryHandler 处理热 Key 查询请求。
  *
  * <p>对应命令类型：{@link CommandType#HOT_KEY_QUERY}。
- * 根据实例 ID 和版本号返回最新的热 Key 视图。</p>
+ * 根据客户端携带的各应用版本号，只返回该版本之后新增和删除的 key；
+ * 客户端版本已超出变更日志保留范围，或增量不比全集小时，返回完整快照。</p>
  *
  * @author ispengya
  */
@@ -27,7 +30,7 @@ public final class HotKeyQueryHandler implements RequestHandler {
     private static final Logger log = LoggerFactory.getLogger(HotKeyQueryHandler.class);
 
     private final HotKeyResultStore resultStore;
-    private final Serializer serializer;
+    private final NegotiatingSerializer serializer;
     private final boolean debugEnabled;
 
     /**
@@ -37,7 +40,7 @@ public final class HotKeyQueryHandler implements RequestHandler {
      * @param serializer  序列化器
      */
     public HotKeyQueryHandler(HotKeyResultStore resultStore,
-                              Serializer serializer,
+                              NegotiatingSerializer serializer,
                               boolean debugEnabled) {
         this.resultStore = resultStore;
         this.serializer = serializer;
@@ -47,7 +50,7 @@ public final class HotKeyQueryHandler implements RequestHandler {
     @Override
     public void handle(ChannelHandlerContext ctx, Command command) {
         try {
-            HotKeyQueryRequest request = serializer.deserialize(command.getPayload(), HotKeyQueryRequest.class);
+            HotKeyQueryRequest request = command.decodePayload(serializer, HotKeyQueryRequest.class);
             if (request == null) {
                 return;
             }
@@ -56,8 +59,8 @@ public final class HotKeyQueryHandler implements RequestHandler {
 
             HotKeyViewMessage responseMsg;
             Map<String, HotKeyViewMessage.ViewEntry> views = new HashMap<>();
-            for (HotKeyResult result : resultStore.listAll()) {
-                String owner = result.getAppName();
+            for (AppHotKeyState state : resultStore.listStates()) {
+                String owner = state.getAppName();
                 long clientVersion = 0L;
                 if (lastVersions != null) {
                     Long v = lastVersions.get(owner);
@@ -65,15 +68,10 @@ public final class HotKeyQueryHandler implements RequestHandler {
                         clientVersion = v;
                     }
                 }
-                if (result.getVersion() <= clientVersion) {
+                if (state.getVersion() == clientVersion) {
                     continue;
                 }
-
-                HotKeyViewMessage.ViewEntry entry = new HotKeyViewMessage.ViewEntry(
-                        result.getVersion(),
-                        result.getHotKeys()
-                );
-                views.put(owner, entry);
+                views.put(owner, buildEntry(state, clientVersion));
             }
             responseMsg = new HotKeyViewMessage();
             responseMsg.setViews(views);
@@ -85,7 +83,8 @@ public final class HotKeyQueryHandler implements RequestHandler {
                         requestSize, responseSize);
             }
 
-            byte[] payload = serializer.serialize(responseMsg);
+            // 按客户端声明的格式应答，未声明时使用服务端默认格式
+            byte[] payload = serializer.forName(request.getSerializer()).serialize(responseMsg);
             Command response = new Command(CommandType.HOT_KEY_QUERY, command.getRequestId(), payload);
             ctx.writeAndFlush(response);
 
@@ -93,4 +92,21 @@ public final class HotKeyQueryHandler implements RequestHandler {
             log.error("Failed to handle hot key query", e);
         }
     }
+
+    private static HotKeyViewMessage.ViewEntry buildEntry(AppHotKeyState state, long clientVersion) {
+        HotKeyDelta delta = state.changesSince(clientVersion);
+        if (delta != null) {
+            int changes = delta.getAdded().size() + delta.getRemoved().size();
+            if (changes < state.size()) {
+                return new HotKeyViewMessage.ViewEntry(
+                        delta.getFromVersion(),
+                        delta.getToVersion(),
+                        delta.getAdded(),
+                        delta.getRemoved()
+                );
+            }
+        }
+        HotKeyResult result = state.snapshot();
+        return new HotKeyViewMessage.ViewEntry(result.getVersion(), result.getHotKeys());
+    }
 }
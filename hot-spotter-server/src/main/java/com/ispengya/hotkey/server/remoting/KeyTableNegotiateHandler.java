@@ -0,0 +1,52 @@
+package com.ispengya.hotkey.server.remoting;
+
+import com.ispengya.hotkey.remoting.protocol.Command;
+import com.ispengya.hotkey.remoting.protocol.CommandType;
+import com.ispengya.hotkey.remoting.protocol.ServerKeyTable;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * KeyTableNegotiateHandler 处理连接级 key 字符串表的协商。
+ *
+ * <p>对应命令类型：{@link CommandType#KEY_TABLE_NEGOTIATE}。负载为客户端请求的容量（4 字节），
+ * 服务端接受的容量取请求值与 maxEntries 中的较小者，大于 0 时为连接绑定 {@link ServerKeyTable}，
+ * 并以同一请求 ID 回复接受的容量；回复 0 表示不启用，客户端继续发送普通上报。</p>
+ */
+public final class KeyTableNegotiateHandler implements RequestHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyTableNegotiateHandler.class);
+
+    private final int maxEntries;
+    private final boolean debugEnabled;
+
+    public KeyTableNegotiateHandler(int maxEntries, boolean debugEnabled) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.debugEnabled = debugEnabled;
+    }
+
+    @Override
+    public void handle(ChannelHandlerContext ctx, Command command) {
+        int requested = 0;
+        ByteBuf buf = command.getPayloadBuffer();
+        if (buf != null && buf.readableBytes() >= 4) {
+            requested = buf.getInt(buf.readerIndex());
+        } else if (buf == null && command.getPayloadLength() >= 4) {
+            requested = Unpooled.wrappedBuffer(command.getPayload()).getInt(0);
+        }
+        int accepted = Math.max(0, Math.min(requested, maxEntries));
+        if (accepted > 0) {
+            ServerKeyTable.bind(ctx.channel(), new ServerKeyTable(accepted));
+        }
+        byte[] payload = new byte[4];
+        Unpooled.wrappedBuffer(payload).setInt(0, accepted);
+        ctx.writeAndFlush(new Command(CommandType.KEY_TABLE_NEGOTIATE, command.getRequestId(), payload));
+        if (debugEnabled && log.isDebugEnabled()) {
+            log.debug("Key table negotiated. remote={}, requested={}, accepted={}",
+                    ctx.channel().remoteAddress(), requested, accepted);
+        }
+    }
+}
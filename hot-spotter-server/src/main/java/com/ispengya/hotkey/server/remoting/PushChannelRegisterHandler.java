@@ -3,7 +3,7 @@ package com.ispengya.hotkey.server.remoting;
 import com.ispengya.hotkey.remoting.message.PushChannelRegisterMessage;
 import com.ispengya.hotkey.remoting.protocol.Command;
 import com.ispengya.hotkey.remoting.protocol.CommandType;
-import com.ispengya.hotkey.remoting.protocol.Serializer;
+import com.ispengya.hotkey.remoting.protocol.NegotiatingSerializer;
 import com.ispengya.hotkey.remoting.server.ServerChannelManager;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
@@ -14,10 +14,10 @@ public final class PushChannelRegisterHandler implements RequestHandler {
     private static final Logger log = LoggerFactory.getLogger(PushChannelRegisterHandler.class);
 
     private final ServerChannelManager channelManager;
-    private final Serializer serializer;
+    private final NegotiatingSerializer serializer;
 
     public PushChannelRegisterHandler(ServerChannelManager channelManager,
-                                      Serializer serializer) {
+                                      NegotiatingSerializer serializer) {
         this.channelManager = channelManager;
         this.serializer = serializer;
     }
@@ -25,16 +25,17 @@ public final class PushChannelRegisterHandler implements RequestHandler {
     @Override
     public void handle(ChannelHandlerContext ctx, Command command) {
         try {
-            PushChannelRegisterMessage message = serializer.deserialize(command.getPayload(), PushChannelRegisterMessage.class);
+            PushChannelRegisterMessage message = command.decodePayload(serializer, PushChannelRegisterMessage.class);
             if (message == null) {
                 return;
             }
-            channelManager.registerPushChannel(message.getAppName(), ctx.channel());
+            String serializerName = serializer.forName(message.getSerializer()).getName();
+            channelManager.registerPushChannel(message.getAppName(), ctx.channel(), serializerName);
             Command response = new Command(CommandType.PUSH_CHANNEL_REGISTER, command.getRequestId(), null);
             ctx.writeAndFlush(response);
             if (log.isInfoEnabled()) {
-                log.info("Register push channel. appName={}, remote={}",
-                        message.getAppName(), ctx.channel().remoteAddress());
+                log.info("Register push channel. appName={}, serializer={}, remote={}",
+                        message.getAppName(), serializerName, ctx.channel().remoteAddress());
             }
         } catch (Exception ignored) {
         }
@@ -1,11 +1,14 @@
 package com.ispengya.hotkey.server.remoting;
 
 import com.ispengya.hotkey.remoting.message.AccessReportMessage;
+import com.ispengya.hotkey.remoting.protocol.BinarySerializer;
 import com.ispengya.hotkey.remoting.protocol.Command;
 import com.ispengya.hotkey.remoting.protocol.CommandType;
 import com.ispengya.hotkey.remoting.protocol.Serializer;
+import com.ispengya.hotkey.remoting.protocol.ServerKeyTable;
 import com.ispengya.hotkey.server.core.AccessReportPipeline;
-import com.ispengya.hotkey.server.model.AccessReport;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,10 +23,17 @@ import java.util.Map;
  * <p>整体流程：
  * <ol>
  *     <li>解析客户端上报的 {@link AccessReportMessage}</li>
- *     <li>将每个 key 的访问计数封装为 {@link AccessReport}</li>
- *     <li>把 {@link AccessReport} 提交给核心上报管道，由其负责入队与消费</li>
+ *     <li>将整份 key 访问计数交给核心上报管道</li>
+ *     <li>管道按分片拆成紧凑的子批次入队，由各分片消费</li>
  * </ol>
  * </p>
+ *
+ * <p>连接协商了 key 字符串表时，上报按表编码（见 {@link BinarySerializer#isIndexedReport(ByteBuf)}），
+ * 使用连接上的 {@link ServerKeyTable} 还原 key；其余格式按负载首字节自动识别。
+ * 按表解码失败（上报序号不连续、引用未定义的 ID、负载损坏）或连接未协商 key 表时，两端的表已不一致，
+ * 丢弃该上报并关闭连接，客户端重连后重新协商空表。</p>
+ *
+ * <p>提交是非阻塞的：管道过载时会按策略丢弃或采样，不会卡住当前 Netty IO 线程。</p>
  */
 public final class ReportRequestHandler implements RequestHandler {
 
@@ -36,11 +46,11 @@ public final class ReportRequestHandler implements RequestHandler {
     /**
      * 构造上报请求处理器。
      *
-     * <p>注入实例窗口注册表、计算算法、结果存储及推送组件，用于在队列消费阶段完成
-     * “写入滑动窗口 + 计算热 key + 推送”的完整链路。</p>
+     * <p>处理器只负责解码并提交上报，写入窗口、判定与推送都在管道的分片消费线程中完成。</p>
      *
-     * @param serializer      序列化器
-     * @param pipeline        上报存储与消费管道
+     * @param serializer   未按 key 表编码的上报使用的序列化器
+     * @param pipeline     上报管道，按分片拆分并异步消费上报
+     * @param debugEnabled 是否输出调试日志
      */
     public ReportRequestHandler(Serializer serializer,
                                 AccessReportPipeline pipeline,
@@ -53,7 +63,7 @@ public final class ReportRequestHandler implements RequestHandler {
     @Override
     public void handle(ChannelHandlerContext ctx, Command command) {
         try {
-            AccessReportMessage message = serializer.deserialize(command.getPayload(), AccessReportMessage.class);
+            AccessReportMessage message = decode(ctx, command);
             if (message == null) {
                 return;
             }
@@ -64,30 +74,42 @@ public final class ReportRequestHandler implements RequestHandler {
                 log.debug("Receive access report. appName={}, keyCount={}",
                         message.getAppName(), size);
             }
-            if (counts != null) {
-                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
-                    String key = entry.getKey();
-                    Integer count = entry.getValue();
-                    if (count == null || count <= 0) {
-                        continue;
-                    }
-                    AccessReport report = new AccessReport(
-                            message.getAppName(),
-                            key,
-                            message.getTimestamp(),
-                            true,
-                            0L,
-                            count
-                    );
-                    offer(report);
-                }
+            int rejected = pipeline.submit(message.getAppName(), counts);
+            if (rejected > 0 && debugEnabled && log.isDebugEnabled()) {
+                log.debug("Access report partially shed. appName={}, keyCount={}, rejectedBatches={}",
+                        message.getAppName(), counts.size(), rejected);
             }
         } catch (Exception e) {
             log.error("Failed to handle access report", e);
         }
     }
 
-    private void offer(AccessReport report) {
-        pipeline.submit(report);
+    private AccessReportMessage decode(ChannelHandlerContext ctx, Command command) {
+        ByteBuf buf = command.getPayloadBuffer();
+        if (buf == null) {
+            byte[] payload = command.getPayload();
+            if (payload == null) {
+                return null;
+            }
+            buf = Unpooled.wrappedBuffer(payload);
+        }
+        if (!BinarySerializer.isIndexedReport(buf)) {
+            return command.decodePayload(serializer, AccessReportMessage.class);
+        }
+        ServerKeyTable table = ServerKeyTable.of(ctx.channel());
+        if (table == null) {
+            log.warn("Close channel sending indexed access report without negotiated key table. remote={}",
+                    ctx.channel().remoteAddress());
+            ctx.close();
+            return null;
+        }
+        try {
+            return BinarySerializer.deserialize(buf, table);
+        } catch (RuntimeException e) {
+            log.warn("Close channel with out-of-sync key table. remote={}, cause={}",
+                    ctx.channel().remoteAddress(), e.toString());
+            ctx.close();
+            return null;
+        }
     }
 }
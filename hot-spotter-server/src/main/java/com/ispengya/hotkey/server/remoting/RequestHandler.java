@@ -8,6 +8,9 @@ import io.netty.channel.ChannelHandlerContext;
  *
  * <p>Remoting 层接收到命令后，根据命令类型分发给具体的 Handler 实现。</p>
  *
+ * <p>命令的负载可能是接收缓冲区的切片，handle 返回后即被释放；需要异步使用负载时，
+ * 应在 handle 内完成反序列化（{@link Command#decodePayload}）或自行 retain。</p>
+ *
  * @author ispengya
  */
 public interface RequestHandler {
@@ -3,44 +3,91 @@ package com.ispengya.hotkey.server.scheduler;
 import com.ispengya.hotkey.remoting.message.HotKeyViewMessage;
 import com.ispengya.hotkey.remoting.protocol.Command;
 import com.ispengya.hotkey.remoting.protocol.CommandType;
-import com.ispengya.hotkey.remoting.protocol.Serializer;
+import com.ispengya.hotkey.remoting.protocol.NegotiatingSerializer;
 import com.ispengya.hotkey.remoting.server.ServerChannelManager;
-import com.ispengya.hotkey.server.model.HotKeyResult;
+import com.ispengya.hotkey.server.core.AppHotKeyState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
 * HotKeyChangePublisher 负责将服务端计算出的热 key 变更异步推送给所有客户端。
 *
-* <p>调用方（例如 HotKeyComputeTask、HotKeyDecayTask）只需提交本次计算的整体结果
-* 以及新增 / 删除的 key 集合，本类会将每个 key 的变更包装成单条事件放入队列，由
-* 后台单线程循环从阻塞队列中取出并通过 HOT_KEY_PUSH 命令广播给所有推送连接。</p>
+* <p>调用方（例如 HotKeyComputeTask、HotKeyDecayTask）只需提交应用名、本次变更的版本号
+* 以及新增 / 删除的 key 集合，本类把每次变更作为一条事件放入无界的无锁队列后立即返回。</p>
+*
+* <p>后台单线程每隔 lingerMillis 合并一次：把队列中积累的变更按应用归并为净增删——同一个 key
+* 先加后删（或先删后加）相互抵消——再为每个应用发送一条包含全部新增与删除的
+* HOT_KEY_PUSH 增量消息（addedKeys / removedKeys），版本取其中最大的版本，基础版本取其中第一次变更之前的版本，
+* 客户端据此判断增量是否与本地视图衔接。净增删为空的应用本次不发送，其基础版本留给该应用的下一条推送。
+* 排队的 key 数达到 maxBatchKeys 时不等 linger 到期立即合并一次。突发期间推送消息数
+* 从“每个 key 一条”降为“每个应用每次合并一条”。</p>
 *
-* <p>这种设计将「热 key 计算 / 衰减」与「网络推送」解耦，避免在计算线程中执行 IO，
-* 同时保证同一进程内的推送顺序与队列顺序一致。</p>
+* <p>消息按应用下推送连接协商的序列化格式分别编码，每种格式只编码一次。</p>
+*
+* <p>这种设计将「热 key 计算 / 衰减」与「网络推送」解耦，避免在计算线程中执行 IO；
+* 合并任务从不阻塞等待队列，空闲时只做一次空检查。</p>
  */
 public final class HotKeyChangePublisher {
 
     private static final Logger log = LoggerFactory.getLogger(HotKeyChangePublisher.class);
     private final ServerChannelManager channelManager;
-    private final Serializer serializer;
-    private final BlockingQueue<PushEvent> queue = new LinkedBlockingQueue<>();
+    private final NegotiatingSerializer serializer;
+    private final ConcurrentLinkedQueue<PushEvent> queue = new ConcurrentLinkedQueue<>();
     private final ScheduledExecutorService executor;
+    private final int maxBatchKeys;
     private final boolean debugEnabled;
 
-    public HotKeyChangePublisher(ServerChannelManager channelManager, Serializer serializer, boolean debugEnabled) {
+    /**
+     * 队列中尚未合并的 key 数量。
+     */
+    private final AtomicInteger queuedKeys = new AtomicInteger();
+
+    /**
+     * 是否已经提交了一次提前合并。
+     */
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+
+    /**
+     * 净增删为空而未发送的应用及其基础版本，只在合并线程中访问。
+     */
+    private final Map<String, Long> carriedBaseVersions = new HashMap<>();
+
+    private final AtomicLong publishedChanges = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+
+    /**
+     * 构造变更推送器。
+     *
+     * @param channelManager 推送连接管理
+     * @param serializer     消息序列化器
+     * @param lingerMillis   变更合并的最长等待时间
+     * @param maxBatchKeys   排队 key 数达到该值时立即合并
+     * @param debugEnabled   是否输出调试日志
+     */
+    public HotKeyChangePublisher(ServerChannelManager channelManager,
+                                 NegotiatingSerializer serializer,
+                                 long lingerMillis,
+                                 int maxBatchKeys,
+                                 boolean debugEnabled) {
         this.channelManager = channelManager;
         this.serializer = serializer;
+        this.maxBatchKeys = Math.max(1, maxBatchKeys);
         this.debugEnabled = debugEnabled;
         this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
             private int index = 0;
@@ -52,59 +99,97 @@ public final class HotKeyChangePublisher {
                 return t;
             }
         });
-        this.executor.scheduleAtFixedRate(this::flush, 10L, 10L, TimeUnit.MILLISECONDS);
+        long period = Math.max(1L, lingerMillis);
+        this.executor.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
     }
 
-    public void publish(HotKeyResult result, Set<String> addedKeys, Set<String> removedKeys) {
-        if (result == null) {
+    /**
+     * 提交一次变更。
+     *
+     * <p>同一应用的变更必须按版本顺序提交，调用方在产生该版本的 {@link AppHotKeyState}
+     * 锁内调用；合并时只会后移版本，发出的版本不会低于该应用已推送过的版本。
+     * {@link AppHotKeyState} 每次变更版本加一，本次变更的基础版本为 version - 1。</p>
+     *
+     * @param appName     应用名
+     * @param version     本次变更的版本号
+     * @param addedKeys   新增的 key
+     * @param removedKeys 删除的 key
+     */
+    public void publish(String appName, long version, Collection<String> addedKeys, Collection<String> removedKeys) {
+        if (appName == null) {
             return;
         }
-        if ((addedKeys == null || addedKeys.isEmpty()) && (removedKeys == null || removedKeys.isEmpty())) {
+        Set<String> added = copyOf(addedKeys);
+        Set<String> removed = copyOf(removedKeys);
+        if (added.isEmpty() && removed.isEmpty()) {
             return;
         }
-        if (addedKeys != null) {
-            for (String key : addedKeys) {
-                if (key == null) {
-                    continue;
-                }
-                enqueue(result, key, true);
-            }
-        }
-        if (removedKeys != null) {
-            for (String key : removedKeys) {
-                if (key == null) {
-                    continue;
-                }
-                enqueue(result, key, false);
-            }
+        queue.offer(new PushEvent(appName, version - 1L, version, added, removed));
+        int queued = queuedKeys.addAndGet(added.size() + removed.size());
+        if (queued >= maxBatchKeys && earlyFlushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flush);
         }
         if (debugEnabled && log.isDebugEnabled()) {
-            int addCount = addedKeys == null ? 0 : addedKeys.size();
-            int removeCount = removedKeys == null ? 0 : removedKeys.size();
-            log.debug("Enqueue hot key changes. appName={}, addCount={}, removeCount={}",
-                    result.getAppName(), addCount, removeCount);
+            log.debug("Enqueue hot key changes. appName={}, version={}, addCount={}, removeCount={}",
+                    appName, version, added.size(), removed.size());
         }
     }
 
-    private void enqueue(HotKeyResult result, String key, boolean add) {
-        queue.offer(new PushEvent(result, key, add));
+    /**
+     * 已提交的变更次数。
+     */
+    public long getPublishedChanges() {
+        return publishedChanges.get();
+    }
+
+    /**
+     * 实际发送的推送消息数，每个应用每次合并最多一条。
+     */
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    private static Set<String> copyOf(Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> copy = new LinkedHashSet<>(keys);
+        copy.remove(null);
+        return copy;
     }
 
     private void flush() {
+        earlyFlushScheduled.set(false);
         try {
-            while (true) {
-                PushEvent event = queue.take();
-                if (debugEnabled && log.isDebugEnabled()) {
-                    log.debug("Dequeue hot key change. appName={}, key={}, add={}",
-                            event.result.getAppName(), event.key, event.add);
+            Map<String, PendingChanges> pending = null;
+            PushEvent event;
+            while ((event = queue.poll()) != null) {
+                queuedKeys.addAndGet(-(event.added.size() + event.removed.size()));
+                publishedChanges.incrementAndGet();
+                if (pending == null) {
+                    pending = new LinkedHashMap<>();
                 }
-                sendSingle(event.result, event.key, event.add);
+                pending.computeIfAbsent(event.appName, name -> new PendingChanges()).merge(event);
             }
-        } catch (InterruptedException e) {
-            if (log.isWarnEnabled()) {
-                log.warn("HotKeyChangePublisher flush thread interrupted", e);
+            if (pending == null) {
+                return;
+            }
+            for (Map.Entry<String, PendingChanges> entry : pending.entrySet()) {
+                PendingChanges changes = entry.getValue();
+                if (changes.isEmpty()) {
+                    carriedBaseVersions.putIfAbsent(entry.getKey(), changes.baseVersion);
+                    continue;
+                }
+                Long carried = carriedBaseVersions.remove(entry.getKey());
+                if (carried != null) {
+                    changes.baseVersion = carried;
+                }
+                if (debugEnabled && log.isDebugEnabled()) {
+                    log.debug("Push hot key changes. appName={}, baseVersion={}, version={}, added={}, removed={}",
+                            entry.getKey(), changes.baseVersion, changes.version, changes.added, changes.removed);
+                }
+                send(entry.getKey(), changes);
             }
-            Thread.currentThread().interrupt();
         } catch (Throwable t) {
             if (log.isErrorEnabled()) {
                 log.error("Unexpected error in HotKeyChangePublisher.flush", t);
@@ -112,37 +197,73 @@ public final class HotKeyChangePublisher {
         }
     }
 
-    private void sendSingle(HotKeyResult result, String key, boolean add) {
+    private void send(String appName, PendingChanges changes) {
         HotKeyViewMessage view = new HotKeyViewMessage();
-        HotKeyViewMessage.ViewEntry entry = new HotKeyViewMessage.ViewEntry();
-        if (add) {
-            entry.setAddedKey(key);
-        } else {
-            entry.setRemovedKey(key);
-        }
+        HotKeyViewMessage.ViewEntry entry = new HotKeyViewMessage.ViewEntry(
+                changes.baseVersion, changes.version, changes.added, changes.removed);
         Map<String, HotKeyViewMessage.ViewEntry> views = new HashMap<>();
-        views.put(result.getAppName(), entry);
+        views.put(appName, entry);
         view.setViews(views);
-        byte[] payload = serializer.serialize(view);
-        Command command = new Command(CommandType.HOT_KEY_PUSH, 0L, payload);
-        String appName = result.getAppName();
+        sentMessages.incrementAndGet();
         if (appName == null || appName.isEmpty()) {
-            channelManager.broadcastOnPushChannels(command);
-        } else {
-            channelManager.broadcastToApp(appName, command);
+            byte[] payload = serializer.serialize(view);
+            channelManager.broadcastOnPushChannels(new Command(CommandType.HOT_KEY_PUSH, 0L, payload));
+            return;
+        }
+        // 每种协商格式只编码一次
+        for (String serializerName : channelManager.getSerializerNames(appName)) {
+            byte[] payload = serializer.forName(serializerName).serialize(view);
+            Command command = new Command(CommandType.HOT_KEY_PUSH, 0L, payload);
+            channelManager.broadcastToApp(appName, serializerName, command);
+        }
+    }
+
+    /**
+     * 单个应用在一次合并中的净增删。
+     */
+    private static final class PendingChanges {
+
+        private final Set<String> added = new LinkedHashSet<>();
+        private final Set<String> removed = new LinkedHashSet<>();
+        private long baseVersion;
+        private long version;
+
+        private void merge(PushEvent event) {
+            if (version == 0L) {
+                baseVersion = event.baseVersion;
+            }
+            version = Math.max(version, event.version);
+            for (String key : event.added) {
+                if (!removed.remove(key)) {
+                    added.add(key);
+                }
+            }
+            for (String key : event.removed) {
+                if (!added.remove(key)) {
+                    removed.add(key);
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
         }
     }
 
     private static final class PushEvent {
 
-        private final HotKeyResult result;
-        private final String key;
-        private final boolean add;
+        private final String appName;
+        private final long baseVersion;
+        private final long version;
+        private final Set<String> added;
+        private final Set<String> removed;
 
-        private PushEvent(HotKeyResult result, String key, boolean add) {
-            this.result = result;
-            this.key = key;
-            this.add = add;
+        private PushEvent(String appName, long baseVersion, long version, Set<String> added, Set<String> removed) {
+            this.appName = appName;
+            this.baseVersion = baseVersion;
+            this.version = version;
+            this.added = added;
+            this.removed = removed;
         }
     }
 }
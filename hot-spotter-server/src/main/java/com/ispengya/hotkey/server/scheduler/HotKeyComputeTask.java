@@ -1,128 +1,93 @@
 package com.ispengya.hotkey.server.scheduler;
 
 import com.ispengya.hotkey.server.core.AggregatedKeyStat;
+import com.ispengya.hotkey.server.core.AppHotKeyState;
+import com.ispengya.hotkey.server.core.AppKeySpace;
 import com.ispengya.hotkey.server.core.HotKeyComputeAlgorithm;
+import com.ispengya.hotkey.server.core.HotKeyContext;
 import com.ispengya.hotkey.server.core.HotKeyResultStore;
-import com.ispengya.hotkey.server.core.InstanceWindowRegistry;
-import com.ispengya.hotkey.server.model.HotKeyResult;
+import com.ispengya.hotkey.server.core.HotKeyRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
+import java.util.List;
+
+/**
+ * HotKeyComputeTask 对单个 key 做热度判定并发布结果。
+ *
+ * <p>由分片消费线程在 key 写入窗口后调用，key 以所属分片字典中的 ID 表示，按 key 命中的
+ * {@link HotKeyRule} 中的 {@link HotKeyComputeAlgorithm} 判定；
+ * 已是热 key 的 key 按规则的退出阈值判定，不低于退出阈值即刷新热度，阈值附近的 key 不会反复进出；
+ * 热 key 的最近活跃时间按规则的空闲时间与最短保持时间记录在对应的 {@link AppKeySpace} 中，
+ * 供 {@link HotKeyDecayTask} 判断空闲。
+ * 结果直接加入应用的 {@link AppHotKeyState}，只有 key 新变为热 key 时才产生新版本并推送；
+ * 应用热 key 数量已达上限时，新 key 的窗口访问次数高于最弱的热 key 才会将其替换，
+ * 新增与替换在同一个版本中推送，推送事件在状态锁内入队，保证同一应用的推送版本单调递增。
+ * 热 key 的得分在每次判定时都会刷新，包括判定为非热的情况；被其他分片的 key 替换下来的 key
+ * 在下次判定时移除本分片的热 key 条目，按进入阈值重新判定。</p>
+ */
 public final class HotKeyComputeTask {
 
     private static final Logger log = LoggerFactory.getLogger(HotKeyComputeTask.class);
-    private static final ConcurrentMap<String, InstanceHotState> STATE = new ConcurrentHashMap<>();
     private static volatile boolean debugEnabled = false;
 
-    private final String appName;
-    private final InstanceWindowRegistry aggregator;
-    private final HotKeyComputeAlgorithm algorithm;
-    private final HotKeyResultStore resultStore;
-    private final HotKeyChangePublisher changePublisher;
-
-    public HotKeyComputeTask(String appName,
-                             InstanceWindowRegistry aggregator,
-                             HotKeyComputeAlgorithm algorithm,
-                             HotKeyResultStore resultStore,
-                             HotKeyChangePublisher changePublisher) {
-        this.appName = appName;
-        this.aggregator = aggregator;
-        this.algorithm = algorithm;
-        this.resultStore = resultStore;
-        this.changePublisher = changePublisher;
+    private HotKeyComputeTask() {
     }
 
-    public static void computeAndPublish(String appName,
-                                         String key,
-                                         InstanceWindowRegistry aggregator,
-                                         HotKeyComputeAlgorithm algorithm,
+    public static void computeAndPublish(AppKeySpace keySpace,
+                                         int keyId,
+                                         HotKeyContext context,
                                          HotKeyResultStore resultStore,
                                          HotKeyChangePublisher changePublisher) {
+        String appName = keySpace.getAppName();
+        String key = keySpace.getDictionary().keyOf(keyId);
         if (key == null) {
             return;
         }
-        AggregatedKeyStat stat = aggregator
-                .selectWindowForApp(appName)
-                .snapshotForKey(key);
-        if (!algorithm.isHot(stat)) {
+        long nowMillis = context.getNowMillis();
+        AggregatedKeyStat stat = keySpace.getStore().snapshotForKey(keyId, key, nowMillis);
+        HotKeyRule rule = context.getRule();
+        AppHotKeyState state = resultStore.stateOf(appName);
+        long score = stat == null ? 0L : stat.getTotalCount();
+        if (keySpace.isHot(keyId) && !state.refreshScore(key, score)) {
+            // 已被其他分片的 key 替换，按新 key 重新判定
+            keySpace.clearHot(keyId);
+        }
+        if (!rule.getAlgorithm().isHot(stat, context)) {
             if (debugEnabled && log.isDebugEnabled()) {
                 log.debug("Key not hot, skip publish. appName={}, key={}", appName, key);
             }
             return;
         }
-        long now = System.currentTimeMillis();
-        recordHot(appName, key, 1.0d, now);
-
-        HotKeyResult previous = resultStore.get(appName);
-        Set<String> previousKeys = previous == null ? Collections.emptySet() : previous.getHotKeys();
-
-        Set<String> newHotKeys = new HashSet<>(previousKeys);
-        newHotKeys.add(key);
-
-        HotKeyResult result = HotKeyResult.from(appName, newHotKeys);
-        resultStore.update(result);
-        if (log.isInfoEnabled()) {
-            log.info("Detect hot key. appName={}, key={}, hotSize={}",
-                    appName, key, newHotKeys.size());
-        }
-        changePublisher.publish(result, Collections.singleton(key), null);
-    }
-
-    public static void setDebugEnabled(boolean enabled) {
-        debugEnabled = enabled;
-    }
-
-    static long getLastActiveTime(String instanceId, String key) {
-        InstanceHotState state = STATE.get(instanceId);
-        if (state == null) {
-            return 0L;
-        }
-        HotKeyEntry entry = state.entries.get(key);
-        if (entry == null) {
-            return 0L;
+        List<String> displaced = new ArrayList<>(1);
+        long version;
+        // 在状态锁内入队推送事件，同一应用的事件按版本顺序排队
+        synchronized (state) {
+            version = state.add(key, rule, score, displaced);
+            if (version >= 0L) {
+                changePublisher.publish(appName, version, Collections.singleton(key), displaced);
+            }
         }
-        return entry.lastActiveTimeMillis;
-    }
-
-    static void removeKey(String instanceId, String key) {
-        InstanceHotState state = STATE.get(instanceId);
-        if (state == null) {
+        if (version == AppHotKeyState.REJECTED) {
+            if (debugEnabled && log.isDebugEnabled()) {
+                log.debug("Hot key limit reached, skip key. appName={}, key={}, rule={}", appName, key, rule);
+            }
             return;
         }
-        state.entries.remove(key);
-    }
-
-    private static void recordHot(String instanceId, String key, double deltaScore, long nowMillis) {
-        InstanceHotState state = STATE.computeIfAbsent(instanceId, InstanceHotState::new);
-        HotKeyEntry entry = state.entries.computeIfAbsent(key, HotKeyEntry::new);
-        entry.score += deltaScore;
-        entry.lastActiveTimeMillis = nowMillis;
-    }
-
-    private static final class InstanceHotState {
-
-        private final String instanceId;
-        private final ConcurrentMap<String, HotKeyEntry> entries = new ConcurrentHashMap<>();
-
-        private InstanceHotState(String instanceId) {
-            this.instanceId = instanceId;
+        keySpace.recordHot(keyId, nowMillis, rule.getIdleMillis(), rule.getMinHoldMillis());
+        if (version >= 0L && log.isInfoEnabled()) {
+            log.info("Detect hot key. appName={}, key={}, displaced={}, hotSize={}, version={}",
+                    appName, key, displaced, state.size(), version);
         }
     }
 
-    private static final class HotKeyEntry {
-
-        private final String key;
-        private double score;
-        private volatile long lastActiveTimeMillis;
+    public static void setDebugEnabled(boolean enabled) {
+        debugEnabled = enabled;
+    }
 
-        private HotKeyEntry(String key) {
-            this.key = key;
-        }
+    static boolean isDebugEnabled() {
+        return debugEnabled;
     }
 }
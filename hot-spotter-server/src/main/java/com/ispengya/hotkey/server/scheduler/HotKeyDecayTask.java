@@ -1,77 +1,61 @@
 package com.ispengya.hotkey.server.scheduler;
 
+import com.ispengya.hotkey.server.core.AppHotKeyState;
+import com.ispengya.hotkey.server.core.AppKeySpace;
 import com.ispengya.hotkey.server.core.HotKeyResultStore;
-import com.ispengya.hotkey.server.model.HotKeyResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
-final class HotKeyDecayTask implements Runnable {
+/**
+ * HotKeyDecayTask 发布单个分片内某应用空闲到期的热 key。
+ *
+ * <p>热 key 条目挂在分片的到期时间轮上，时间轮推进时到期的条目已从 {@link AppKeySpace} 中移除并释放
+ * 字典 ID；本任务取出这些 key，在 {@link AppHotKeyState} 中以一个版本整体移除并推送。
+ * 必须在拥有该 {@link AppKeySpace} 的分片消费线程中执行。</p>
+ */
+public final class HotKeyDecayTask implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(HotKeyDecayTask.class);
-    private final String appName;
+    private final AppKeySpace keySpace;
     private final HotKeyResultStore resultStore;
-    private final long idleMillis;
     private final HotKeyChangePublisher changePublisher;
-    private final boolean debugEnabled;
 
-    HotKeyDecayTask(String appName,
-                    HotKeyResultStore resultStore,
-                    long idleMillis,
-                    HotKeyChangePublisher changePublisher,
-                    boolean debugEnabled) {
-        this.appName = appName;
+    public HotKeyDecayTask(AppKeySpace keySpace,
+                           HotKeyResultStore resultStore,
+                           HotKeyChangePublisher changePublisher) {
+        this.keySpace = keySpace;
         this.resultStore = resultStore;
-        this.idleMillis = idleMillis;
         this.changePublisher = changePublisher;
-        this.debugEnabled = debugEnabled;
     }
 
     @Override
     public void run() {
-        HotKeyResult previous = resultStore.get(appName);
-        if (previous == null) {
+        String appName = keySpace.getAppName();
+        List<String> expired = keySpace.drainExpiredHotKeys();
+        if (expired == null || expired.isEmpty()) {
             return;
         }
-        Set<String> previousKeys = previous.getHotKeys();
-        if (previousKeys == null || previousKeys.isEmpty()) {
-            return;
+        if (HotKeyComputeTask.isDebugEnabled() && log.isDebugEnabled()) {
+            log.debug("Decay hot keys due to idle. appName={}, keys={}", appName, expired);
         }
 
-        long now = System.currentTimeMillis();
-        Set<String> newHotKeys = new HashSet<>(previousKeys);
-        Set<String> removedKeys = new HashSet<>();
-        boolean changed = false;
-
-        for (String key : previousKeys) {
-            if (key == null) {
-                continue;
-            }
-            long lastActive = HotKeyComputeTask.getLastActiveTime(appName, key);
-            if (lastActive <= 0L || now - lastActive >= idleMillis) {
-                newHotKeys.remove(key);
-                HotKeyComputeTask.removeKey(appName, key);
-                removedKeys.add(key);
-                changed = true;
-                if (debugEnabled && log.isDebugEnabled()) {
-                    log.debug("Decay hot key due to idle. appName={}, key={}, idleMillis={}",
-                            appName, key, idleMillis);
-                }
-            }
-        }
-
-        if (!changed) {
+        AppHotKeyState state = resultStore.findState(appName);
+        if (state == null) {
             return;
         }
-
-        HotKeyResult result = HotKeyResult.from(previous.getAppName(), newHotKeys);
-        resultStore.update(result);
-        if (log.isInfoEnabled()) {
-            log.info("Hot key decay completed. appName={}, removedCount={}, remainHotSize={}",
-                    appName, removedKeys.size(), newHotKeys.size());
+        long version;
+        // 与 HotKeyComputeTask 一样在状态锁内入队，推送事件按版本顺序排队
+        synchronized (state) {
+            version = state.removeAll(expired);
+            if (version >= 0L) {
+                changePublisher.publish(appName, version, null, expired);
+            }
+        }
+        if (version >= 0L && log.isInfoEnabled()) {
+            log.info("Hot key decay completed. appName={}, expiredCount={}, remainHotSize={}, version={}",
+                    appName, expired.size(), state.size(), version);
         }
-        changePublisher.publish(result, null, removedKeys);
     }
 }
@@ -0,0 +1,101 @@
+package com.ispengya.hotkey.server.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessReportShardTest {
+
+    @Test
+    void dropNewestRejectsIncomingBatchWhenFull() {
+        AccessReportShard shard = shard(2, OverloadPolicy.DROP_NEWEST, 1, 100);
+
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(1)));
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(2)));
+        assertEquals(SubmitStatus.DROPPED, shard.offer(batch(3)));
+
+        assertEquals(2, shard.getQueueSize());
+        assertEquals(3, shard.getDroppedCount());
+        assertEquals(0, shard.getEvictedCount());
+    }
+
+    @Test
+    void dropOldestEvictsHeadToMakeRoom() {
+        AccessReportShard shard = shard(2, OverloadPolicy.DROP_OLDEST, 1, 100);
+
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(1)));
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(2)));
+        assertEquals(SubmitStatus.EVICTED_OLDEST, shard.offer(batch(3)));
+        assertEquals(SubmitStatus.EVICTED_OLDEST, shard.offer(batch(4)));
+
+        // 依次挤掉了 1 个 key 与 2 个 key 的批次
+        assertEquals(2, shard.getQueueSize());
+        assertEquals(3, shard.getEvictedCount());
+        assertEquals(0, shard.getDroppedCount());
+    }
+
+    @Test
+    void downSampleAcceptsBelowWatermarkThenSamplesThenDrops() {
+        // 容量 4，水位 50%：队列中已有 2 个批次后开始采样
+        AccessReportShard shard = shard(4, OverloadPolicy.DOWN_SAMPLE, 2, 50);
+
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(1)));
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(1)));
+        assertEquals(0, shard.getShedCount() + shard.getSampledCount());
+
+        ReportBatch large = batch(1000);
+        assertEquals(SubmitStatus.SAMPLED, shard.offer(large));
+        assertTrue(large.size() > 0 && large.size() < 1000, "kept " + large.size());
+        assertEquals(1000, shard.getShedCount() + shard.getSampledCount());
+        assertEquals(large.size(), shard.getSampledCount());
+        for (int i = 0; i < large.size(); i++) {
+            // 保留下来的计数按采样倍率放大
+            assertEquals(2 * 7, large.countAt(i));
+        }
+
+        assertEquals(SubmitStatus.SAMPLED, shard.offer(batch(1000)));
+        ReportBatch rejected = batch(1000);
+        assertEquals(SubmitStatus.DROPPED, shard.offer(rejected));
+        assertEquals(rejected.size(), shard.getDroppedCount());
+        assertEquals(4, shard.getQueueSize());
+    }
+
+    @Test
+    void downSampleShedsBatchWhenNothingIsKept() {
+        AccessReportShard shard = shard(2, OverloadPolicy.DOWN_SAMPLE, Integer.MAX_VALUE, 50);
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(1)));
+
+        // 采样倍率极大，单个 key 几乎不可能被保留
+        assertEquals(SubmitStatus.SHED, shard.offer(batch(1)));
+
+        assertEquals(1, shard.getShedCount());
+        assertEquals(1, shard.getQueueSize());
+    }
+
+    @Test
+    void downSampleWithoutRateBehavesLikeDropNewest() {
+        AccessReportShard shard = shard(2, OverloadPolicy.DOWN_SAMPLE, 1, 1);
+
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(5)));
+        assertEquals(SubmitStatus.ACCEPTED, shard.offer(batch(5)));
+        assertEquals(SubmitStatus.DROPPED, shard.offer(batch(5)));
+
+        assertEquals(5, shard.getDroppedCount());
+        assertEquals(0, shard.getShedCount());
+    }
+
+    private static AccessReportShard shard(int capacity, OverloadPolicy policy, int sampleRate, int watermarkPercent) {
+        // 不启动消费线程，队列只进不出，各策略的结果是确定的
+        return new AccessReportShard(0, capacity, policy, sampleRate, watermarkPercent, 16, 0L,
+                new InstanceWindowRegistry(null, null, 100L), null, null, null);
+    }
+
+    private static ReportBatch batch(int keys) {
+        ReportBatch batch = new ReportBatch("app", keys);
+        for (int i = 0; i < keys; i++) {
+            batch.add("item:" + i, 7);
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,199 @@
+package com.ispengya.hotkey.server.core;
+
+import com.ispengya.hotkey.server.model.HotKeyDelta;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppHotKeyStateTest {
+
+    @Test
+    void changesSinceNetsAddRemoveAndReAdd() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        long v0 = state.getVersion();
+        long v1 = state.add("a", null, 1, null);
+        long v2 = state.add("b", null, 1, null);
+        state.removeAll(Collections.singletonList("a"));
+        state.add("a", null, 1, null);
+        long v5 = state.removeAll(Collections.singletonList("b"));
+        assertEquals(v0 + 5, v5);
+
+        // a 删除后又加回，b 加入后又删除
+        HotKeyDelta fromStart = state.changesSince(v0);
+        assertEquals(keys("a"), fromStart.getAdded());
+        assertEquals(keys(), fromStart.getRemoved());
+        assertEquals(v0, fromStart.getFromVersion());
+        assertEquals(v5, fromStart.getToVersion());
+
+        assertTrue(state.changesSince(v1).isEmpty());
+
+        HotKeyDelta fromV2 = state.changesSince(v2);
+        assertEquals(keys(), fromV2.getAdded());
+        assertEquals(keys("b"), fromV2.getRemoved());
+    }
+
+    @Test
+    void unchangedOperationsDoNotBumpVersion() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        long v1 = state.add("a", null, 1, null);
+
+        assertEquals(AppHotKeyState.NOT_CHANGED, state.add("a", null, 2, null));
+        assertEquals(AppHotKeyState.NOT_CHANGED, state.removeAll(Arrays.asList("x", null)));
+        assertEquals(AppHotKeyState.NOT_CHANGED, state.removeAll(Collections.<String>emptyList()));
+        assertEquals(v1, state.getVersion());
+    }
+
+    @Test
+    void currentVersionYieldsEmptyDeltaAndUnknownVersionYieldsNull() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        long version = state.add("a", null, 1, null);
+
+        HotKeyDelta current = state.changesSince(version);
+        assertTrue(current.isEmpty());
+        assertEquals(version, current.getToVersion());
+        // 来自重启前服务端的更大版本号
+        assertNull(state.changesSince(version + 1));
+    }
+
+    @Test
+    void truncatedLogFallsBackToSnapshot() {
+        AppHotKeyState state = new AppHotKeyState("app", 2);
+        long v0 = state.getVersion();
+        long v1 = state.add("a", null, 1, null);
+        state.add("b", null, 1, null);
+        assertEquals(keys("a", "b"), state.changesSince(v0).getAdded());
+
+        long v3 = state.add("c", null, 1, null);
+
+        // 日志只保留 v2、v3 两条，v0 之后的变化已经不完整
+        assertNull(state.changesSince(v0));
+        assertEquals(keys("b", "c"), state.changesSince(v1).getAdded());
+        assertEquals(keys("a", "b", "c"), state.snapshot().getHotKeys());
+        assertEquals(v3, state.snapshot().getVersion());
+    }
+
+    @Test
+    void snapshotIsCachedUntilNextChange() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        state.add("a", null, 1, null);
+        assertSame(state.snapshot(), state.snapshot());
+
+        state.add("b", null, 1, null);
+
+        assertEquals(keys("a", "b"), state.snapshot().getHotKeys());
+        assertEquals(state.getVersion(), state.snapshot().getVersion());
+    }
+
+    @Test
+    void strongerKeyDisplacesWeakestAtCapacityInOneVersion() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        HotKeyRule rule = appRule(2);
+        state.add("a", rule, 10, null);
+        long before = state.add("b", rule, 5, null);
+        List<String> displaced = new ArrayList<>();
+
+        long version = state.add("c", rule, 7, displaced);
+
+        assertEquals(before + 1, version);
+        assertEquals(Collections.singletonList("b"), displaced);
+        assertEquals(keys("a", "c"), state.snapshot().getHotKeys());
+        HotKeyDelta delta = state.changesSince(before);
+        assertEquals(keys("c"), delta.getAdded());
+        assertEquals(keys("b"), delta.getRemoved());
+    }
+
+    @Test
+    void weakerOrEqualKeyIsRejectedAtCapacity() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        HotKeyRule rule = appRule(2);
+        state.add("a", rule, 10, null);
+        long version = state.add("b", rule, 5, null);
+        List<String> displaced = new ArrayList<>();
+
+        assertEquals(AppHotKeyState.REJECTED, state.add("c", rule, 5, displaced));
+        assertEquals(AppHotKeyState.REJECTED, state.add("d", rule, 1, displaced));
+
+        assertTrue(displaced.isEmpty());
+        assertEquals(version, state.getVersion());
+        assertEquals(keys("a", "b"), state.snapshot().getHotKeys());
+    }
+
+    @Test
+    void refreshedScoreChangesWhichKeyIsDisplaced() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        HotKeyRule rule = appRule(2);
+        state.add("a", rule, 10, null);
+        state.add("b", rule, 5, null);
+        List<String> displaced = new ArrayList<>();
+
+        // a 的热度回落，不再以峰值得分挡住新 key
+        assertTrue(state.refreshScore("a", 1));
+        state.add("c", rule, 3, displaced);
+        assertEquals(Collections.singletonList("a"), displaced);
+        assertFalse(state.refreshScore("a", 100));
+
+        // 重复加入已有 key 同样刷新得分
+        assertEquals(AppHotKeyState.NOT_CHANGED, state.add("b", rule, 2, null));
+        displaced.clear();
+        state.add("d", rule, 2.5, displaced);
+        assertEquals(Collections.singletonList("b"), displaced);
+        assertEquals(keys("c", "d"), state.snapshot().getHotKeys());
+    }
+
+    @Test
+    void topKKeepsHighestScoresAcrossManyInsertions() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        HotKeyRule rule = appRule(10);
+        List<Integer> scores = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            scores.add(i);
+        }
+        Collections.shuffle(scores, new Random(7));
+
+        for (int score : scores) {
+            state.add("k" + score, rule, score, null);
+        }
+
+        Set<String> expected = new HashSet<>();
+        for (int score = 190; score < 200; score++) {
+            expected.add("k" + score);
+        }
+        assertEquals(expected, state.snapshot().getHotKeys());
+        assertEquals(10, state.size());
+    }
+
+    @Test
+    void fullPrefixRuleRejectsUntilItsKeyIsRemoved() {
+        AppHotKeyState state = new AppHotKeyState("app", 16);
+        HotKeyRule app = appRule(0);
+        HotKeyRule items = new HotKeyRule("item:", null, 0L, 0L, 1, app);
+        state.add("item:1", items, 1, null);
+
+        assertEquals(AppHotKeyState.REJECTED, state.add("item:2", items, 100, null));
+        assertTrue(state.add("order:1", app, 1, null) > 0);
+
+        state.removeAll(Collections.singletonList("item:1"));
+        assertTrue(state.add("item:2", items, 1, null) > 0);
+        assertEquals(keys("item:2", "order:1"), state.snapshot().getHotKeys());
+    }
+
+    private static HotKeyRule appRule(int maxHotKeys) {
+        return new HotKeyRule(null, null, 0L, 0L, maxHotKeys, null);
+    }
+
+    private static Set<String> keys(String... keys) {
+        return new HashSet<>(Arrays.asList(keys));
+    }
+}
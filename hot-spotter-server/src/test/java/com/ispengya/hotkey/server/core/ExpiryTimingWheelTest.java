@@ -0,0 +1,159 @@
+package com.ispengya.hotkey.server.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiryTimingWheelTest {
+
+    private static final long TICK = 10L;
+
+    /**
+     * 每层 4 格：第一层跨度 40ms，第二层 160ms，第三层 640ms，很小的时间范围内就会跨层下沉。
+     */
+    private static final int WHEEL_SIZE = 4;
+
+    @Test
+    void nodesOnLevelBoundariesExpireWithinOneTick() {
+        long[] deadlines = {0L, 9L, 10L, 39L, 40L, 41L, 159L, 160L, 161L, 639L, 640L, 641L, 2559L, 2560L, 10_000L};
+        ExpiryTimingWheel wheel = new ExpiryTimingWheel(TICK, WHEEL_SIZE, 0L);
+        Map<ExpiryTimingWheel.Node, Long> expiredAt = new HashMap<>();
+        List<ExpiryTimingWheel.Node> nodes = new ArrayList<>();
+        for (long deadline : deadlines) {
+            ExpiryTimingWheel.Node node = new ExpiryTimingWheel.Node();
+            wheel.schedule(node, deadline);
+            nodes.add(node);
+        }
+
+        advanceEachMillis(wheel, 0L, 10_100L, expiredAt);
+
+        assertEquals(0, wheel.size());
+        for (ExpiryTimingWheel.Node node : nodes) {
+            assertTrue(expiredAt.containsKey(node), "deadline " + node.getDeadlineMillis());
+        }
+    }
+
+    @Test
+    void randomScheduleRescheduleAndCancelNeverExpireEarly() {
+        Random random = new Random(3);
+        ExpiryTimingWheel wheel = new ExpiryTimingWheel(TICK, WHEEL_SIZE, 1_000L);
+        Map<ExpiryTimingWheel.Node, Long> expiredAt = new HashMap<>();
+        List<ExpiryTimingWheel.Node> live = new ArrayList<>();
+        List<ExpiryTimingWheel.Node> cancelled = new ArrayList<>();
+        long now = 1_000L;
+
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 3) {
+                ExpiryTimingWheel.Node node = new ExpiryTimingWheel.Node();
+                wheel.schedule(node, now + random.nextInt(3_000));
+                live.add(node);
+            } else if (op < 5 && !live.isEmpty()) {
+                ExpiryTimingWheel.Node node = live.get(random.nextInt(live.size()));
+                if (node.isScheduled()) {
+                    // 截止时间既可能提前也可能推后
+                    wheel.schedule(node, now + random.nextInt(3_000));
+                }
+            } else if (op < 6 && !live.isEmpty()) {
+                ExpiryTimingWheel.Node node = live.get(random.nextInt(live.size()));
+                if (node.isScheduled()) {
+                    wheel.cancel(node);
+                    cancelled.add(node);
+                }
+            }
+            // 时间每次前进 0 或 1ms，到期时刻可以精确判断
+            now += random.nextInt(2);
+            advanceEachMillis(wheel, now, now, expiredAt);
+        }
+        advanceEachMillis(wheel, now, now + 4_000L, expiredAt);
+
+        assertEquals(0, wheel.size());
+        for (ExpiryTimingWheel.Node node : cancelled) {
+            assertFalse(expiredAt.containsKey(node));
+        }
+        assertEquals(live.size(), expiredAt.size() + cancelled.size());
+    }
+
+    @Test
+    void rescheduleMovesNodeWithoutChangingSize() {
+        ExpiryTimingWheel wheel = new ExpiryTimingWheel(TICK, WHEEL_SIZE, 0L);
+        ExpiryTimingWheel.Node node = new ExpiryTimingWheel.Node();
+        wheel.schedule(node, 1_000L);
+        wheel.schedule(node, 30L);
+        assertEquals(1, wheel.size());
+
+        List<ExpiryTimingWheel.Node> expired = new ArrayList<>();
+        wheel.advance(30L, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(40L, expired::add);
+        assertEquals(1, expired.size());
+
+        // 推后截止时间后，原来的格子到期时不再回调
+        wheel.schedule(node, 100L);
+        wheel.schedule(node, 500L);
+        wheel.advance(200L, expired::add);
+        assertEquals(1, expired.size());
+        wheel.cancel(node);
+        wheel.cancel(node);
+        assertEquals(0, wheel.size());
+        wheel.advance(1_000L, expired::add);
+        assertEquals(1, expired.size());
+    }
+
+    @Test
+    void pastDeadlineExpiresOnNextAdvance() {
+        ExpiryTimingWheel wheel = new ExpiryTimingWheel(TICK, WHEEL_SIZE, 0L);
+        wheel.advance(500L, node -> { });
+        ExpiryTimingWheel.Node node = new ExpiryTimingWheel.Node();
+        wheel.schedule(node, 100L);
+
+        List<ExpiryTimingWheel.Node> expired = new ArrayList<>();
+        wheel.advance(500L, expired::add);
+
+        assertEquals(1, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void idleWheelFastForwardsToCurrentTime() {
+        ExpiryTimingWheel wheel = new ExpiryTimingWheel(1L, WHEEL_SIZE, 0L);
+        long later = 1L << 40;
+
+        // 每格 1ms、空闲约 35 年，逐格推进不可能在测试时间内完成
+        wheel.advance(later, node -> { });
+
+        ExpiryTimingWheel.Node node = new ExpiryTimingWheel.Node();
+        wheel.schedule(node, later + 5L);
+        List<ExpiryTimingWheel.Node> expired = new ArrayList<>();
+        wheel.advance(later + 5L, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(later + 6L, expired::add);
+        assertEquals(1, expired.size());
+    }
+
+    /**
+     * 逐毫秒推进时间，检查每个到期节点只回调一次，且不早于截止时间、最多晚一格。
+     */
+    private static void advanceEachMillis(ExpiryTimingWheel wheel, long from, long until,
+                                          Map<ExpiryTimingWheel.Node, Long> expiredAt) {
+        for (long now = from; now <= until; now++) {
+            long current = now;
+            wheel.advance(now, node -> {
+                assertFalse(node.isScheduled());
+                assertNull(expiredAt.put(node, current), "expired twice");
+                long deadline = node.getDeadlineMillis();
+                assertTrue(current > deadline && current <= deadline + TICK,
+                        "deadline " + deadline + " expired at " + current);
+            });
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ispengya.hotkey.server.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class KeyDictionaryTest {
+
+    @Test
+    void internIsStableAndLookupDoesNotAllocate() {
+        KeyDictionary dictionary = new KeyDictionary();
+
+        int a = dictionary.intern("item:1");
+        int b = dictionary.intern("item:2");
+
+        assertNotEquals(a, b);
+        assertEquals(a, dictionary.intern("item:1"));
+        assertEquals(b, dictionary.idOf("item:2"));
+        assertEquals("item:1", dictionary.keyOf(a));
+        assertEquals(-1, dictionary.idOf("item:3"));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void idIsRecycledOnlyWhenLastReferenceIsReleased() {
+        KeyDictionary dictionary = new KeyDictionary();
+        int id = dictionary.intern("k");
+        dictionary.retain(id);
+        dictionary.retain(id);
+
+        dictionary.release(id);
+        assertEquals(id, dictionary.idOf("k"));
+        assertEquals(1, dictionary.size());
+
+        dictionary.release(id);
+        assertEquals(-1, dictionary.idOf("k"));
+        assertNull(dictionary.keyOf(id));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void releasedIdIsReusedWithFreshRefCount() {
+        KeyDictionary dictionary = new KeyDictionary();
+        int first = dictionary.intern("a");
+        dictionary.intern("b");
+        dictionary.retain(first);
+        dictionary.retain(first);
+        dictionary.release(first);
+        dictionary.release(first);
+
+        int reused = dictionary.intern("c");
+
+        assertEquals(first, reused);
+        assertEquals("c", dictionary.keyOf(reused));
+        // 新 key 的引用计数从 0 开始，一次 retain 对应一次 release
+        dictionary.retain(reused);
+        dictionary.release(reused);
+        assertEquals(-1, dictionary.idOf("c"));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void deletingFromCollidingChainKeepsOtherKeysReachable() {
+        KeyDictionary dictionary = new KeyDictionary();
+        // "Aa" 与 "BB" 的 hashCode 相同，组合出的 key 全部落在同一条探测链上
+        List<String> keys = collidingKeys(5);
+        int[] ids = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            ids[i] = dictionary.intern(keys.get(i));
+            dictionary.retain(ids[i]);
+        }
+
+        for (int i = 0; i < keys.size(); i += 3) {
+            dictionary.release(ids[i]);
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            int expected = i % 3 == 0 ? -1 : ids[i];
+            assertEquals(expected, dictionary.idOf(keys.get(i)), keys.get(i));
+        }
+        // 链头被删除后重新加入，仍然只有一个 ID
+        int again = dictionary.intern(keys.get(0));
+        assertEquals(again, dictionary.intern(keys.get(0)));
+    }
+
+    @Test
+    void randomOperationsMatchReferenceMap() {
+        KeyDictionary dictionary = new KeyDictionary();
+        Map<String, Integer> refCounts = new HashMap<>();
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> universe = collidingKeys(6);
+        for (int i = 0; i < 300; i++) {
+            universe.add("item:" + i);
+        }
+        Random random = new Random(11);
+
+        for (int step = 0; step < 50_000; step++) {
+            String key = universe.get(random.nextInt(universe.size()));
+            Integer count = refCounts.get(key);
+            if (count == null || random.nextBoolean()) {
+                int id = dictionary.intern(key);
+                if (count == null) {
+                    ids.put(key, id);
+                } else {
+                    assertEquals(ids.get(key).intValue(), id);
+                }
+                dictionary.retain(id);
+                refCounts.merge(key, 1, Integer::sum);
+            } else {
+                dictionary.release(ids.get(key));
+                if (count == 1) {
+                    refCounts.remove(key);
+                    ids.remove(key);
+                } else {
+                    refCounts.put(key, count - 1);
+                }
+            }
+        }
+
+        assertEquals(refCounts.size(), dictionary.size());
+        for (String key : universe) {
+            Integer id = ids.get(key);
+            assertEquals(id == null ? -1 : id, dictionary.idOf(key), key);
+        }
+    }
+
+    private static List<String> collidingKeys(int parts) {
+        List<String> keys = new ArrayList<>();
+        for (int mask = 0; mask < 1 << parts; mask++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < parts; i++) {
+                sb.append((mask & (1 << i)) == 0 ? "Aa" : "BB");
+            }
+            keys.add(sb.toString());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,184 @@
+package com.ispengya.hotkey.server.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, new MpscRingBuffer<String>(0).capacity());
+        assertEquals(2, new MpscRingBuffer<String>(1).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(5).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(8).capacity());
+    }
+
+    @Test
+    void fullBufferRejectsUntilConsumerFreesSlot() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(Integer.valueOf(0), buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void singleSlotRequestStillDetectsFullBuffer() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(1);
+
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(Integer.valueOf(1), buffer.poll());
+        assertEquals(Integer.valueOf(2), buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void wrapsAroundManyTimesInFifoOrder() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        // 每轮写入 3 个、取出 3 个，写入位置反复越过数组末尾
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(next++));
+            }
+            assertEquals(3, buffer.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Integer.valueOf(expected++), buffer.poll());
+            }
+            assertNull(buffer.poll());
+        }
+    }
+
+    @Test
+    void drainToHonoursLimit() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(i);
+        }
+        List<Integer> target = new ArrayList<>();
+
+        assertEquals(3, buffer.drainTo(target, 3));
+        assertEquals(2, buffer.drainTo(target, 10));
+        assertEquals(0, buffer.drainTo(target, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), target);
+    }
+
+    @Test
+    void concurrentProducersHandOffEveryElementOnceInPerProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 100_000;
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p << 32;
+            Thread t = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perProducer; i++) {
+                    // 队列满时自旋重试，保证每个元素最终都能入队
+                    while (!buffer.offer(base | i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        start.countDown();
+        int[] nextSeq = new int[producers];
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer) {
+            Long e = buffer.poll();
+            if (e == null) {
+                assertTrue(System.nanoTime() < deadline, "timed out after " + received);
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) (e >>> 32);
+            int seq = (int) (long) e;
+            assertEquals(nextSeq[producer]++, seq, "producer " + producer);
+            received++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(buffer.poll());
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, nextSeq[p]);
+        }
+    }
+
+    @Test
+    void evictingProducerAndConsumerNeverTakeSameElement() throws Exception {
+        int total = 200_000;
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(16);
+        Set<Integer> evicted = Collections.synchronizedSet(new HashSet<>());
+        // 生产者模拟「丢弃最旧」：队列满时自己取走队头再重试
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                while (!buffer.offer(i)) {
+                    Integer oldest = buffer.poll();
+                    if (oldest != null) {
+                        evicted.add(oldest);
+                    }
+                }
+            }
+        });
+        producer.start();
+
+        Set<Integer> consumed = new HashSet<>();
+        while (producer.isAlive() || buffer.size() > 0) {
+            Integer e = buffer.poll();
+            if (e != null) {
+                assertTrue(consumed.add(e), "duplicate " + e);
+            }
+        }
+        producer.join();
+        Integer e;
+        while ((e = buffer.poll()) != null) {
+            assertTrue(consumed.add(e), "duplicate " + e);
+        }
+
+        for (Integer i : evicted) {
+            assertFalse(consumed.contains(i), "consumed evicted " + i);
+        }
+        assertEquals(total, consumed.size() + evicted.size());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
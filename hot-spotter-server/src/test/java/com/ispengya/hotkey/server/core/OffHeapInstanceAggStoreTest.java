@@ -0,0 +1,167 @@
+package com.ispengya.hotkey.server.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OffHeapInstanceAggStoreTest {
+
+    private static final long SLOT_MILLIS = 100L;
+    private static final int SLOTS = 3;
+
+    /**
+     * 3 个槽时单条记录 (5 + 3 * 3) * 8 = 112 字节，该预算得到 8 个位置、最多 6 条记录。
+     */
+    private static final long SMALL_BUDGET = 112L * 8;
+
+    @Test
+    void slotsRotateOutOfWindow() {
+        KeyDictionary dictionary = new KeyDictionary();
+        OffHeapInstanceAggStore store = new OffHeapInstanceAggStore(SLOT_MILLIS, SLOTS, 1 << 20, dictionary);
+        int id = add(store, dictionary, "k", 5, 4, 50, 0L);
+        add(store, dictionary, "k", 3, 3, 30, 100L);
+        add(store, dictionary, "k", 2, 1, 20, 250L);
+
+        AggregatedKeyStat stat = store.snapshotForKey(id, "k", 250L);
+        assertEquals(10, stat.getTotalCount());
+        assertEquals(8, stat.getSuccessCount());
+        assertEquals(2, stat.getFailCount());
+        assertEquals(100, stat.getTotalRtMillis());
+        assertEquals(10, store.totalCount(250L));
+
+        // 槽 0 滑出窗口
+        assertEquals(5, store.snapshotForKey(id, "k", 300L).getTotalCount());
+        assertEquals(5, store.totalCount(300L));
+        assertEquals(2, store.snapshotForKey(id, "k", 499L).getTotalCount());
+        // 整个窗口都已过期
+        assertNull(store.snapshotForKey(id, "k", 500L));
+        assertEquals(0, store.totalCount(500L));
+    }
+
+    @Test
+    void clockGoingBackwardsWritesIntoCurrentSlot() {
+        KeyDictionary dictionary = new KeyDictionary();
+        OffHeapInstanceAggStore store = new OffHeapInstanceAggStore(SLOT_MILLIS, SLOTS, 1 << 20, dictionary);
+        int id = add(store, dictionary, "k", 1, 1, 0, 250L);
+        add(store, dictionary, "k", 4, 4, 0, 50L);
+
+        // 回拨的写入计入槽 2，与之前的计数一起滑出窗口
+        assertEquals(5, store.snapshotForKey(id, "k", 250L).getTotalCount());
+        assertEquals(5, store.snapshotForKey(id, "k", 499L).getTotalCount());
+        assertNull(store.snapshotForKey(id, "k", 500L));
+    }
+
+    @Test
+    void fullTableRejectsNewKeysButCountsAppTotal() {
+        KeyDictionary dictionary = new KeyDictionary();
+        OffHeapInstanceAggStore store = new OffHeapInstanceAggStore(SLOT_MILLIS, SLOTS, SMALL_BUDGET, dictionary);
+        assertEquals(6, store.maxSize());
+        for (int i = 0; i < 6; i++) {
+            add(store, dictionary, "k" + i, 1, 1, 0, 0L);
+        }
+
+        add(store, dictionary, "extra", 1, 1, 0, 0L);
+
+        assertEquals(1, store.getRejectedCount());
+        assertEquals(6, store.size());
+        // 未入表的 key 不被持有，ID 随即回收
+        assertEquals(-1, dictionary.idOf("extra"));
+        assertEquals(7, store.totalCount(0L));
+        for (int i = 0; i < 6; i++) {
+            String key = "k" + i;
+            assertEquals(1, store.snapshotForKey(dictionary.idOf(key), key, 0L).getTotalCount(), key);
+        }
+    }
+
+    @Test
+    void idleRecordsAreEvictedWithoutBreakingProbeChains() {
+        KeyDictionary dictionary = new KeyDictionary();
+        OffHeapInstanceAggStore store = new OffHeapInstanceAggStore(SLOT_MILLIS, SLOTS, SMALL_BUDGET, dictionary);
+        int[] ids = new int[6];
+        for (int i = 0; i < 6; i++) {
+            ids[i] = add(store, dictionary, "k" + i, 1, 1, 0, 0L);
+        }
+        // 8 个位置放 6 条记录，探测链必然相互交错；只有偶数 key 继续有访问
+        for (long now = 100L; now <= 200L; now += 100L) {
+            for (int i = 0; i < 6; i += 2) {
+                add(store, dictionary, "k" + i, 10, 10, 0, now);
+            }
+        }
+
+        // 滚动到槽 3 时清理整个窗口都没有访问的奇数 key
+        add(store, dictionary, "k0", 100, 100, 0, 300L);
+
+        assertEquals(3, store.size());
+        for (int i = 1; i < 6; i += 2) {
+            assertEquals(-1, dictionary.idOf("k" + i), "k" + i);
+        }
+        assertEquals(120, store.snapshotForKey(ids[0], "k0", 300L).getTotalCount());
+        assertEquals(20, store.snapshotForKey(ids[2], "k2", 300L).getTotalCount());
+        assertEquals(20, store.snapshotForKey(ids[4], "k4", 300L).getTotalCount());
+
+        // 腾出的位置可以接收新 key
+        for (int i = 6; i < 9; i++) {
+            add(store, dictionary, "k" + i, 1, 1, 0, 300L);
+        }
+        assertEquals(6, store.size());
+        assertEquals(0, store.getRejectedCount());
+    }
+
+    @Test
+    void randomTrafficMatchesOnHeapStore() {
+        KeyDictionary offHeapDictionary = new KeyDictionary();
+        KeyDictionary onHeapDictionary = new KeyDictionary();
+        OffHeapInstanceAggStore offHeap = new OffHeapInstanceAggStore(SLOT_MILLIS, SLOTS, 1 << 20, offHeapDictionary);
+        SlidingWindowInstanceAggStore onHeap = new SlidingWindowInstanceAggStore(SLOT_MILLIS, SLOTS, onHeapDictionary);
+        Random random = new Random(5);
+        long now = 0L;
+
+        for (int step = 0; step < 20_000; step++) {
+            now += random.nextInt(30);
+            String key = "item:" + random.nextInt(200);
+            long count = 1 + random.nextInt(5);
+            long success = random.nextInt((int) count + 1);
+            long rt = random.nextInt(100);
+            add(offHeap, offHeapDictionary, key, count, success, rt, now);
+            add(onHeap, onHeapDictionary, key, count, success, rt, now);
+
+            String probe = "item:" + random.nextInt(200);
+            AggregatedKeyStat expected = snapshot(onHeap, onHeapDictionary, probe, now);
+            AggregatedKeyStat actual = snapshot(offHeap, offHeapDictionary, probe, now);
+            if (expected == null) {
+                assertNull(actual, probe);
+            } else {
+                assertEquals(expected.getTotalCount(), actual.getTotalCount(), probe);
+                assertEquals(expected.getSuccessCount(), actual.getSuccessCount(), probe);
+                assertEquals(expected.getTotalRtMillis(), actual.getTotalRtMillis(), probe);
+            }
+            assertEquals(onHeap.totalCount(now), offHeap.totalCount(now));
+        }
+        assertNotEquals(0, offHeap.size());
+        assertEquals(0, offHeap.getRejectedCount());
+    }
+
+    /**
+     * 与 {@link AppKeySpace} 一致：写入期间持有 ID，避免槽滚动时的空闲清理回收正在写入的 key。
+     */
+    private static int add(InstanceAggStore store, KeyDictionary dictionary, String key,
+                           long count, long success, long rt, long now) {
+        int id = dictionary.intern(key);
+        dictionary.retain(id);
+        try {
+            store.add(id, key, count, success, rt, now);
+        } finally {
+            dictionary.release(id);
+        }
+        return id;
+    }
+
+    private static AggregatedKeyStat snapshot(InstanceAggStore store, KeyDictionary dictionary, String key, long now) {
+        int id = dictionary.idOf(key);
+        return id < 0 ? null : store.snapshotForKey(id, key, now);
+    }
+}